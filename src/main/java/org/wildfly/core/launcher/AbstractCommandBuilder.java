@@ -8,6 +8,7 @@ package org.wildfly.core.launcher;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.wildfly.core.launcher.logger.LauncherMessages;
@@ -22,6 +23,12 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
 
     private Path logDir;
     private Path configDir;
+    private ClassDataSharing classDataSharing;
+    private MemoryErgonomics memoryErgonomics;
+    private GcProfile gcProfile;
+    private FlightRecording flightRecording;
+    // The class data sharing archives used by the cached arguments
+    private final List<ClassDataSharing.Archive> archives = new ArrayList<>();
 
     protected AbstractCommandBuilder(final Path wildflyHome, final String moduleName) {
         this(wildflyHome, null, moduleName);
@@ -31,6 +38,17 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
         super(wildflyHome, jvm, moduleName);
     }
 
+    AbstractCommandBuilder(final AbstractCommandBuilder<T> original) {
+        super(original);
+        this.logDir = original.logDir;
+        this.configDir = original.configDir;
+        this.classDataSharing = original.classDataSharing;
+        this.memoryErgonomics = original.memoryErgonomics;
+        this.gcProfile = original.gcProfile;
+        this.flightRecording = original.flightRecording;
+        this.archives.addAll(original.archives);
+    }
+
     @Override
     public T setUseSecurityManager(final boolean useSecMgr) {
         super.setUseSecurityManager(useSecMgr);
@@ -93,6 +111,7 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
     public T setLogDirectory(final String path) {
         if (path == null) {
             logDir = null;
+            invalidate();
             return getThis();
         }
         return setLogDirectory(Paths.get(path));
@@ -118,6 +137,7 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
             }
             logDir = path.toAbsolutePath().normalize();
         }
+        invalidate();
         return getThis();
     }
 
@@ -146,6 +166,7 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
      */
     public T setConfigurationDirectory(final String path) {
         configDir = Environment.validateAndNormalizeDir(path, true);
+        invalidate();
         return getThis();
     }
 
@@ -162,9 +183,143 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
      */
     public T setConfigurationDirectory(final Path path) {
         configDir = Environment.validateAndNormalizeDir(path, true);
+        invalidate();
+        return getThis();
+    }
+
+    /**
+     * Enables application class data sharing (AppCDS) with the archives stored in the directory. The first launch
+     * creates an archive of the loaded classes when the process exits, later launches use the archive to start
+     * faster. An archive is created for each combination of the WildFly home, module path, Java home and JVM options.
+     * <p>
+     * Class data sharing requires Java 13 or later and is not used if the JVM options already configure it, e.g. with
+     * {@code -XX:SharedArchiveFile} or {@code -Xshare:off}.
+     * </p>
+     *
+     * @param directory the directory to store the archives in or {@code null} to disable class data sharing
+     *
+     * @return the builder
+     */
+    public T setClassDataSharing(final Path directory) {
+        classDataSharing = ClassDataSharing.of(directory);
+        invalidate();
+        return getThis();
+    }
+
+    /**
+     * Returns the directory the class data sharing archives are stored in.
+     *
+     * @return the directory or {@code null} if class data sharing is disabled
+     */
+    public Path getClassDataSharingDirectory() {
+        return classDataSharing == null ? null : classDataSharing.getDirectory();
+    }
+
+    /**
+     * Derives the heap, metaspace and direct memory sizes from the memory and processors available, see
+     * {@link MemoryErgonomics}. The default heap options, {@code -Xms64m} and {@code -Xmx512m}, are replaced. JVM
+     * options which are added to the builder are not changed.
+     * <p>
+     * For a managed domain the sizes of the process controller and the host controller are derived. The sizes of the
+     * servers are configured in the host configuration.
+     * </p>
+     * <p>
+     * A copy of the ergonomics is kept, changes made to the ergonomics after they were set are not applied to this
+     * builder.
+     * </p>
+     *
+     * @param ergonomics the ergonomics or {@code null} to use the JVM options as they are
+     *
+     * @return the builder
+     */
+    public T setMemoryErgonomics(final MemoryErgonomics ergonomics) {
+        memoryErgonomics = ergonomics == null ? null : ergonomics.copy();
+        invalidate();
+        return getThis();
+    }
+
+    /**
+     * Sets the garbage collector profile, see {@link GcProfile}. The profile expands into the collector and tuning
+     * options supported by the JVM. If the profile cannot be used with the JVM an {@link IllegalStateException} is
+     * thrown when the arguments are built.
+     * <p>
+     * For a managed domain the profile is used for the process controller and the host controller. The garbage
+     * collector of the servers is configured in the host configuration.
+     * </p>
+     *
+     * @param profile the profile or {@code null} to use the JVM options as they are
+     *
+     * @return the builder
+     */
+    public T setGcProfile(final GcProfile profile) {
+        gcProfile = profile;
+        invalidate();
+        return getThis();
+    }
+
+    /**
+     * Returns the garbage collector profile.
+     *
+     * @return the profile or {@code null} if no profile was set
+     */
+    public GcProfile getGcProfile() {
+        return gcProfile;
+    }
+
+    /**
+     * Starts a continuous Java Flight Recorder recording with the launched process, see {@link FlightRecording}. The
+     * recording is written to the {@linkplain #getLogDirectory() log directory} when the process exits, unless a
+     * directory was set on the recording. The recording is not started if the JVM options already start one.
+     * <p>
+     * For a managed domain the recording is started for the process controller and the host controller.
+     * </p>
+     * <p>
+     * A copy of the recording is kept, changes made to the recording after it was set are not applied to this builder.
+     * </p>
+     *
+     * @param recording the recording or {@code null} to not start a recording
+     *
+     * @return the builder
+     */
+    public T setFlightRecording(final FlightRecording recording) {
+        flightRecording = recording == null ? null : recording.copy();
+        invalidate();
         return getThis();
     }
 
+    /**
+     * Returns a copy of the Java Flight Recorder recording started with the launched process.
+     *
+     * @return the recording or {@code null} if no recording is started
+     */
+    public FlightRecording getFlightRecording() {
+        return flightRecording == null ? null : flightRecording.copy();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If class data sharing is enabled, the arguments are created again once the archive was created by a launched
+     * process.
+     * </p>
+     */
+    @Override
+    public List<String> buildArguments() {
+        for (ClassDataSharing.Archive archive : archives) {
+            if (archive.isChanged()) {
+                invalidate();
+                break;
+            }
+        }
+        return super.buildArguments();
+    }
+
+    @Override
+    void invalidate() {
+        super.invalidate();
+        archives.clear();
+    }
+
     @Override
     public T addServerArgument(final String arg) {
         super.addServerArgument(arg);
@@ -333,6 +488,7 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
      */
     public T setPropertiesFile(final Path file) {
         serverArgs.remove("-P");
+        invalidate();
         return addPropertiesFile(file);
     }
 
@@ -395,6 +551,13 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
         return parent.resolve(path).toAbsolutePath().normalize();
     }
 
+    /**
+     * Returns the path to the log file the server writes boot messages to.
+     *
+     * @return the boot log file
+     */
+    abstract Path getBootLogFile();
+
     /**
      * Returns the base directory for the server.
      * <p/>
@@ -412,6 +575,77 @@ abstract class AbstractCommandBuilder<T extends AbstractCommandBuilder<T>> exten
      */
     protected abstract T getThis();
 
+    /**
+     * Returns the class data sharing archives used by the arguments last built.
+     *
+     * @return the archives
+     */
+    List<ClassDataSharing.Archive> getClassDataSharingArchives() {
+        return List.copyOf(archives);
+    }
+
+    /**
+     * Adds the JVM options for the class data sharing archive of the process if class data sharing is enabled.
+     *
+     * @param cmd         the command to add the options to
+     * @param name        the name of the process
+     * @param jvm         the JVM of the process
+     * @param javaOptions the JVM options of the process
+     */
+    void addClassDataSharingArguments(final List<String> cmd, final String name, final Jvm jvm, final List<String> javaOptions) {
+        if (classDataSharing != null) {
+            final ClassDataSharing.Archive archive = classDataSharing.resolve(name, jvm, environment.getModuleJar(),
+                    getModulePaths(), javaOptions);
+            if (archive != null) {
+                archives.add(archive);
+                cmd.addAll(archive.getArguments());
+            }
+        }
+    }
+
+    /**
+     * Returns the JVM options with the {@linkplain #setMemoryErgonomics(MemoryErgonomics) derived sizes} applied.
+     *
+     * @param profile     the profile of the process
+     * @param javaOptions the JVM options of the process
+     *
+     * @return the JVM options to use
+     */
+    List<String> applyMemoryErgonomics(final MemoryErgonomics.Profile profile, final Arguments javaOptions) {
+        if (memoryErgonomics == null) {
+            return javaOptions.asList();
+        }
+        return memoryErgonomics.apply(profile, javaOptions);
+    }
+
+    /**
+     * Adds the JVM options of the {@linkplain #setGcProfile(GcProfile) garbage collector profile} if one was set.
+     *
+     * @param cmd         the command to add the options to
+     * @param jvm         the JVM of the process
+     * @param javaOptions the JVM options of the process
+     */
+    void addGcProfileArguments(final List<String> cmd, final Jvm jvm, final List<String> javaOptions) {
+        if (gcProfile != null) {
+            cmd.addAll(gcProfile.resolve(jvm, javaOptions));
+        }
+    }
+
+    /**
+     * Adds the JVM options which start the {@linkplain #setFlightRecording(FlightRecording) flight recording} if
+     * one was set.
+     *
+     * @param cmd         the command to add the options to
+     * @param name        the name of the process
+     * @param jvm         the JVM of the process
+     * @param javaOptions the JVM options of the process
+     */
+    void addFlightRecordingArguments(final List<String> cmd, final String name, final Jvm jvm, final List<String> javaOptions) {
+        if (flightRecording != null) {
+            cmd.addAll(flightRecording.resolve(name, jvm, getLogDirectory(), javaOptions));
+        }
+    }
+
     protected static void addSystemPropertyArg(final List<String> cmd, final String key, final Object value) {
         if (value != null) {
             cmd.add("-D" + key + "=" + value);
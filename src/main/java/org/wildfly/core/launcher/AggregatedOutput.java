@@ -0,0 +1,273 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the output of many processes into a single file. Each line is prefixed with the prefix of the
+ * {@linkplain #sink(String) sink} it was written to, which identifies the process.
+ * <p>
+ * Complete lines are copied from the output of the process into a shared direct buffer, which is written to the file
+ * through a {@link FileChannel} once it is full. The buffer is also written periodically, so the file stays current
+ * when the processes are quiet. Only an incomplete line at the end of a chunk of output is held back until the rest
+ * of the line is read.
+ * </p>
+ * <pre>
+ *     try (AggregatedOutput output = AggregatedOutput.open(Path.of("servers.log"))) {
+ *         for (int i = 0; i &lt; builders.size(); i++) {
+ *             Launcher.of(builders.get(i))
+ *                     .consumeOutput(output.sink("server-" + i + " | "))
+ *                     .consumeError(output.sink("server-" + i + " ! "))
+ *                     .launch();
+ *         }
+ *         ...
+ *     }
+ * </pre>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings("unused")
+public final class AggregatedOutput implements Closeable {
+
+    /**
+     * The default size of the buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+    private static final long FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250L);
+    // The longest incomplete line held back by a sink, longer lines are split
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ScheduledFuture<?> flushTask;
+    private boolean closed;
+
+    private AggregatedOutput(final Path file, final FileChannel channel, final int bufferSize) {
+        this.file = file;
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        flushTask = Flusher.EXECUTOR.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Opens the file to write the output to. If the file exists it is replaced.
+     *
+     * @param file the file to write the output to
+     *
+     * @return the aggregated output
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public static AggregatedOutput open(final Path file) throws IOException {
+        return open(file, false, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens the file to write the output to.
+     *
+     * @param file       the file to write the output to
+     * @param append     {@code true} to append to an existing file, {@code false} to replace it
+     * @param bufferSize the size of the buffer
+     *
+     * @return the aggregated output
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public static AggregatedOutput open(final Path file, final boolean append, final int bufferSize) throws IOException {
+        if (file == null) {
+            throw MESSAGES.nullParam("file");
+        }
+        if (bufferSize < 1) {
+            throw MESSAGES.invalidPositiveValue(bufferSize, "bufferSize");
+        }
+        final FileChannel channel = append ?
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND) :
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new AggregatedOutput(file, channel, bufferSize);
+    }
+
+    /**
+     * Creates a sink for the output of a single process stream. Every line written to the sink is prefixed with the
+     * prefix. The prefix is used as is, it should include a separator.
+     *
+     * @param prefix the prefix for each line
+     *
+     * @return a new sink
+     */
+    public OutputSink sink(final String prefix) {
+        if (prefix == null) {
+            throw MESSAGES.nullParam("prefix");
+        }
+        return new PrefixedSink(prefix.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The file the output is written to.
+     *
+     * @return the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the buffered output to the file.
+     *
+     * @throws IOException if an error occurs writing to the file
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            drain();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            flushTask.cancel(false);
+            try {
+                drain();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    private synchronized void writeLine(final byte[] prefix, final byte[] first, final int firstOffset, final int firstLength,
+                                        final byte[] second, final int secondOffset, final int secondLength) throws IOException {
+        if (closed) {
+            return;
+        }
+        final int length = prefix.length + firstLength + secondLength + 1;
+        if (length > buffer.remaining()) {
+            drain();
+            if (length > buffer.capacity()) {
+                // The line does not fit in the buffer, write it directly
+                final byte[] line = new byte[length];
+                System.arraycopy(prefix, 0, line, 0, prefix.length);
+                System.arraycopy(first, firstOffset, line, prefix.length, firstLength);
+                System.arraycopy(second, secondOffset, line, prefix.length + firstLength, secondLength);
+                line[length - 1] = '\n';
+                final ByteBuffer wrapped = ByteBuffer.wrap(line);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+        }
+        buffer.put(prefix);
+        buffer.put(first, firstOffset, firstLength);
+        buffer.put(second, secondOffset, secondLength);
+        buffer.put((byte) '\n');
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            // Keeps any output which could not be written for the next attempt
+            buffer.compact();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException ignore) {
+            // Attempted again on the next flush
+        }
+    }
+
+    private class PrefixedSink implements OutputSink {
+        private final byte[] prefix;
+        // The incomplete line at the end of the previous chunk
+        private byte[] pending;
+        private int pendingLength;
+
+        private PrefixedSink(final byte[] prefix) {
+            this.prefix = prefix;
+            pending = new byte[128];
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            final int end = offset + length;
+            int start = offset;
+            for (int i = offset; i < end; i++) {
+                if (bytes[i] == '\n') {
+                    // Drop the carriage return so lines from all platforms look the same
+                    final int lineEnd = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                    if (pendingLength > 0 && lineEnd == start && pending[pendingLength - 1] == '\r') {
+                        pendingLength--;
+                    }
+                    writeLine(prefix, pending, 0, pendingLength, bytes, start, lineEnd - start);
+                    pendingLength = 0;
+                    start = i + 1;
+                }
+            }
+            if (start < end) {
+                hold(bytes, start, end - start);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (pendingLength > 0) {
+                writeLine(prefix, pending, 0, pendingLength, pending, 0, 0);
+                pendingLength = 0;
+            }
+        }
+
+        private void hold(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (pendingLength + length > MAX_LINE_LENGTH) {
+                writeLine(prefix, pending, 0, pendingLength, bytes, offset, length);
+                pendingLength = 0;
+                return;
+            }
+            if (pendingLength + length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.min(MAX_LINE_LENGTH, Math.max(pending.length * 2, pendingLength + length)));
+            }
+            System.arraycopy(bytes, offset, pending, pendingLength, length);
+            pendingLength += length;
+        }
+    }
+
+    private static class Flusher {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory());
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wildfly-launcher-aggregate-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
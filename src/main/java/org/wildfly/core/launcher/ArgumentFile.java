@@ -0,0 +1,140 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the arguments of a command to a Java argument file, {@code @argfile}, which is supported by the {@code java}
+ * launcher as of Java 9.
+ * <p>
+ * The name of the file is a hash of its content. A command which has not changed reuses the file written for a
+ * previous launch without writing it again.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ArgumentFile {
+    static final String FILE_PREFIX = "wildfly-launcher-";
+    static final String FILE_SUFFIX = ".args";
+
+    private ArgumentFile() {
+    }
+
+    /**
+     * Checks whether the JVM the command launches supports argument files.
+     *
+     * @param jvm     the JVM the command launches, may be {@code null} if it is not known
+     * @param command the command, the first entry is the {@code java} executable
+     *
+     * @return {@code true} if an argument file can be used for the command
+     */
+    static boolean isSupported(final Jvm jvm, final List<String> command) {
+        return jvm != null && command.size() >= 3 && jvm.isModular();
+    }
+
+    /**
+     * Writes the arguments of the command to an argument file, if one with the same content does not already exist, in
+     * the directory.
+     * <p>
+     * A process name argument, e.g. {@code -D[Standalone]}, is kept on the command line so the process can still be
+     * identified in a process listing.
+     * </p>
+     *
+     * @param dir     the directory to write the argument file to
+     * @param command the command, the first entry is the {@code java} executable
+     *
+     * @return the command with the arguments replaced by the argument file
+     *
+     * @throws IOException if the argument file could not be written
+     */
+    static List<String> create(final Path dir, final List<String> command) throws IOException {
+        final List<String> result = new ArrayList<>(3);
+        result.add(command.get(0));
+        int start = 1;
+        if (command.get(1).startsWith("-D[")) {
+            result.add(command.get(1));
+            start = 2;
+        }
+        final StringBuilder content = new StringBuilder();
+        for (String arg : command.subList(start, command.size())) {
+            content.append(quote(arg)).append(System.lineSeparator());
+        }
+        final byte[] bytes = content.toString().getBytes(nativeCharset());
+        final MessageDigest digest = JvmCapabilityStore.createDigest();
+        final Path file = dir.resolve(FILE_PREFIX + JvmCapabilityStore.toHex(digest.digest(bytes)) + FILE_SUFFIX)
+                .toAbsolutePath();
+        if (Files.notExists(file)) {
+            Files.createDirectories(dir);
+            final Path tmp = Files.createTempFile(dir, FILE_PREFIX, ".tmp");
+            try {
+                Files.write(tmp, bytes);
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException ignore) {
+                // Written by another launch with the same content
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        result.add("@" + file);
+        return result;
+    }
+
+    /**
+     * Quotes the argument if required. In an argument file a backslash within quotes is an escape character.
+     *
+     * @param arg the argument to quote
+     *
+     * @return the argument to write to the argument file
+     */
+    static String quote(final String arg) {
+        if (!arg.isEmpty() && arg.chars().noneMatch(c -> Character.isWhitespace(c) || c == '"' || c == '\'' || c == '#' || c == '\\')) {
+            return arg;
+        }
+        final StringBuilder result = new StringBuilder(arg.length() + 2).append('"');
+        for (char c : arg.toCharArray()) {
+            switch (c) {
+                case '"':
+                case '\\':
+                    result.append('\\').append(c);
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                default:
+                    result.append(c);
+                    break;
+            }
+        }
+        return result.append('"').toString();
+    }
+
+    private static Charset nativeCharset() {
+        // The java launcher reads the file with the native encoding of the platform
+        final String encoding = System.getProperty("native.encoding", System.getProperty("sun.jnu.encoding"));
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException ignore) {
+            }
+        }
+        return Charset.defaultCharset();
+    }
+}
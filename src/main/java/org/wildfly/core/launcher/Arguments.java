@@ -11,6 +11,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Stores arguments to be passed to the command line.
@@ -19,17 +20,42 @@ import java.util.Map;
  */
 class Arguments {
 
-    private final Map<String, Collection<Argument>> map;
+    private Map<String, Collection<Argument>> map;
+    // Indicates the map is shared with a copy and must be copied before it's modified
+    private boolean shared;
 
     Arguments() {
         this.map = new LinkedHashMap<>();
     }
 
+    private Arguments(final Map<String, Collection<Argument>> map) {
+        this.map = map;
+        this.shared = true;
+    }
+
+    /**
+     * Creates a copy of these arguments. The arguments are shared until either this instance or the copy is modified.
+     *
+     * @return a copy of the arguments
+     */
+    Arguments copy() {
+        // Only write if required as a template may be copied from multiple threads
+        if (!shared) {
+            shared = true;
+        }
+        return new Arguments(map);
+    }
+
     /**
      * Clears any arguments currently set.
      */
     public void clear() {
-        map.clear();
+        if (shared) {
+            map = new LinkedHashMap<>();
+            shared = false;
+        } else {
+            map.clear();
+        }
     }
 
     /**
@@ -87,7 +113,7 @@ class Arguments {
     public void set(final String key, final String value) {
         if (key != null) {
             if (value == null) {
-                map.remove(key);
+                writableMap().remove(key);
             } else {
                 final Argument argument;
                 if (key.startsWith("-D")) {
@@ -108,7 +134,7 @@ class Arguments {
      */
     public void set(final Argument argument) {
         if (argument != null) {
-            map.put(argument.getKey(), Collections.singleton(argument));
+            writableMap().put(argument.getKey(), Collections.singleton(argument));
         }
     }
 
@@ -127,6 +153,18 @@ class Arguments {
         }
     }
 
+    /**
+     * Parses each argument and adds them as default arguments. Default arguments are added like any other argument,
+     * however they can be told apart from the arguments added by the user with {@link #isDefault(Argument)}.
+     *
+     * @param args the default arguments to add
+     */
+    void addDefaults(final String... args) {
+        for (String arg : args) {
+            add(new DefaultValueArgument(parse(arg)));
+        }
+    }
+
     /**
      * Gets the first value for the key.
      *
@@ -165,7 +203,7 @@ class Arguments {
      * @return the arguments or {@code null} if the argument was not found
      */
     public Collection<Argument> remove(final String key) {
-        return map.remove(key);
+        return writableMap().remove(key);
     }
 
     /**
@@ -174,15 +212,39 @@ class Arguments {
      * @return the arguments for the command line
      */
     public List<String> asList() {
+        return asList(arg -> true);
+    }
+
+    /**
+     * Returns the arguments accepted by the filter as a list in their command line form.
+     *
+     * @param filter the filter for the arguments
+     *
+     * @return the arguments for the command line
+     */
+    List<String> asList(final Predicate<Argument> filter) {
         final List<String> result = new ArrayList<>();
         for (Collection<Argument> args : map.values()) {
             for (Argument arg : args) {
-                result.add(arg.asCommandLineArgument());
+                if (filter.test(arg)) {
+                    result.add(arg.asCommandLineArgument());
+                }
             }
         }
         return result;
     }
 
+    /**
+     * Indicates whether the argument was added as a {@linkplain #addDefaults(String...) default argument}.
+     *
+     * @param argument the argument to check
+     *
+     * @return {@code true} if the argument is a default argument, otherwise {@code false}
+     */
+    static boolean isDefault(final Argument argument) {
+        return argument instanceof DefaultValueArgument;
+    }
+
     /**
      * Adds the argument to the collection of arguments ignoring {@code null} values.
      *
@@ -191,7 +253,7 @@ class Arguments {
     void add(final Argument argument) {
         if (argument != null) {
             if (argument.multipleValuesAllowed()) {
-                final Collection<Argument> arguments = map.computeIfAbsent(argument.getKey(), k -> new ArrayList<>());
+                final Collection<Argument> arguments = writableMap().computeIfAbsent(argument.getKey(), k -> new ArrayList<>());
                 arguments.add(argument);
             } else {
                 set(argument);
@@ -199,6 +261,19 @@ class Arguments {
         }
     }
 
+    private Map<String, Collection<Argument>> writableMap() {
+        if (shared) {
+            final Map<String, Collection<Argument>> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, Collection<Argument>> entry : map.entrySet()) {
+                // Collections allowing multiple values are modified in place and need to be copied as well
+                copy.put(entry.getKey(), entry.getValue() instanceof ArrayList ? new ArrayList<>(entry.getValue()) : entry.getValue());
+            }
+            map = copy;
+            shared = false;
+        }
+        return map;
+    }
+
     /**
      * Attempts to parse the argument into a key value pair. The separator is assumed to be {@code =}. If the value
      * starts with a {@code -D} it's assumed to be a system property.
@@ -340,6 +415,25 @@ class Arguments {
         }
     }
 
+    private static final class DefaultValueArgument extends Argument {
+        private final Argument delegate;
+
+        private DefaultValueArgument(final Argument delegate) {
+            super(delegate.getKey(), delegate.getValue());
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean multipleValuesAllowed() {
+            return delegate.multipleValuesAllowed();
+        }
+
+        @Override
+        public String asCommandLineArgument() {
+            return delegate.asCommandLineArgument();
+        }
+    }
+
     private static final class DefaultArgument extends Argument {
         private final String cliArg;
 
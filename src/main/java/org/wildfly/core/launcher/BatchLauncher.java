@@ -0,0 +1,423 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Launches a batch of instances with a limited number of instances starting at the same time.
+ * <p>
+ * Instances are launched in order. At most the {@linkplain #setMaxConcurrency(int) maximum concurrency} number of
+ * instances are launched and have not yet passed the {@linkplain #setReadinessCheck(ReadinessCheck) readiness check}
+ * at any time. The next instance is only launched once an earlier instance is ready, or has failed. This avoids a large
+ * number of servers competing for the disk and CPU while booting.
+ * </p>
+ * <p>
+ * Instances which fail to launch or do not pass the readiness check do not stop the remaining instances from being
+ * launched. The processes of the launched instances are not destroyed by the batch launcher, this is the responsibility
+ * of the caller.
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ *     final CommandTemplate&lt;StandaloneCommandBuilder&gt; template = StandaloneCommandBuilder.of(wildflyHome)
+ *             .toTemplate();
+ *     final List&lt;StandaloneCommandBuilder&gt; builders = new ArrayList&lt;&gt;();
+ *     for (int i = 0; i &lt; 50; i++) {
+ *         builders.add(template.fork().setBaseDirectory(baseDirs.get(i)));
+ *     }
+ *     final BatchLauncher.Result result = BatchLauncher.of(builders)
+ *             .setMaxConcurrency(4)
+ *             .setPortOffsets(100, 100)
+ *             .setReadinessCheck(readinessCheck)
+ *             .launch();
+ * </pre>
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class BatchLauncher {
+
+    static final String PORT_OFFSET_PROPERTY = "jboss.socket.binding.port-offset";
+
+    private final List<CommandBuilder> builders;
+    private int maxConcurrency;
+    private ReadinessCheck readinessCheck;
+    private long readinessTimeout;
+    private TimeUnit readinessTimeoutUnit;
+    private boolean assignPortOffsets;
+    private int firstPortOffset;
+    private int portOffsetIncrement;
+    private ObjIntConsumer<Launcher> launcherConfigurator;
+
+    private BatchLauncher(final Collection<? extends CommandBuilder> builders) {
+        this.builders = new ArrayList<>(builders);
+        maxConcurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        readinessTimeout = 120L;
+        readinessTimeoutUnit = TimeUnit.SECONDS;
+    }
+
+    /**
+     * Creates a new batch launcher for the command builders.
+     *
+     * @param builders the command builders for each instance
+     *
+     * @return the new batch launcher
+     */
+    public static BatchLauncher of(final Collection<? extends CommandBuilder> builders) {
+        if (builders == null) {
+            throw MESSAGES.nullParam("builders");
+        }
+        return new BatchLauncher(builders);
+    }
+
+    /**
+     * Sets the maximum number of instances which may be starting at the same time. The default is half the number of
+     * available processors.
+     *
+     * @param maxConcurrency the maximum number of instances starting at the same time
+     *
+     * @return the batch launcher
+     */
+    public BatchLauncher setMaxConcurrency(final int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw MESSAGES.invalidPositiveValue(maxConcurrency, "maxConcurrency");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the check used to determine if an instance is ready. If not set an instance is ready as soon as the process
+     * has been launched.
+     *
+     * @param readinessCheck the readiness check or {@code null} to not check readiness
+     *
+     * @return the batch launcher
+     */
+    public BatchLauncher setReadinessCheck(final ReadinessCheck readinessCheck) {
+        this.readinessCheck = readinessCheck;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for an instance to pass the readiness check. The default is 120 seconds.
+     *
+     * @param timeout the timeout
+     * @param unit    the unit of the timeout
+     *
+     * @return the batch launcher
+     */
+    public BatchLauncher setReadinessTimeout(final long timeout, final TimeUnit unit) {
+        if (timeout < 1) {
+            throw MESSAGES.invalidPositiveValue(timeout, "timeout");
+        }
+        if (unit == null) {
+            throw MESSAGES.nullParam("unit");
+        }
+        this.readinessTimeout = timeout;
+        this.readinessTimeoutUnit = unit;
+        return this;
+    }
+
+    /**
+     * Assigns a port offset to each instance. The first instance is assigned the {@code first} port offset and each
+     * following instance the offset of the previous instance plus the {@code increment}.
+     * <p>
+     * The port offset is passed to each instance as the {@code jboss.socket.binding.port-offset} system property server
+     * argument. The command builders are not changed, so launching the batch again assigns the same port offsets.
+     * Only standalone and bootable JAR command builders are supported. A {@link DomainCommandBuilder domain} is
+     * rejected as the system property only reaches the host controller, it neither offsets the ports of the
+     * management interfaces of the host controller nor the ports of the servers it launches.
+     * </p>
+     *
+     * @param first     the port offset of the first instance
+     * @param increment the value added to the port offset for each following instance
+     *
+     * @return the batch launcher
+     *
+     * @throws IllegalArgumentException if one of the command builders is not a standalone or bootable JAR command
+     *                                  builder
+     */
+    public BatchLauncher setPortOffsets(final int first, final int increment) {
+        for (CommandBuilder builder : builders) {
+            if (!(builder instanceof StandaloneCommandBuilder || builder instanceof BootableJarCommandBuilder)) {
+                throw MESSAGES.portOffsetNotSupported(builder.getClass().getName());
+            }
+        }
+        this.assignPortOffsets = true;
+        this.firstPortOffset = first;
+        this.portOffsetIncrement = increment;
+        return this;
+    }
+
+    /**
+     * Sets a callback used to configure the {@link Launcher} for each instance, for example to redirect the output of
+     * the process. The callback receives the launcher and the index of the instance.
+     *
+     * @param launcherConfigurator the callback or {@code null} to use the default launcher configuration
+     *
+     * @return the batch launcher
+     */
+    public BatchLauncher setLauncherConfigurator(final ObjIntConsumer<Launcher> launcherConfigurator) {
+        this.launcherConfigurator = launcherConfigurator;
+        return this;
+    }
+
+    /**
+     * Launches the instances and waits until each instance is ready or has failed.
+     * <p>
+     * If the current thread is interrupted, no further instances are launched. The result is returned once the
+     * instances which were starting have stopped, so the processes which were already launched are not lost, and the
+     * interrupt status of the thread is set. Instances which were not launched have failed with an
+     * {@link InterruptedException}.
+     * </p>
+     *
+     * @return the result of the batch
+     */
+    public Result launch() {
+        final List<LaunchedInstance> instances = new ArrayList<>(builders.size());
+        for (int i = 0; i < builders.size(); i++) {
+            final CommandBuilder builder = builders.get(i);
+            if (assignPortOffsets) {
+                final int portOffset = firstPortOffset + (i * portOffsetIncrement);
+                instances.add(new LaunchedInstance(i, portOffset, builder, List.of("-D" + PORT_OFFSET_PROPERTY + "=" + portOffset)));
+            } else {
+                instances.add(new LaunchedInstance(i, 0, builder, List.of()));
+            }
+        }
+        final long start = System.nanoTime();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrency, Math.max(1, instances.size())),
+                new ThreadFactory());
+        try {
+            // The executor runs the tasks in order and only maxConcurrency at a time. The thread is held until the
+            // instance is ready which keeps the next instance from being launched.
+            final List<Future<?>> futures = new ArrayList<>(instances.size());
+            for (LaunchedInstance instance : instances) {
+                futures.add(executor.submit(() -> launch(instance, start)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Failures are recorded on the instance
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            // Wait for the instances which were starting, they stop on the interrupt, so their processes are recorded
+            awaitTermination(executor);
+            for (LaunchedInstance instance : instances) {
+                if (instance.getProcess() == null && instance.getFailure() == null) {
+                    instance.failed(e);
+                }
+            }
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(instances, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void awaitTermination(final ExecutorService executor) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    // A readiness check which does not stop on an interrupt is given its timeout
+                    executor.awaitTermination(readinessTimeout, readinessTimeoutUnit);
+                    return;
+                } catch (InterruptedException ignore) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void launch(final LaunchedInstance instance, final long batchStart) {
+        final long launchStart = System.nanoTime();
+        try {
+            final Launcher launcher = Launcher.of(instance.getCommandBuilder());
+            for (String arg : instance.getServerArguments()) {
+                launcher.addServerArgument(arg);
+            }
+            if (launcherConfigurator != null) {
+                launcherConfigurator.accept(launcher, instance.getIndex());
+            }
+            if (readinessCheck != null) {
+                readinessCheck.beforeLaunch(instance);
+            }
+            final Process process = launcher.launch();
+            instance.launched(process, Duration.ofNanos(launchStart - batchStart));
+            if (readinessCheck == null || readinessCheck.awaitReady(instance, readinessTimeout, readinessTimeoutUnit)) {
+                instance.ready(Duration.ofNanos(System.nanoTime() - launchStart));
+            } else {
+                instance.failed(MESSAGES.instanceNotReady(instance.getIndex(), readinessTimeout,
+                        readinessTimeoutUnit.name().toLowerCase(Locale.ROOT)));
+            }
+        } catch (InterruptedException e) {
+            instance.failed(e);
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            instance.failed(e);
+        }
+    }
+
+    /**
+     * The result of launching a batch of instances.
+     */
+    public static final class Result {
+        private final List<LaunchedInstance> instances;
+        private final Duration totalTime;
+
+        private Result(final List<LaunchedInstance> instances, final Duration totalTime) {
+            this.instances = Collections.unmodifiableList(instances);
+            this.totalTime = totalTime;
+        }
+
+        /**
+         * The launched instances in the order of the command builders.
+         *
+         * @return the instances
+         */
+        public List<LaunchedInstance> getInstances() {
+            return instances;
+        }
+
+        /**
+         * Indicates whether all the instances are ready.
+         *
+         * @return {@code true} if all instances are ready, otherwise {@code false}
+         */
+        public boolean isAllReady() {
+            return getReadyCount() == instances.size();
+        }
+
+        /**
+         * The number of instances which are ready.
+         *
+         * @return the number of ready instances
+         */
+        public int getReadyCount() {
+            int count = 0;
+            for (LaunchedInstance instance : instances) {
+                if (instance.isReady()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * The instances which failed to launch or did not become ready.
+         *
+         * @return the failed instances
+         */
+        public List<LaunchedInstance> getFailedInstances() {
+            final List<LaunchedInstance> result = new ArrayList<>();
+            for (LaunchedInstance instance : instances) {
+                if (!instance.isReady()) {
+                    result.add(instance);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * The time from the first launch until the last instance was ready or failed.
+         *
+         * @return the total time
+         */
+        public Duration getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * The shortest startup time of the ready instances.
+         *
+         * @return the minimum startup time or {@link Duration#ZERO} if no instance is ready
+         */
+        public Duration getMinStartupTime() {
+            Duration result = null;
+            for (LaunchedInstance instance : instances) {
+                if (instance.isReady() && (result == null || instance.getStartupTime().compareTo(result) < 0)) {
+                    result = instance.getStartupTime();
+                }
+            }
+            return result == null ? Duration.ZERO : result;
+        }
+
+        /**
+         * The longest startup time of the ready instances.
+         *
+         * @return the maximum startup time or {@link Duration#ZERO} if no instance is ready
+         */
+        public Duration getMaxStartupTime() {
+            Duration result = Duration.ZERO;
+            for (LaunchedInstance instance : instances) {
+                if (instance.isReady() && instance.getStartupTime().compareTo(result) > 0) {
+                    result = instance.getStartupTime();
+                }
+            }
+            return result;
+        }
+
+        /**
+         * The average startup time of the ready instances.
+         *
+         * @return the average startup time or {@link Duration#ZERO} if no instance is ready
+         */
+        public Duration getAverageStartupTime() {
+            Duration total = Duration.ZERO;
+            int count = 0;
+            for (LaunchedInstance instance : instances) {
+                if (instance.isReady()) {
+                    total = total.plus(instance.getStartupTime());
+                    count++;
+                }
+            }
+            return count == 0 ? Duration.ZERO : total.dividedBy(count);
+        }
+
+        @Override
+        public String toString() {
+            return "Result[instances=" + instances.size() + ", ready=" + getReadyCount() + ", totalTime=" + totalTime +
+                    ", minStartupTime=" + getMinStartupTime() + ", maxStartupTime=" + getMaxStartupTime() +
+                    ", averageStartupTime=" + getAverageStartupTime() + "]";
+        }
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private static final AtomicInteger ID = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wildfly-launcher-batch-" + ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
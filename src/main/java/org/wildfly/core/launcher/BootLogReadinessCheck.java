@@ -0,0 +1,251 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A readiness check which tails the boot log of a server until the server reports it has started.
+ * <p>
+ * The server is ready once the {@code WFLYSRV0025} "started in" or {@code WFLYSRV0026} "started (with errors) in"
+ * message is logged. The check fails as soon as the server logs that the boot has failed, {@code WFLYSRV0056}, or the
+ * process exits. For a domain the host controller log is tailed.
+ * </p>
+ * <p>
+ * Only the bytes written since the last read are read from the log file. The time between reads starts small and backs
+ * off while the file does not change.
+ * </p>
+ * <p>
+ * The log file may already contain messages from a previous boot. Only messages written after the check was
+ * {@linkplain #of(CommandBuilder) created}, or after {@link #beforeLaunch(LaunchedInstance)} was invoked, are checked.
+ * Create the check before launching the process.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class BootLogReadinessCheck implements ReadinessCheck {
+
+    static final String STARTED = "WFLYSRV0025";
+    static final String STARTED_WITH_ERRORS = "WFLYSRV0026";
+    static final String BOOT_FAILED = "WFLYSRV0056";
+
+    private static final long MIN_DELAY = TimeUnit.MILLISECONDS.toNanos(5L);
+    private static final long MAX_DELAY = TimeUnit.MILLISECONDS.toNanos(250L);
+    // Longer lines, e.g. very long exception messages, are truncated as the markers are at the start of a line
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final Path bootLog;
+    private final long startPosition;
+    private final Map<LaunchedInstance, Long> startPositions;
+    private boolean failOnErrors;
+
+    private BootLogReadinessCheck(final Path bootLog, final long startPosition) {
+        this.bootLog = bootLog;
+        this.startPosition = startPosition;
+        this.startPositions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Creates a check which resolves the boot log from the command builder of each launched instance. This is used with
+     * the {@link BatchLauncher}.
+     *
+     * @return a new readiness check
+     */
+    public static BootLogReadinessCheck create() {
+        return new BootLogReadinessCheck(null, 0L);
+    }
+
+    /**
+     * Creates a check for the boot log of the command builder. Only standalone and domain command builders are
+     * supported.
+     *
+     * @param builder the command builder used to launch the server
+     *
+     * @return a new readiness check
+     */
+    public static BootLogReadinessCheck of(final CommandBuilder builder) {
+        return of(resolveBootLog(builder));
+    }
+
+    /**
+     * Creates a check for the boot log.
+     *
+     * @param bootLog the path to the log file the server logs boot messages to
+     *
+     * @return a new readiness check
+     */
+    public static BootLogReadinessCheck of(final Path bootLog) {
+        if (bootLog == null) {
+            throw MESSAGES.nullParam("bootLog");
+        }
+        return new BootLogReadinessCheck(bootLog.toAbsolutePath().normalize(), size(bootLog));
+    }
+
+    /**
+     * Set to {@code true} to fail if the server started with errors. The default is {@code false}.
+     *
+     * @param failOnErrors {@code true} if a server which started with errors is not ready
+     *
+     * @return this check
+     */
+    public BootLogReadinessCheck setFailOnErrors(final boolean failOnErrors) {
+        this.failOnErrors = failOnErrors;
+        return this;
+    }
+
+    /**
+     * Waits for the server to log that it has started.
+     *
+     * @param process the process of the server
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     *
+     * @return {@code true} if the server has started or {@code false} if the server did not start in time or the process
+     * exited
+     *
+     * @throws IOException           if an error occurs reading the boot log
+     * @throws InterruptedException  if the current thread was interrupted while waiting
+     * @throws IllegalStateException if the server failed to boot
+     */
+    public boolean awaitReady(final Process process, final long timeout, final TimeUnit unit) throws IOException, InterruptedException {
+        if (bootLog == null) {
+            throw MESSAGES.nullParam("bootLog");
+        }
+        return tail(process, bootLog, startPosition, timeout, unit);
+    }
+
+    @Override
+    public void beforeLaunch(final LaunchedInstance instance) {
+        final Path file = bootLog == null ? resolveBootLog(instance.getCommandBuilder()) : bootLog;
+        startPositions.put(instance, size(file));
+    }
+
+    @Override
+    public boolean awaitReady(final LaunchedInstance instance, final long timeout, final TimeUnit unit) throws IOException, InterruptedException {
+        final Path file = bootLog == null ? resolveBootLog(instance.getCommandBuilder()) : bootLog;
+        final Long position = startPositions.remove(instance);
+        return tail(instance.getProcess(), file, position == null ? startPosition : position, timeout, unit);
+    }
+
+    private boolean tail(final Process process, final Path file, final long startPosition, final long timeout,
+                         final TimeUnit unit) throws IOException, InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        final LineBuffer line = new LineBuffer();
+        long position = startPosition;
+        long delay = MIN_DELAY;
+        while (true) {
+            // Check before reading so the messages logged before the process exited are read
+            final boolean alive = process == null || process.isAlive();
+            boolean changed = false;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() < position) {
+                    // The file was rotated or replaced, start at the beginning
+                    position = 0L;
+                    line.reset();
+                }
+                channel.position(position);
+                int read;
+                while ((read = channel.read(buffer)) > 0) {
+                    changed = true;
+                    position += read;
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        final byte b = buffer.get();
+                        if (b == '\n') {
+                            if (isStarted(file, line.toString())) {
+                                return true;
+                            }
+                            line.reset();
+                        } else if (b != '\r') {
+                            line.append(b);
+                        }
+                    }
+                    buffer.clear();
+                }
+            } catch (NoSuchFileException ignore) {
+                // The server has not yet created the file
+            }
+            if (!alive) {
+                return false;
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            delay = changed ? MIN_DELAY : Math.min(delay * 2, MAX_DELAY);
+            TimeUnit.NANOSECONDS.sleep(Math.min(delay, remaining));
+        }
+    }
+
+    private boolean isStarted(final Path file, final String line) {
+        if (line.contains(STARTED)) {
+            return true;
+        }
+        if (line.contains(STARTED_WITH_ERRORS)) {
+            if (failOnErrors) {
+                throw MESSAGES.serverBootFailed(file, line);
+            }
+            return true;
+        }
+        if (line.contains(BOOT_FAILED)) {
+            throw MESSAGES.serverBootFailed(file, line);
+        }
+        return false;
+    }
+
+    private static Path resolveBootLog(final CommandBuilder builder) {
+        if (builder instanceof AbstractCommandBuilder) {
+            return ((AbstractCommandBuilder<?>) builder).getBootLogFile();
+        }
+        throw MESSAGES.bootLogNotSupported(builder == null ? null : builder.getClass().getName());
+    }
+
+    private static long size(final Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ignore) {
+            return 0L;
+        }
+    }
+
+    private static class LineBuffer {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        void append(final byte b) {
+            if (length < MAX_LINE_LENGTH) {
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.min(bytes.length * 2, MAX_LINE_LENGTH));
+                }
+                bytes[length++] = b;
+            }
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
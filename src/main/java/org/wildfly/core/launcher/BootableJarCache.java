@@ -0,0 +1,428 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A cache of the directories bootable JARs are installed in. Without an install directory the server is extracted to
+ * a new temporary directory each time the bootable JAR is launched.
+ * <p>
+ * The install directory is keyed by the SHA-256 hash of the content of the bootable JAR. The server is extracted from
+ * the bootable JAR into a staging directory which is atomically renamed to the install directory once it is complete,
+ * a bootable JAR which has already been installed reuses its install directory without extracting it again.
+ * </p>
+ * <p>
+ * Each launched process leases its install directory with a lock on a file next to it. The lock is held by the
+ * launching JVM until the process exits. An install directory which is leased is never handed out to a second
+ * process, concurrent launches of the same bootable JAR are each given their own install directory. Once the size of
+ * the cache exceeds the {@linkplain #setMaxSize(long) maximum size}, the least recently used install directories
+ * which are not leased are deleted.
+ * </p>
+ * <pre>
+ *     final BootableJarCache cache = BootableJarCache.of(Path.of("target", "bootable-cache"))
+ *             .setMaxSize(4L * 1024L * 1024L * 1024L);
+ *     Launcher.of(BootableJarCommandBuilder.of(bootableJar)
+ *             .setExtractionCache(cache))
+ *             .launch();
+ * </pre>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class BootableJarCache {
+
+    /**
+     * The default maximum size, in bytes, of the cache.
+     */
+    public static final long DEFAULT_MAX_SIZE = 2L * 1024L * 1024L * 1024L;
+
+    // The entry of the bootable JAR which contains the server
+    private static final String SERVER_ZIP = "wildfly.zip";
+    private static final String ENTRY_EXTENSION = ".entry";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final String STAGING_EXTENSION = ".staging";
+    private static final String HASH = "sha256";
+    private static final String SIZE = "size";
+    // The size of the regions of the bootable JAR which are mapped to compute the hash
+    private static final long MAP_SIZE = 64L * 1024L * 1024L;
+
+    /**
+     * The hashes of bootable JARs keyed by the normalized path. A hash is only reused if the size and last modified
+     * time of the bootable JAR have not changed.
+     */
+    private static final Map<Path, CachedHash> HASHES = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private volatile long maxSize;
+
+    private BootableJarCache(final Path directory) {
+        this.directory = directory;
+        maxSize = DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * Creates a cache which stores the install directories in the directory.
+     *
+     * @param directory the directory for the install directories
+     *
+     * @return the cache
+     */
+    public static BootableJarCache of(final Path directory) {
+        if (directory == null) {
+            throw MESSAGES.nullParam("directory");
+        }
+        return new BootableJarCache(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * The directory the install directories are stored in.
+     *
+     * @return the directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, of all install directories. The default is {@value #DEFAULT_MAX_SIZE}.
+     * <p>
+     * Install directories which are leased by a running process are never deleted, the cache may exceed the maximum
+     * size while they are in use.
+     * </p>
+     *
+     * @param maxSize the maximum size or {@code 0} for no limit
+     *
+     * @return this cache
+     */
+    public BootableJarCache setMaxSize(final long maxSize) {
+        if (maxSize < 0L) {
+            throw MESSAGES.invalidNegativeValue(maxSize, "maxSize");
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * The maximum size, in bytes, of all install directories.
+     *
+     * @return the maximum size or {@code 0} for no limit
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Leases an install directory for the bootable JAR. The first install directory of the bootable JAR which is not
+     * leased is used, the server is extracted to it if it was not installed yet. The least recently used install
+     * directories are deleted if the cache is larger than the maximum size.
+     * <p>
+     * The lease must be {@linkplain Lease#close() closed} once the process launched from the install directory exited.
+     * </p>
+     *
+     * @param bootableJar the bootable JAR
+     *
+     * @return the lease or {@code null} if the cache could not be used
+     */
+    synchronized Lease lease(final Path bootableJar) {
+        try {
+            final String hash = hash(bootableJar);
+            final String prefix = bootableJar.getFileName().toString().replaceFirst("\\.jar$", "") + "-" + hash.substring(0, 16) + "-";
+            Files.createDirectories(directory);
+            for (int slot = 0; ; slot++) {
+                final String name = prefix + slot;
+                final FileChannel channel = FileChannel.open(directory.resolve(name + LOCK_EXTENSION),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                if (tryLock(channel) == null) {
+                    // Leased by another process
+                    channel.close();
+                    continue;
+                }
+                try {
+                    final Path installDir = directory.resolve(name);
+                    final Path entry = directory.resolve(name + ENTRY_EXTENSION);
+                    if (!Files.isDirectory(installDir) || !hash.equals(readEntry(entry).getProperty(HASH))) {
+                        install(bootableJar, hash, installDir, entry);
+                    }
+                    Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                    evict(entry);
+                    return new Lease(installDir, channel);
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+            }
+        } catch (IOException | SecurityException ignore) {
+            // Without the cache the bootable JAR is extracted to a temporary directory
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BootableJarCache[directory=" + directory + ", maxSize=" + maxSize + "]";
+    }
+
+    /**
+     * Computes the SHA-256 hash of the file. The file is mapped into memory in regions so large files are not read
+     * through the heap.
+     *
+     * @param file the file to hash
+     *
+     * @return the hash as a hex string
+     *
+     * @throws IOException if the file could not be read
+     */
+    static String hash(final Path file) throws IOException {
+        final Path path = file.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final CachedHash cached = HASHES.get(path);
+        if (cached != null && cached.size == attributes.size() && cached.lastModified == attributes.lastModifiedTime().toMillis()) {
+            return cached.hash;
+        }
+        final MessageDigest digest = JvmCapabilityStore.createDigest();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long position = 0L; position < size; position += MAP_SIZE) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, size - position));
+                digest.update(buffer);
+            }
+        }
+        final String hash = JvmCapabilityStore.toHex(digest.digest());
+        HASHES.put(path, new CachedHash(attributes.size(), attributes.lastModifiedTime().toMillis(), hash));
+        return hash;
+    }
+
+    private void install(final Path bootableJar, final String hash, final Path installDir, final Path entry) throws IOException {
+        // The install directory is only complete once it was renamed, anything left over is from an unknown version
+        delete(installDir);
+        final Path staging = installDir.resolveSibling(installDir.getFileName() + STAGING_EXTENSION);
+        delete(staging);
+        try {
+            final long size = extract(bootableJar, staging);
+            final Properties properties = new Properties();
+            properties.setProperty(HASH, hash);
+            properties.setProperty(SIZE, Long.toString(size));
+            writeEntry(entry, properties);
+            Files.move(staging, installDir, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            delete(staging);
+        }
+    }
+
+    private void evict(final Path current) throws IOException {
+        if (maxSize == 0L) {
+            return;
+        }
+        final List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_EXTENSION)) {
+            stream.forEach(entries::add);
+        }
+        long total = 0L;
+        for (Path entry : entries) {
+            total += entrySize(entry);
+        }
+        if (total <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparing(BootableJarCache::lastModified));
+        for (Path entry : entries) {
+            if (total <= maxSize) {
+                break;
+            }
+            // Never delete the install directory which is about to be used
+            if (entry.equals(current)) {
+                continue;
+            }
+            final String fileName = entry.getFileName().toString();
+            final String name = fileName.substring(0, fileName.length() - ENTRY_EXTENSION.length());
+            // The lock file is kept, deleting it would allow two processes to lock different files for the same name
+            try (FileChannel channel = FileChannel.open(directory.resolve(name + LOCK_EXTENSION),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (tryLock(channel) == null) {
+                    // Leased by a running process
+                    continue;
+                }
+                total -= entrySize(entry);
+                Files.deleteIfExists(entry);
+                delete(directory.resolve(name));
+            }
+        }
+    }
+
+    private static FileLock tryLock(final FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException ignore) {
+            // Leased by this JVM
+            return null;
+        }
+    }
+
+    private static long extract(final Path bootableJar, final Path target) throws IOException {
+        long size = 0L;
+        try (ZipFile jar = new ZipFile(bootableJar.toFile())) {
+            final ZipEntry serverZip = jar.getEntry(SERVER_ZIP);
+            if (serverZip == null) {
+                throw new NoSuchFileException(bootableJar + "!/" + SERVER_ZIP);
+            }
+            try (ZipInputStream in = new ZipInputStream(jar.getInputStream(serverZip))) {
+                ZipEntry zipEntry;
+                while ((zipEntry = in.getNextEntry()) != null) {
+                    final Path path = target.resolve(zipEntry.getName()).normalize();
+                    if (!path.startsWith(target)) {
+                        throw new IOException("Entry " + zipEntry.getName() + " is outside of " + target);
+                    }
+                    if (zipEntry.isDirectory()) {
+                        Files.createDirectories(path);
+                    } else {
+                        Files.createDirectories(path.getParent());
+                        size += Files.copy(in, path);
+                    }
+                }
+            }
+        }
+        Files.createDirectories(target);
+        return size;
+    }
+
+    private static long entrySize(final Path entry) throws IOException {
+        final String size = readEntry(entry).getProperty(SIZE);
+        if (size != null) {
+            try {
+                return Long.parseLong(size);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return 0L;
+    }
+
+    private static FileTime lastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+    private static Properties readEntry(final Path entry) throws IOException {
+        final Properties properties = new Properties();
+        if (Files.isRegularFile(entry)) {
+            try (Reader reader = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    private static void writeEntry(final Path entry, final Properties properties) throws IOException {
+        final Path tmp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void delete(final Path dir) throws IOException {
+        if (Files.notExists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            final List<Path> paths = new ArrayList<>();
+            files.forEach(paths::add);
+            // Delete the children before their parents
+            paths.sort(Comparator.reverseOrder());
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * The lease of an install directory. The install directory is neither deleted nor handed out to another process
+     * until the lease is closed.
+     */
+    static final class Lease implements Closeable {
+        private final Path installDir;
+        private final FileChannel channel;
+
+        private Lease(final Path installDir, final FileChannel channel) {
+            this.installDir = installDir;
+            this.channel = channel;
+        }
+
+        /**
+         * The leased install directory.
+         *
+         * @return the install directory
+         */
+        Path getInstallDir() {
+            return installDir;
+        }
+
+        /**
+         * Releases the install directory.
+         */
+        @Override
+        public void close() {
+            try {
+                // Closing the channel releases the lock
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Lease[installDir=" + installDir + "]";
+        }
+    }
+
+    private static class CachedHash {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private CachedHash(final long size, final long lastModified, final String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
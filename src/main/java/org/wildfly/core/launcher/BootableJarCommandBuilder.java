@@ -7,12 +7,14 @@ package org.wildfly.core.launcher;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 
 import static org.wildfly.core.launcher.JBossModulesCommandBuilder.DEFAULT_VM_ARGUMENTS;
 
@@ -38,6 +40,13 @@ public class BootableJarCommandBuilder implements CommandBuilder {
     private final Path bootableJar;
     private Jvm jvm;
     private final Arguments serverArgs;
+    private ClassDataSharing classDataSharing;
+    // The class data sharing archive used by the arguments last built
+    private ClassDataSharing.Archive archive;
+    private MemoryErgonomics memoryErgonomics;
+    private GcProfile gcProfile;
+    private FlightRecording flightRecording;
+    private BootableJarCache extractionCache;
 
     /**
      * Creates a new command builder for a bootable instance.
@@ -49,12 +58,16 @@ public class BootableJarCommandBuilder implements CommandBuilder {
      * @param bootableJar the path to the bootable jar file.
      */
     private BootableJarCommandBuilder(final Path bootableJar) {
+        this(bootableJar, Jvm.current());
+    }
+
+    private BootableJarCommandBuilder(final Path bootableJar, final Jvm jvm) {
         this.bootableJar = bootableJar;
         javaOpts = new Arguments();
-        javaOpts.addAll(DEFAULT_VM_ARGUMENTS);
+        javaOpts.addDefaults(DEFAULT_VM_ARGUMENTS);
         securityProperties = new LinkedHashMap<>();
         serverArgs = new Arguments();
-        jvm = Jvm.current();
+        this.jvm = jvm;
     }
 
     /**
@@ -219,6 +232,20 @@ public class BootableJarCommandBuilder implements CommandBuilder {
         return new BootableJarCommandBuilder(Environment.validateJar(bootableJar));
     }
 
+    /**
+     * Creates a command builder for a bootable instance of WildFly once the Java home has been resolved. Resolving the
+     * Java home may require launching the JVM, this is done in the background.
+     *
+     * @param bootableJar the path to the bootable jar
+     * @param javaHome    the path to the Java home directory or {@code null} to use the current Java home
+     *
+     * @return a future which completes with the new builder, or exceptionally if the Java home is not valid
+     */
+    public static CompletableFuture<BootableJarCommandBuilder> ofAsync(final Path bootableJar, final Path javaHome) {
+        final Path validatedJar = Environment.validateJar(bootableJar);
+        return Jvm.ofAsync(javaHome).thenApply(jvm -> new BootableJarCommandBuilder(validatedJar, jvm));
+    }
+
     /**
      * Adds a JVM argument to the command ignoring {@code null} arguments.
      *
@@ -428,6 +455,125 @@ public class BootableJarCommandBuilder implements CommandBuilder {
         return this;
     }
 
+    /**
+     * Enables application class data sharing (AppCDS) with the archives stored in the directory. The first launch
+     * creates an archive of the loaded classes when the process exits, later launches use the archive to start
+     * faster. An archive is created for each combination of the bootable JAR, Java home and JVM options.
+     * <p>
+     * Class data sharing requires Java 13 or later and is not used if the JVM options already configure it, e.g. with
+     * {@code -XX:SharedArchiveFile} or {@code -Xshare:off}.
+     * </p>
+     *
+     * @param directory the directory to store the archives in or {@code null} to disable class data sharing
+     *
+     * @return the builder
+     */
+    public BootableJarCommandBuilder setClassDataSharing(final Path directory) {
+        classDataSharing = ClassDataSharing.of(directory);
+        return this;
+    }
+
+    /**
+     * Returns the directory the class data sharing archives are stored in.
+     *
+     * @return the directory or {@code null} if class data sharing is disabled
+     */
+    public Path getClassDataSharingDirectory() {
+        return classDataSharing == null ? null : classDataSharing.getDirectory();
+    }
+
+    /**
+     * Derives the heap, metaspace and direct memory sizes from the memory and processors available, see
+     * {@link MemoryErgonomics}. The default heap options, {@code -Xms64m} and {@code -Xmx512m}, are replaced. JVM
+     * options which are added to the builder are not changed.
+     * <p>
+     * A copy of the ergonomics is kept, changes made to the ergonomics after they were set are not applied to this
+     * builder.
+     * </p>
+     *
+     * @param ergonomics the ergonomics or {@code null} to use the JVM options as they are
+     *
+     * @return the builder
+     */
+    public BootableJarCommandBuilder setMemoryErgonomics(final MemoryErgonomics ergonomics) {
+        memoryErgonomics = ergonomics == null ? null : ergonomics.copy();
+        return this;
+    }
+
+    /**
+     * Sets the garbage collector profile, see {@link GcProfile}. The profile expands into the collector and tuning
+     * options supported by the JVM. If the profile cannot be used with the JVM an {@link IllegalStateException} is
+     * thrown when the arguments are built.
+     *
+     * @param profile the profile or {@code null} to use the JVM options as they are
+     *
+     * @return the builder
+     */
+    public BootableJarCommandBuilder setGcProfile(final GcProfile profile) {
+        gcProfile = profile;
+        return this;
+    }
+
+    /**
+     * Returns the garbage collector profile.
+     *
+     * @return the profile or {@code null} if no profile was set
+     */
+    public GcProfile getGcProfile() {
+        return gcProfile;
+    }
+
+    /**
+     * Starts a continuous Java Flight Recorder recording with the launched process, see {@link FlightRecording}. The
+     * recording is written when the process exits to the directory set on the recording or, if no directory was set,
+     * the current working directory. The recording is not started if the JVM options already start one.
+     * <p>
+     * A copy of the recording is kept, changes made to the recording after it was set are not applied to this builder.
+     * </p>
+     *
+     * @param recording the recording or {@code null} to not start a recording
+     *
+     * @return the builder
+     */
+    public BootableJarCommandBuilder setFlightRecording(final FlightRecording recording) {
+        flightRecording = recording == null ? null : recording.copy();
+        return this;
+    }
+
+    /**
+     * Returns a copy of the Java Flight Recorder recording started with the launched process.
+     *
+     * @return the recording or {@code null} if no recording is started
+     */
+    public FlightRecording getFlightRecording() {
+        return flightRecording == null ? null : flightRecording.copy();
+    }
+
+    /**
+     * Sets the cache of install directories, see {@link BootableJarCache}. If the bootable JAR was already installed
+     * in the cache its install directory is reused, otherwise the server is installed in a new directory of the cache.
+     * The install directory is leased when the process is {@linkplain Launcher#launch() launched} and is not part of
+     * the {@linkplain #buildArguments() arguments}. The cache is not used if the
+     * {@linkplain #setInstallDir(Path) install directory} was set.
+     *
+     * @param cache the cache or {@code null} to extract the server to a temporary directory
+     *
+     * @return the builder
+     */
+    public BootableJarCommandBuilder setExtractionCache(final BootableJarCache cache) {
+        extractionCache = cache;
+        return this;
+    }
+
+    /**
+     * Returns the cache of install directories.
+     *
+     * @return the cache or {@code null} if no cache is used
+     */
+    public BootableJarCache getExtractionCache() {
+        return extractionCache;
+    }
+
     /**
      * Adds a security property to be passed to the server with a {@code null} value.
      *
@@ -467,7 +613,11 @@ public class BootableJarCommandBuilder implements CommandBuilder {
 
     @Override
     public List<String> buildArguments() {
-        final List<String> cmd = new ArrayList<>(getJavaOptions());
+        final List<String> cmd = new ArrayList<>(memoryErgonomics == null ? getJavaOptions() :
+                memoryErgonomics.apply(MemoryErgonomics.Profile.SERVER, javaOpts));
+        if (gcProfile != null) {
+            cmd.addAll(gcProfile.resolve(jvm, getJavaOptions()));
+        }
         final var serverArgs = getServerArguments();
         if (serverArgs.contains("-secmgr") && jvm.enhancedSecurityManagerAvailable()) {
             cmd.add(JBossModulesCommandBuilder.SECURITY_MANAGER_PROP_WITH_ALLOW_VALUE);
@@ -481,6 +631,14 @@ public class BootableJarCommandBuilder implements CommandBuilder {
         if (debugArg != null) {
             cmd.add(debugArg);
         }
+        archive = classDataSharing == null ? null :
+                classDataSharing.resolve("bootable-jar", jvm, bootableJar, null, getJavaOptions());
+        if (archive != null) {
+            cmd.addAll(archive.getArguments());
+        }
+        if (flightRecording != null) {
+            cmd.addAll(flightRecording.resolve("bootable-jar", jvm, getFlightRecordingDirectory(), getJavaOptions()));
+        }
 
         cmd.add("-jar");
 
@@ -521,4 +679,45 @@ public class BootableJarCommandBuilder implements CommandBuilder {
     public Path getJavaHome() {
         return jvm.getPath();
     }
+
+    /**
+     * Leases an install directory from the {@linkplain #setExtractionCache(BootableJarCache) extraction cache}. The
+     * server is extracted to the install directory if it was not installed yet.
+     *
+     * @return the lease or {@code null} if no cache is used, the install directory was set or the cache could not be
+     * used
+     */
+    BootableJarCache.Lease leaseInstallDir() {
+        if (extractionCache == null || serverArgs.get("--install-dir") != null) {
+            return null;
+        }
+        return extractionCache.lease(bootableJar);
+    }
+
+    /**
+     * Returns the JVM the command is launched with.
+     *
+     * @return the JVM
+     */
+    Jvm getJvm() {
+        return jvm;
+    }
+
+    /**
+     * Returns the class data sharing archives used by the arguments last built.
+     *
+     * @return the archives
+     */
+    List<ClassDataSharing.Archive> getClassDataSharingArchives() {
+        return archive == null ? List.of() : List.of(archive);
+    }
+
+    /**
+     * The directory the flight recording is written to if no directory was set on the recording.
+     *
+     * @return the current working directory
+     */
+    Path getFlightRecordingDirectory() {
+        return Paths.get("").toAbsolutePath();
+    }
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Manages the dynamic application class data sharing (AppCDS) archives of launched processes.
+ * <p>
+ * An archive is keyed by the name of the process, the file launched, the module path, the Java home and the JVM
+ * options. The first launch creates the archive when the process exits and later launches map it. On Java 19 and
+ * later {@code -XX:+AutoCreateSharedArchive} is used, which lets the JVM create and validate the archive itself. On Java
+ * 13 to 18 {@code -XX:ArchiveClassesAtExit} is used until the archive exists, then {@code -XX:SharedArchiveFile}.
+ * </p>
+ * <p>
+ * A fingerprint of the JVM and the launched file is stored next to each archive. If the fingerprint changes, for
+ * example after the JDK or WildFly was updated, the archive is not used and is created again.
+ * </p>
+ * <p>
+ * Resolving the arguments does not change any files. The files are only changed when a process is launched, see
+ * {@link Archive#prepare(List)}. Each launch which creates an archive dumps it to a file of its own, which is renamed
+ * to the archive once the process exited and the dump is complete. Concurrent launches therefore never write to the
+ * same file and a partially written dump is never used.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ClassDataSharing {
+    private static final String ARCHIVE_EXTENSION = ".jsa";
+    private static final String FINGERPRINT_EXTENSION = ".fingerprint";
+    private static final String ARCHIVE_CLASSES_AT_EXIT = "-XX:ArchiveClassesAtExit=";
+    // The magic number at the start of the header of a dynamic archive, the header is written in native byte order
+    private static final int DYNAMIC_ARCHIVE_MAGIC = 0xf00baba8;
+    // Options which mean the user manages class data sharing
+    private static final List<String> CDS_OPTIONS = List.of(
+            "-Xshare",
+            "-XX:SharedArchiveFile",
+            "-XX:ArchiveClassesAtExit",
+            "-XX:+AutoCreateSharedArchive",
+            "-XX:-AutoCreateSharedArchive",
+            "-XX:SharedClassListFile",
+            "-XX:DumpLoadedClassList"
+    );
+
+    private final Path directory;
+
+    private ClassDataSharing(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates the class data sharing for the directory the archives are stored in.
+     *
+     * @param directory the directory for the archives or {@code null} if class data sharing is disabled
+     *
+     * @return the class data sharing or {@code null} if the directory is {@code null}
+     */
+    static ClassDataSharing of(final Path directory) {
+        if (directory == null) {
+            return null;
+        }
+        return new ClassDataSharing(directory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * The directory the archives are stored in.
+     *
+     * @return the directory
+     */
+    Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Resolves the archive for a process. No files are changed.
+     *
+     * @param name        the name of the process, for example {@code standalone}
+     * @param jvm         the JVM the process is launched with
+     * @param launchFile  the file launched, e.g. {@code jboss-modules.jar} or the bootable JAR
+     * @param modulePath  the module path or {@code null}
+     * @param javaOptions the JVM options of the process
+     *
+     * @return the archive or {@code null} if class data sharing cannot be used for the process
+     */
+    Archive resolve(final String name, final Jvm jvm, final Path launchFile, final String modulePath,
+                    final List<String> javaOptions) {
+        // Dynamic archives require Java 13
+        if (jvm.getFeatureVersion() < 13 || isConfigured(javaOptions)) {
+            return null;
+        }
+        final MessageDigest digest = JvmCapabilityStore.createDigest();
+        update(digest, name);
+        update(digest, launchFile.toAbsolutePath().normalize().toString());
+        update(digest, modulePath);
+        update(digest, jvm.getPath().toString());
+        for (String option : javaOptions) {
+            update(digest, option);
+        }
+        final String key = name + "-" + JvmCapabilityStore.toHex(digest.digest()).substring(0, 32);
+        try {
+            return new Archive(directory, key, fingerprint(jvm, launchFile), jvm.getFeatureVersion() >= 19);
+        } catch (IOException | SecurityException ignore) {
+            // Class data sharing is only an optimization
+            return null;
+        }
+    }
+
+    private static boolean isConfigured(final List<String> javaOptions) {
+        for (String option : javaOptions) {
+            for (String cdsOption : CDS_OPTIONS) {
+                if (option.startsWith(cdsOption)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String fingerprint(final Jvm jvm, final Path launchFile) throws IOException {
+        final MessageDigest digest = JvmCapabilityStore.createDigest();
+        update(digest, Integer.toString(jvm.getFeatureVersion()));
+        // The archive depends on the exact JVM, the modules image changes with every update of the JDK
+        update(digest, jvm.getPath().resolve("bin").resolve(Environment.isWindows() ? "java.exe" : "java"));
+        update(digest, jvm.getPath().resolve("lib").resolve("modules"));
+        update(digest, launchFile);
+        return JvmCapabilityStore.toHex(digest.digest());
+    }
+
+    private static void update(final MessageDigest digest, final Path file) throws IOException {
+        if (Files.exists(file)) {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            update(digest, file + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+        } else {
+            update(digest, file.toString());
+        }
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separate the values so different values cannot result in the same digest
+        digest.update((byte) 0);
+    }
+
+    private static String readFingerprint(final Path file) {
+        try {
+            return Files.isRegularFile(file) ? Files.readString(file) : null;
+        } catch (IOException | SecurityException ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks the header of a dump. The header is written once the classes have been dumped, a dump which was
+     * interrupted does not start with the magic number.
+     */
+    private static boolean isComplete(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.nativeOrder());
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return false;
+                }
+            }
+            return header.getInt(0) == DYNAMIC_ARCHIVE_MAGIC;
+        } catch (IOException | SecurityException ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * The archive of a process.
+     */
+    static final class Archive {
+        private final Path directory;
+        private final String key;
+        private final Path file;
+        private final Path fingerprintFile;
+        private final String fingerprint;
+        private final boolean autoCreate;
+        private final boolean stale;
+        private final boolean usable;
+
+        private Archive(final Path directory, final String key, final String fingerprint, final boolean autoCreate) {
+            this.directory = directory;
+            this.key = key;
+            this.file = directory.resolve(key + ARCHIVE_EXTENSION);
+            this.fingerprintFile = directory.resolve(key + FINGERPRINT_EXTENSION);
+            this.fingerprint = fingerprint;
+            this.autoCreate = autoCreate;
+            // The archive is stale, or was not created by this launcher, if the fingerprint does not match
+            stale = !fingerprint.equals(readFingerprint(fingerprintFile));
+            usable = !stale && Files.isRegularFile(file);
+        }
+
+        /**
+         * The archive file.
+         *
+         * @return the archive file
+         */
+        Path getFile() {
+            return file;
+        }
+
+        /**
+         * The JVM options which create or use the archive.
+         *
+         * @return the JVM options
+         */
+        List<String> getArguments() {
+            if (autoCreate) {
+                return List.of("-XX:+AutoCreateSharedArchive", "-XX:SharedArchiveFile=" + file);
+            }
+            if (usable) {
+                return List.of("-XX:SharedArchiveFile=" + file);
+            }
+            return List.of(ARCHIVE_CLASSES_AT_EXIT + file);
+        }
+
+        /**
+         * Indicates whether the {@linkplain #getArguments() arguments} are no longer current, for example because the
+         * archive has been created since the archive was resolved.
+         *
+         * @return {@code true} if the archive should be resolved again
+         */
+        boolean isChanged() {
+            return !autoCreate && usable != (Files.isRegularFile(file) && fingerprint.equals(readFingerprint(fingerprintFile)));
+        }
+
+        /**
+         * Prepares the archive for a launch of the process. A stale archive is deleted. If the process creates the
+         * archive, the {@code -XX:ArchiveClassesAtExit} option of the command is changed to dump to a file of this
+         * launch. The returned dump must be {@linkplain Dump#complete() completed} once the process exited.
+         *
+         * @param command the command the process is launched with, which may be changed
+         *
+         * @return the dump or {@code null} if the process does not create the archive
+         */
+        Dump prepare(final List<String> command) {
+            final String arg = ARCHIVE_CLASSES_AT_EXIT + file;
+            final int index = command.indexOf(arg);
+            try {
+                Files.createDirectories(directory);
+                if (stale) {
+                    Files.deleteIfExists(file);
+                    if (autoCreate) {
+                        // The JVM creates the archive itself, record what it is created for
+                        writeFingerprint();
+                    }
+                }
+                if (index < 0) {
+                    return null;
+                }
+                final Path dumpFile = Files.createTempFile(directory, key + "-", ARCHIVE_EXTENSION + ".tmp");
+                command.set(index, ARCHIVE_CLASSES_AT_EXIT + dumpFile);
+                return new Dump(this, dumpFile);
+            } catch (IOException | SecurityException ignore) {
+                // Class data sharing is only an optimization, do not create the archive rather than risk a shared dump
+                if (index >= 0) {
+                    command.remove(index);
+                }
+                return null;
+            }
+        }
+
+        private void writeFingerprint() throws IOException {
+            final Path tmp = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.writeString(tmp, fingerprint);
+                Files.move(tmp, fingerprintFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * The archive dumped by a launched process.
+     */
+    static final class Dump {
+        private final Archive archive;
+        private final Path file;
+
+        private Dump(final Archive archive, final Path file) {
+            this.archive = archive;
+            this.file = file;
+        }
+
+        /**
+         * Completes the dump once the process has exited. A complete dump is atomically renamed to the archive,
+         * otherwise it is deleted.
+         */
+        void complete() {
+            try {
+                if (isComplete(file)) {
+                    // Written first, an archive without a matching fingerprint is not used
+                    archive.writeFingerprint();
+                    Files.move(file, archive.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException | SecurityException ignore) {
+                // Class data sharing is only an optimization
+            } finally {
+                abort();
+            }
+        }
+
+        /**
+         * Deletes the dump, for example because the process could not be launched.
+         */
+        void abort() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException | SecurityException ignore) {
+            }
+        }
+    }
+}
@@ -653,17 +653,22 @@ public class CliCommandBuilder implements CommandBuilder {
         return environment.getJvm().getPath();
     }
 
+    /**
+     * Returns the JVM the command is launched with.
+     *
+     * @return the JVM
+     */
+    Jvm getJvm() {
+        return environment.getJvm();
+    }
+
     @Override
     public List<String> buildArguments() {
         final List<String> cmd = new ArrayList<>(getJavaOptions());
         if (modularLauncher) {
             if (environment.getJvm().isModular()) {
                 cmd.addAll(JBossModulesCommandBuilder.DEFAULT_MODULAR_VM_ARGUMENTS);
-                for (final String optionalModularArgument : JBossModulesCommandBuilder.OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS) {
-                    if (Jvm.isPackageAvailable(environment.getJvm().getPath(), optionalModularArgument)) {
-                        cmd.add(optionalModularArgument);
-                    }
-                }
+                cmd.addAll(environment.getJvm().getAvailablePackages(JBossModulesCommandBuilder.OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS));
             }
         }
         cmd.add("-jar");
@@ -0,0 +1,43 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * A frozen copy of a {@link CommandBuilder} which can be used to create builders for launching many similar servers.
+ * <p>
+ * Each {@linkplain #fork() forked} builder shares the validated WildFly home, the resolved JVM and the parsed arguments
+ * of the template. The arguments are only copied when the forked builder changes them, which makes customizing a
+ * forked builder, e.g. setting a port offset or base directory, only cost the change itself.
+ * </p>
+ * <p>
+ * A template is never modified and is safe to use from multiple threads. The forked builders are not thread safe.
+ * </p>
+ *
+ * @param <T> the type of the command builder
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class CommandTemplate<T extends CommandBuilder> {
+
+    private final T template;
+    private final UnaryOperator<T> copier;
+
+    CommandTemplate(final T template, final UnaryOperator<T> copier) {
+        this.template = template;
+        this.copier = copier;
+    }
+
+    /**
+     * Creates a new builder with the state of this template.
+     *
+     * @return a new builder
+     */
+    public T fork() {
+        return copier.apply(template);
+    }
+}
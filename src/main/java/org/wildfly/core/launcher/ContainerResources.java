@@ -0,0 +1,209 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The memory and processors available to this process. The limits of the cgroup, v1 or v2, this process belongs to
+ * are read from {@code /sys/fs/cgroup}, and the physical memory from {@code /proc/meminfo}.
+ * <p>
+ * Processes launched from this process inherit its cgroup, so the limits apply to them as well.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ContainerResources {
+    // cgroup v1 reports an unlimited memory limit as a value close to Long.MAX_VALUE
+    private static final long UNLIMITED = Long.MAX_VALUE / 2L;
+
+    private final long memory;
+    private final int processors;
+
+    private ContainerResources(final long memory, final int processors) {
+        this.memory = memory;
+        this.processors = processors;
+    }
+
+    /**
+     * Resolves the resources of this process.
+     *
+     * @return the resources
+     */
+    static ContainerResources current() {
+        return Holder.CURRENT;
+    }
+
+    /**
+     * Creates the resources from the values.
+     *
+     * @param memory     the available memory in bytes or {@code -1} if unknown
+     * @param processors the number of available processors
+     *
+     * @return the resources
+     */
+    static ContainerResources of(final long memory, final int processors) {
+        return new ContainerResources(memory, processors);
+    }
+
+    /**
+     * Reads the resources.
+     *
+     * @param cgroupRoot          the mount point of the cgroup file system, usually {@code /sys/fs/cgroup}
+     * @param procSelfCgroup      the cgroup membership file, usually {@code /proc/self/cgroup}
+     * @param meminfo             the memory information file, usually {@code /proc/meminfo}
+     * @param availableProcessors the number of processors if there is no CPU quota
+     *
+     * @return the resources
+     */
+    static ContainerResources read(final Path cgroupRoot, final Path procSelfCgroup, final Path meminfo,
+                                   final int availableProcessors) {
+        final List<String> membership = readLines(procSelfCgroup);
+        long memoryLimit;
+        double cpuLimit;
+        if (Files.isRegularFile(cgroupRoot.resolve("cgroup.controllers"))) {
+            // cgroup v2, the limits of all the ancestors apply
+            final Path dir = resolveGroup(cgroupRoot, membership, "");
+            memoryLimit = Long.MAX_VALUE;
+            cpuLimit = Double.MAX_VALUE;
+            for (Path current = dir; current != null && current.startsWith(cgroupRoot); current = current.getParent()) {
+                final long memoryMax = parseLong(readFirstLine(current.resolve("memory.max")));
+                if (memoryMax > 0L) {
+                    memoryLimit = Math.min(memoryLimit, memoryMax);
+                }
+                final String cpuMax = readFirstLine(current.resolve("cpu.max"));
+                if (cpuMax != null) {
+                    final String[] parts = cpuMax.trim().split("\\s+");
+                    if (parts.length == 2) {
+                        cpuLimit = Math.min(cpuLimit, quota(parseLong(parts[0]), parseLong(parts[1])));
+                    }
+                }
+            }
+        } else {
+            // cgroup v1
+            final Path memoryDir = resolveGroup(cgroupRoot.resolve("memory"), membership, "memory");
+            memoryLimit = parseLong(readFirstLine(memoryDir.resolve("memory.limit_in_bytes")));
+            Path cpuDir = cgroupRoot.resolve("cpu");
+            if (!Files.isDirectory(cpuDir)) {
+                cpuDir = cgroupRoot.resolve("cpu,cpuacct");
+            }
+            cpuDir = resolveGroup(cpuDir, membership, "cpu");
+            cpuLimit = quota(parseLong(readFirstLine(cpuDir.resolve("cpu.cfs_quota_us"))),
+                    parseLong(readFirstLine(cpuDir.resolve("cpu.cfs_period_us"))));
+        }
+        long memory = parseMemTotal(meminfo);
+        if (memoryLimit > 0L && memoryLimit < UNLIMITED && (memory < 0L || memoryLimit < memory)) {
+            memory = memoryLimit;
+        }
+        int processors = availableProcessors;
+        if (cpuLimit > 0d && cpuLimit < Double.MAX_VALUE) {
+            processors = Math.max(1, Math.min(processors, (int) Math.ceil(cpuLimit)));
+        }
+        return new ContainerResources(memory, processors);
+    }
+
+    /**
+     * The memory available in bytes.
+     *
+     * @return the available memory or {@code -1} if unknown
+     */
+    long getMemory() {
+        return memory;
+    }
+
+    /**
+     * The number of processors available.
+     *
+     * @return the number of processors
+     */
+    int getProcessors() {
+        return processors;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerResources[memory=" + memory + ", processors=" + processors + "]";
+    }
+
+    private static Path resolveGroup(final Path root, final List<String> membership, final String controller) {
+        // Each line is hierarchy-id:controllers:path, cgroup v2 uses an empty list of controllers
+        for (String line : membership) {
+            final String[] parts = line.split(":", 3);
+            if (parts.length == 3 && isController(parts[1], controller)) {
+                final Path dir = root.resolve(parts[2].startsWith("/") ? parts[2].substring(1) : parts[2]).normalize();
+                // Within a cgroup namespace the path may not be visible, in that case the root is the group
+                if (dir.startsWith(root) && Files.isDirectory(dir)) {
+                    return dir;
+                }
+            }
+        }
+        return root;
+    }
+
+    private static boolean isController(final String controllers, final String controller) {
+        if (controller.isEmpty()) {
+            return controllers.isEmpty();
+        }
+        for (String value : controllers.split(",")) {
+            if (value.equals(controller)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double quota(final long quota, final long period) {
+        if (quota <= 0L || period <= 0L) {
+            return Double.MAX_VALUE;
+        }
+        return (double) quota / period;
+    }
+
+    private static long parseMemTotal(final Path meminfo) {
+        for (String line : readLines(meminfo)) {
+            if (line.startsWith("MemTotal:")) {
+                final String[] parts = line.substring(9).trim().split("\\s+");
+                final long kb = parseLong(parts[0]);
+                return kb < 0L ? -1L : kb * 1024L;
+            }
+        }
+        return -1L;
+    }
+
+    private static long parseLong(final String value) {
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException ignore) {
+                // For example "max" for no limit
+            }
+        }
+        return -1L;
+    }
+
+    private static String readFirstLine(final Path file) {
+        final List<String> lines = readLines(file);
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+
+    private static List<String> readLines(final Path file) {
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException | SecurityException ignore) {
+            return List.of();
+        }
+    }
+
+    private static class Holder {
+        static final ContainerResources CURRENT = read(Paths.get("/sys/fs/cgroup"), Paths.get("/proc/self/cgroup"),
+                Paths.get("/proc/meminfo"), Runtime.getRuntime().availableProcessors());
+    }
+}
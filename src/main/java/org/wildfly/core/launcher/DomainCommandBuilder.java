@@ -8,6 +8,8 @@ package org.wildfly.core.launcher;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.wildfly.core.launcher.Arguments.Argument;
 
@@ -29,6 +31,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
     private static final String DOMAIN_BASE_DIR = "jboss.domain.base.dir";
     private static final String DOMAIN_CONFIG_DIR = "jboss.domain.config.dir";
     private static final String DOMAIN_LOG_DIR = "jboss.domain.log.dir";
+    private static final String BOOT_LOG_FILE_NAME = "host-controller.log";
 
     private Jvm hostControllerJvm;
     private Jvm serverJvm;
@@ -48,12 +51,21 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
     private DomainCommandBuilder(final Path wildflyHome, final Jvm jvm) {
         super(wildflyHome, jvm, MODULE_NAME);
         hostControllerJavaOpts = new Arguments();
-        hostControllerJavaOpts.addAll(DEFAULT_VM_ARGUMENTS);
+        hostControllerJavaOpts.addDefaults(DEFAULT_VM_ARGUMENTS);
         processControllerJavaOpts = new Arguments();
-        processControllerJavaOpts.addAll(DEFAULT_VM_ARGUMENTS);
+        processControllerJavaOpts.addDefaults(DEFAULT_VM_ARGUMENTS);
         hostControllerJvm = serverJvm = environment.getJvm();
     }
 
+    private DomainCommandBuilder(final DomainCommandBuilder original) {
+        super(original);
+        hostControllerJvm = original.hostControllerJvm;
+        serverJvm = original.serverJvm;
+        baseDir = original.baseDir;
+        hostControllerJavaOpts = original.hostControllerJavaOpts.copy();
+        processControllerJavaOpts = original.processControllerJavaOpts.copy();
+    }
+
     /**
      * Creates a command builder for a domain instance of WildFly.
      * <p/>
@@ -104,6 +116,75 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
         return new DomainCommandBuilder(Environment.validateWildFlyDir(wildflyHome), Jvm.of(javaHome));
     }
 
+    /**
+     * Creates a command builder for a domain instance of WildFly. The Java homes for the process controller, the host
+     * controller and the servers are resolved concurrently.
+     *
+     * @param wildflyHome            the path to the WildFly home directory
+     * @param javaHome               the path to the default Java home directory or {@code null} to use the current
+     *                               Java home
+     * @param hostControllerJavaHome the path to the Java home for the host controller or {@code null} to use the
+     *                               default Java home
+     * @param serverJavaHome         the path to the Java home for the servers or {@code null} to use the default Java
+     *                               home
+     *
+     * @return a new builder
+     */
+    public static DomainCommandBuilder of(final Path wildflyHome, final Path javaHome, final Path hostControllerJavaHome,
+                                          final Path serverJavaHome) {
+        try {
+            return ofAsync(wildflyHome, javaHome, hostControllerJavaHome, serverJavaHome).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a command builder for a domain instance of WildFly once the Java homes have been resolved. The Java homes
+     * for the process controller, the host controller and the servers are resolved concurrently in the background.
+     *
+     * @param wildflyHome            the path to the WildFly home directory
+     * @param javaHome               the path to the default Java home directory or {@code null} to use the current
+     *                               Java home
+     * @param hostControllerJavaHome the path to the Java home for the host controller or {@code null} to use the
+     *                               default Java home
+     * @param serverJavaHome         the path to the Java home for the servers or {@code null} to use the default Java
+     *                               home
+     *
+     * @return a future which completes with the new builder, or exceptionally if a Java home is not valid
+     */
+    public static CompletableFuture<DomainCommandBuilder> ofAsync(final Path wildflyHome, final Path javaHome,
+                                                                  final Path hostControllerJavaHome, final Path serverJavaHome) {
+        final Path validatedHome = Environment.validateWildFlyDir(wildflyHome);
+        final CompletableFuture<Jvm> jvm = Jvm.ofAsync(javaHome);
+        final CompletableFuture<Jvm> hostControllerJvm = hostControllerJavaHome == null ? jvm : Jvm.ofAsync(hostControllerJavaHome);
+        final CompletableFuture<Jvm> serverJvm = serverJavaHome == null ? jvm : Jvm.ofAsync(serverJavaHome);
+        return CompletableFuture.allOf(jvm, hostControllerJvm, serverJvm)
+                .thenApply(ignore -> {
+                    final DomainCommandBuilder builder = new DomainCommandBuilder(validatedHome, jvm.join());
+                    builder.hostControllerJvm = hostControllerJvm.join();
+                    builder.serverJvm = serverJvm.join();
+                    return builder;
+                });
+    }
+
+    /**
+     * Creates a template from the current state of this builder. Changes made to this builder after the template is
+     * created are not reflected in the template.
+     * <p>
+     * Builders {@linkplain CommandTemplate#fork() forked} from the template share the validated WildFly home, the
+     * resolved JVMs and the arguments of the template until they are changed.
+     * </p>
+     *
+     * @return a new template
+     */
+    public CommandTemplate<DomainCommandBuilder> toTemplate() {
+        return new CommandTemplate<>(new DomainCommandBuilder(this), DomainCommandBuilder::new);
+    }
+
     /**
      * Sets the option ({@code --backup} to keep a copy of the persistent domain configuration even if this host is not
      * a domain controller.
@@ -289,6 +370,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setBaseDirectory(final String baseDir) {
         this.baseDir = Environment.validateAndNormalizeDir(baseDir, true);
+        invalidate();
         return this;
     }
 
@@ -303,6 +385,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setBaseDirectory(final Path baseDir) {
         this.baseDir = Environment.validateAndNormalizeDir(baseDir, true);
+        invalidate();
         return this;
     }
 
@@ -319,6 +402,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setHostControllerJavaHome(final String javaHome) {
         hostControllerJvm = Jvm.of(javaHome);
+        invalidate();
         return this;
     }
 
@@ -335,6 +419,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setHostControllerJavaHome(final Path javaHome) {
         hostControllerJvm = Jvm.of(javaHome);
+        invalidate();
         return this;
     }
 
@@ -479,6 +564,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
                     break;
                 default:
                     hostControllerJavaOpts.add(argument);
+                    invalidate();
                     break;
             }
         }
@@ -528,6 +614,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setHostControllerJavaOptions(final String... args) {
         hostControllerJavaOpts.clear();
+        invalidate();
         return addHostControllerJavaOptions(args);
     }
 
@@ -542,6 +629,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setHostControllerJavaOptions(final Iterable<String> args) {
         hostControllerJavaOpts.clear();
+        invalidate();
         return addHostControllerJavaOptions(args);
     }
 
@@ -570,6 +658,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
                 setUseSecurityManager(isJavaSecurityManagerConfigured(argument));
             } else {
                 processControllerJavaOpts.add(argument);
+                invalidate();
             }
         }
         return this;
@@ -618,6 +707,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setProcessControllerJavaOptions(final String... args) {
         processControllerJavaOpts.clear();
+        invalidate();
         return addProcessControllerJavaOptions(args);
     }
 
@@ -632,6 +722,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setProcessControllerJavaOptions(final Iterable<String> args) {
         processControllerJavaOpts.clear();
+        invalidate();
         return addProcessControllerJavaOptions(args);
     }
 
@@ -658,6 +749,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setServerJavaHome(final String javaHome) {
         serverJvm = Jvm.of(javaHome);
+        invalidate();
         return this;
     }
 
@@ -675,6 +767,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
      */
     public DomainCommandBuilder setServerJavaHome(final Path javaHome) {
         serverJvm = Jvm.of(javaHome);
+        invalidate();
         return this;
     }
 
@@ -700,7 +793,7 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
     }
 
     @Override
-    public List<String> buildArguments() {
+    List<String> createArguments() {
         final List<String> cmd = new ArrayList<>();
 
         // Process Controller
@@ -708,18 +801,17 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
         addSystemPropertyArg(cmd, HOME_DIR, getWildFlyHome());
 
         // PROCESS_CONTROLLER_JAVA_OPTS
-        cmd.addAll(processControllerJavaOpts.asList());
+        cmd.addAll(applyMemoryErgonomics(MemoryErgonomics.Profile.PROCESS_CONTROLLER, processControllerJavaOpts));
+        addGcProfileArguments(cmd, environment.getJvm(), processControllerJavaOpts.asList());
         if (environment.getJvm().isModular()) {
             cmd.addAll(DEFAULT_MODULAR_VM_ARGUMENTS);
-            for (final String optionalModularArgument : OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS) {
-                if (Jvm.isPackageAvailable(environment.getJvm().getPath(), optionalModularArgument)) {
-                    cmd.add(optionalModularArgument);
-                }
-            }
+            cmd.addAll(environment.getJvm().getAvailablePackages(OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS));
         }
         if (useSecurityManager() && environment.getJvm().enhancedSecurityManagerAvailable()) {
             cmd.add(SECURITY_MANAGER_PROP_WITH_ALLOW_VALUE);
         }
+        addClassDataSharingArguments(cmd, "process-controller", environment.getJvm(), processControllerJavaOpts.asList());
+        addFlightRecordingArguments(cmd, "process-controller", environment.getJvm(), processControllerJavaOpts.asList());
 
         cmd.add(getBootLogArgument("process-controller.log"));
         cmd.add(getLoggingPropertiesArgument("logging.properties"));
@@ -740,22 +832,21 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
 
         // Host Controller
         cmd.add("--");
-        cmd.add(getBootLogArgument("host-controller.log"));
+        cmd.add(getBootLogArgument(BOOT_LOG_FILE_NAME));
         cmd.add(getLoggingPropertiesArgument("logging.properties"));
 
         // HOST_CONTROLLER_JAVA_OPTS
-        cmd.addAll(hostControllerJavaOpts.asList());
+        cmd.addAll(applyMemoryErgonomics(MemoryErgonomics.Profile.HOST_CONTROLLER, hostControllerJavaOpts));
+        addGcProfileArguments(cmd, hostControllerJvm, hostControllerJavaOpts.asList());
         if (hostControllerJvm.isModular()) {
             cmd.addAll(DEFAULT_MODULAR_VM_ARGUMENTS);
-            for (final String optionalModularArgument : OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS) {
-                if (Jvm.isPackageAvailable(environment.getJvm().getPath(), optionalModularArgument)) {
-                    cmd.add(optionalModularArgument);
-                }
-            }
+            cmd.addAll(hostControllerJvm.getAvailablePackages(OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS));
         }
         if (useSecurityManager() && hostControllerJvm.enhancedSecurityManagerAvailable()) {
             cmd.add(SECURITY_MANAGER_PROP_WITH_ALLOW_VALUE);
         }
+        addClassDataSharingArguments(cmd, "host-controller", hostControllerJvm, hostControllerJavaOpts.asList());
+        addFlightRecordingArguments(cmd, "host-controller", hostControllerJvm, hostControllerJavaOpts.asList());
 
         cmd.add("--");
         cmd.add("-default-jvm");
@@ -781,6 +872,12 @@ public class DomainCommandBuilder extends AbstractCommandBuilder<DomainCommandBu
         return baseDir;
     }
 
+    @Override
+    Path getBootLogFile() {
+        // The host controller reports when the domain has started
+        return normalizePath(getLogDirectory(), BOOT_LOG_FILE_NAME);
+    }
+
     @Override
     protected DomainCommandBuilder getThis() {
         return this;
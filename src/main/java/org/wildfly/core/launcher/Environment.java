@@ -48,6 +48,19 @@ class Environment {
         jvm = Jvm.current();
     }
 
+    /**
+     * Creates a copy of the environment. The WildFly home directory has already been validated and the JVM has already
+     * been resolved so neither is done again.
+     *
+     * @param original the environment to copy
+     */
+    Environment(final Environment original) {
+        this.wildflyHome = original.wildflyHome;
+        this.jvm = original.jvm;
+        this.modulesDirs = new ArrayList<>(original.modulesDirs);
+        this.addDefaultModuleDir = original.addDefaultModuleDir;
+    }
+
     /**
      * Returns the WildFly Home directory.
      *
@@ -0,0 +1,340 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes a continuous Java Flight Recorder (JFR) recording started with launched processes.
+ * <p>
+ * The recording is written to {@code <name>.jfr}, for example {@code standalone.jfr}, in the log directory of the
+ * server when the process exits. {@link Launcher#dumpFlightRecording(Process)} dumps the recording of a running
+ * process, which should be done before the process is destroyed as a forcibly killed process cannot write the
+ * recording.
+ * </p>
+ * <pre>
+ *     final Launcher launcher = Launcher.of(StandaloneCommandBuilder.of(wildflyHome)
+ *             .setFlightRecording(FlightRecording.create()
+ *                     .setSettings("profile")
+ *                     .setMaxAge(10, TimeUnit.MINUTES)));
+ *     final Process process = launcher.launch();
+ *     ...
+ *     launcher.dumpFlightRecording(process);
+ *     ProcessHelper.destroyProcess(process);
+ * </pre>
+ * <p>
+ * Java Flight Recorder requires Java 11 or later.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class FlightRecording {
+    // Timeout for a jcmd process
+    private static final long JCMD_TIMEOUT = 30L;
+
+    private String name;
+    private String settings;
+    private long maxAge;
+    private long maxSize;
+    private Path directory;
+
+    private FlightRecording() {
+        name = "wildfly";
+        settings = "default";
+    }
+
+    private FlightRecording(final FlightRecording original) {
+        name = original.name;
+        settings = original.settings;
+        maxAge = original.maxAge;
+        maxSize = original.maxSize;
+        directory = original.directory;
+    }
+
+    /**
+     * Creates a recording with the {@code default} settings and no limits.
+     *
+     * @return the recording
+     */
+    public static FlightRecording create() {
+        return new FlightRecording();
+    }
+
+    /**
+     * Sets the name of the recording. The default is {@code wildfly}.
+     *
+     * @param name the name of the recording
+     *
+     * @return this recording
+     *
+     * @throws IllegalArgumentException if the name contains a {@code ,} or {@code =} character
+     */
+    public FlightRecording setName(final String name) {
+        if (name == null) {
+            throw MESSAGES.nullParam("name");
+        }
+        if (name.isBlank()) {
+            throw MESSAGES.emptyParam("name");
+        }
+        this.name = checkOptionValue("name", name);
+        return this;
+    }
+
+    /**
+     * The name of the recording.
+     *
+     * @return the name of the recording
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the settings of the recording. This is either the name of a settings file of the JDK, {@code default} or
+     * {@code profile}, or the path to a {@code .jfc} file. The default is {@code default}.
+     *
+     * @param settings the settings of the recording
+     *
+     * @return this recording
+     *
+     * @throws IllegalArgumentException if the settings contain a {@code ,} or {@code =} character
+     */
+    public FlightRecording setSettings(final String settings) {
+        if (settings == null) {
+            throw MESSAGES.nullParam("settings");
+        }
+        if (settings.isBlank()) {
+            throw MESSAGES.emptyParam("settings");
+        }
+        this.settings = checkOptionValue("settings", settings);
+        return this;
+    }
+
+    /**
+     * The settings of the recording.
+     *
+     * @return the settings
+     */
+    public String getSettings() {
+        return settings;
+    }
+
+    /**
+     * Sets the maximum age of the data kept by the recording. Older data is discarded.
+     *
+     * @param maxAge the maximum age or {@code 0} for no limit
+     * @param unit   the unit of the maximum age
+     *
+     * @return this recording
+     */
+    public FlightRecording setMaxAge(final long maxAge, final TimeUnit unit) {
+        if (maxAge < 0L) {
+            throw MESSAGES.invalidNegativeValue(maxAge, "maxAge");
+        }
+        // Values smaller than a second are rounded up as the recording works in chunks of at least a second
+        this.maxAge = maxAge == 0L ? 0L : Math.max(1L, unit.toSeconds(maxAge));
+        return this;
+    }
+
+    /**
+     * The maximum age, in seconds, of the data kept by the recording.
+     *
+     * @return the maximum age or {@code 0} for no limit
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, of the data kept by the recording. Older data is discarded.
+     *
+     * @param maxSize the maximum size or {@code 0} for no limit
+     *
+     * @return this recording
+     */
+    public FlightRecording setMaxSize(final long maxSize) {
+        if (maxSize < 0L) {
+            throw MESSAGES.invalidNegativeValue(maxSize, "maxSize");
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * The maximum size, in bytes, of the data kept by the recording.
+     *
+     * @return the maximum size or {@code 0} for no limit
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the directory the recordings are written to. By default the log directory of the server is used.
+     *
+     * @param directory the directory or {@code null} to use the log directory
+     *
+     * @return this recording
+     *
+     * @throws IllegalArgumentException if the path of the directory contains a {@code ,} or {@code =} character
+     */
+    public FlightRecording setDirectory(final Path directory) {
+        this.directory = directory == null ? null : checkOptionValue("directory", directory.toAbsolutePath().normalize());
+        return this;
+    }
+
+    /**
+     * The directory the recordings are written to.
+     *
+     * @return the directory or {@code null} if the log directory of the server is used
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Resolves the JVM options which start the recording.
+     *
+     * @param name             the name of the process, for example {@code standalone}
+     * @param jvm              the JVM the process is launched with
+     * @param defaultDirectory the directory to use if no directory was set
+     * @param javaOptions      the JVM options of the process
+     *
+     * @return the JVM options, empty if the JVM options already start a recording
+     *
+     * @throws IllegalStateException    if the JVM does not support Java Flight Recorder or its version is not known
+     * @throws IllegalArgumentException if the path of the recording contains a {@code ,} or {@code =} character
+     */
+    List<String> resolve(final String name, final Jvm jvm, final Path defaultDirectory, final List<String> javaOptions) {
+        final int featureVersion = jvm.getFeatureVersion();
+        if (featureVersion < 0) {
+            throw MESSAGES.flightRecordingUnknownVersion(jvm.getPath());
+        }
+        if (featureVersion < 11) {
+            throw MESSAGES.flightRecordingNotSupported(jvm.getPath());
+        }
+        for (String option : javaOptions) {
+            if (option.startsWith("-XX:StartFlightRecording")) {
+                return List.of();
+            }
+        }
+        final StringBuilder option = new StringBuilder("-XX:StartFlightRecording=name=")
+                .append(this.name)
+                .append(",settings=").append(settings)
+                .append(",disk=true");
+        if (maxAge > 0L) {
+            option.append(",maxage=").append(maxAge).append('s');
+        }
+        if (maxSize > 0L) {
+            option.append(",maxsize=").append(maxSize);
+        }
+        option.append(",dumponexit=true,filename=")
+                .append(checkOptionValue("filename", resolveDirectory(defaultDirectory).resolve(name + ".jfr")));
+        return List.of(option.toString());
+    }
+
+    /**
+     * Dumps the recording of the process, and its descendants, with {@code jcmd}. Each recording is written to
+     * {@code <recording name>-<pid>.jfr}.
+     *
+     * @param process          the process to dump the recording of
+     * @param javaHome         the Java home which provides {@code jcmd}
+     * @param defaultDirectory the directory to use if no directory was set
+     *
+     * @return the files which were written
+     *
+     * @throws IOException          if {@code jcmd} could not be executed or failed for a process which is still alive
+     * @throws InterruptedException if the current thread was interrupted while waiting for {@code jcmd}
+     */
+    List<Path> dump(final ProcessHandle process, final Path javaHome, final Path defaultDirectory) throws IOException, InterruptedException {
+        final Path jcmd = javaHome.resolve("bin").resolve(Environment.isWindows() ? "jcmd.exe" : "jcmd");
+        if (Files.notExists(jcmd)) {
+            // A JRE does not provide jcmd
+            return List.of();
+        }
+        final Path dir = resolveDirectory(defaultDirectory);
+        Files.createDirectories(dir);
+        final List<ProcessHandle> processes = new ArrayList<>();
+        processes.add(process);
+        process.descendants().forEach(processes::add);
+        final List<Path> result = new ArrayList<>();
+        for (ProcessHandle handle : processes) {
+            if (!handle.isAlive()) {
+                continue;
+            }
+            final Path file = dir.resolve(this.name + "-" + handle.pid() + ".jfr");
+            Files.deleteIfExists(file);
+            // The output is written to a file, reading it from a pipe could block past the timeout
+            final Path output = Files.createTempFile("wildfly-launcher-jcmd-", ".log");
+            try {
+                final Process jcmdProcess = new ProcessBuilder(jcmd.toString(), Long.toString(handle.pid()), "JFR.dump",
+                        "name=" + this.name, "filename=" + file)
+                        .redirectErrorStream(true)
+                        .redirectOutput(output.toFile())
+                        .start();
+                try {
+                    if (!jcmdProcess.waitFor(JCMD_TIMEOUT, TimeUnit.SECONDS)) {
+                        continue;
+                    }
+                } finally {
+                    if (jcmdProcess.isAlive()) {
+                        jcmdProcess.destroyForcibly();
+                    }
+                }
+                // A process without a recording exits with 0, a failure to attach is only reported if the process is
+                // still alive
+                if (jcmdProcess.exitValue() != 0 && handle.isAlive()) {
+                    throw MESSAGES.flightRecordingDumpFailed(handle.pid(), jcmdProcess.exitValue(),
+                            Files.readString(output).trim());
+                }
+            } finally {
+                Files.deleteIfExists(output);
+            }
+            // Not every process has a recording, e.g. the servers of a managed domain, only report the written files
+            if (Files.isRegularFile(file) && Files.size(file) > 0L) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a copy of this recording. The command builders keep a copy, so changes made to a recording after it was
+     * set on a builder do not change the arguments of the builder.
+     *
+     * @return a copy of this recording
+     */
+    FlightRecording copy() {
+        return new FlightRecording(this);
+    }
+
+    @Override
+    public String toString() {
+        return "FlightRecording[name=" + name + ", settings=" + settings + ", maxAge=" + maxAge + ", maxSize=" +
+                maxSize + ", directory=" + directory + "]";
+    }
+
+    private static <T> T checkOptionValue(final String name, final T value) {
+        // The values of the -XX:StartFlightRecording option are separated by a ',' and the names by a '='
+        final String s = value.toString();
+        if (s.indexOf(',') >= 0 || s.indexOf('=') >= 0) {
+            throw MESSAGES.flightRecordingInvalidValue(name, value);
+        }
+        return value;
+    }
+
+    private Path resolveDirectory(final Path defaultDirectory) {
+        return directory == null ? defaultDirectory.toAbsolutePath().normalize() : directory;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Garbage collector presets which expand into the collector and tuning options supported by the JVM the process is
+ * launched with. The options are chosen based on the {@linkplain Jvm#getFeatureVersion() feature version} of the JVM,
+ * so the same profile can be used when the JDK is upgraded.
+ * <p>
+ * If a profile cannot be used with the JVM, or the JVM options select a different collector, an
+ * {@link IllegalStateException} is thrown when the arguments are built instead of the process failing to start.
+ * Tuning options which were added to the builder are not changed.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public enum GcProfile {
+
+    /**
+     * Uses the parallel collector, which has the highest throughput at the cost of longer pauses.
+     */
+    THROUGHPUT {
+        @Override
+        void addOptions(final List<String> options, final int featureVersion) {
+            options.add("-XX:+UseParallelGC");
+        }
+    },
+
+    /**
+     * Uses ZGC, which has pause times below a millisecond. On Java 21 and 22 the generational mode is enabled, from
+     * Java 23 it is the default. Requires Java 15 or later.
+     * <p>
+     * Shenandoah is not used as whether it is available depends on the vendor of the JDK.
+     * </p>
+     */
+    LOW_LATENCY(15) {
+        @Override
+        void addOptions(final List<String> options, final int featureVersion) {
+            options.add("-XX:+UseZGC");
+            // The option is deprecated in Java 23 and obsolete in Java 24, both print a warning
+            if (featureVersion >= 21 && featureVersion < 23) {
+                options.add("-XX:+ZGenerational");
+            }
+        }
+    },
+
+    /**
+     * Uses the serial collector and returns unused heap memory to the operating system. On Java 25 and later compact
+     * object headers are enabled.
+     */
+    LOW_FOOTPRINT {
+        @Override
+        void addOptions(final List<String> options, final int featureVersion) {
+            options.add("-XX:+UseSerialGC");
+            options.add("-XX:MinHeapFreeRatio=10");
+            options.add("-XX:MaxHeapFreeRatio=20");
+            if (featureVersion >= 25) {
+                options.add("-XX:+UseCompactObjectHeaders");
+            }
+        }
+    },
+
+    /**
+     * Optimizes the startup of short-lived processes, for example servers which are started for a test. Uses the
+     * serial collector and only the C1 compiler.
+     */
+    EPHEMERAL_TEST {
+        @Override
+        void addOptions(final List<String> options, final int featureVersion) {
+            options.add("-XX:+UseSerialGC");
+            options.add("-XX:TieredStopAtLevel=1");
+        }
+    },
+    ;
+
+    // Options which select the collector, only one of them can be used
+    private static final List<String> COLLECTOR_OPTIONS = List.of(
+            "-XX:+UseSerialGC",
+            "-XX:+UseParallelGC",
+            "-XX:+UseParallelOldGC",
+            "-XX:+UseConcMarkSweepGC",
+            "-XX:+UseG1GC",
+            "-XX:+UseZGC",
+            "-XX:+UseShenandoahGC",
+            "-XX:+UseEpsilonGC"
+    );
+
+    private final int requiredVersion;
+
+    GcProfile() {
+        this(-1);
+    }
+
+    GcProfile(final int requiredVersion) {
+        this.requiredVersion = requiredVersion;
+    }
+
+    /**
+     * Adds the options of this profile.
+     *
+     * @param options        the list to add the options to
+     * @param featureVersion the feature version of the JVM or {@code -1} if unknown
+     */
+    abstract void addOptions(List<String> options, int featureVersion);
+
+    /**
+     * Resolves the options of this profile for the JVM. Options whose name is already present in the JVM options are
+     * not returned.
+     *
+     * @param jvm         the JVM the process is launched with
+     * @param javaOptions the JVM options of the process
+     *
+     * @return the options to add
+     *
+     * @throws IllegalStateException if the profile cannot be used with the JVM or conflicts with the JVM options
+     */
+    List<String> resolve(final Jvm jvm, final List<String> javaOptions) {
+        final int featureVersion = jvm.getFeatureVersion();
+        if (requiredVersion > 0) {
+            if (featureVersion < 0) {
+                throw MESSAGES.gcProfileUnknownVersion(name(), jvm.getPath());
+            }
+            if (featureVersion < requiredVersion) {
+                throw MESSAGES.gcProfileNotSupported(name(), requiredVersion, jvm.getPath(), featureVersion);
+            }
+        }
+        final List<String> options = new ArrayList<>();
+        addOptions(options, featureVersion);
+        final List<String> result = new ArrayList<>(options.size());
+        for (String option : options) {
+            if (COLLECTOR_OPTIONS.contains(option)) {
+                for (String javaOption : javaOptions) {
+                    if (COLLECTOR_OPTIONS.contains(javaOption) && !javaOption.equals(option)) {
+                        throw MESSAGES.gcProfileConflict(name(), javaOption);
+                    }
+                }
+            }
+            if (!contains(javaOptions, option)) {
+                result.add(option);
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(final List<String> javaOptions, final String option) {
+        // Compare the name of the option, e.g. -XX:TieredStopAtLevel or UseCompactObjectHeaders
+        final String name = optionName(option);
+        for (String javaOption : javaOptions) {
+            if (optionName(javaOption).equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String optionName(final String option) {
+        if (option.startsWith("-XX:+") || option.startsWith("-XX:-")) {
+            return option.substring(5);
+        }
+        final int index = option.indexOf('=');
+        return index > 0 ? option.substring(0, index) : option;
+    }
+}
@@ -9,6 +9,7 @@ import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.wildfly.core.launcher.Arguments.Argument;
@@ -94,6 +95,9 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
     private boolean useSecMgr;
     private boolean addModuleAgent;
     private final Collection<String> moduleOpts;
+    private List<String> arguments;
+    private List<String> command;
+    private List<String> commandArguments;
 
     /**
      * Creates a command builder for a launching JBoss Modules module.
@@ -133,6 +137,27 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
         addModuleAgent = false;
     }
 
+    /**
+     * Creates a copy of the command builder. The arguments are shared with the original until they are modified.
+     *
+     * @param original the builder to copy
+     */
+    JBossModulesCommandBuilder(final JBossModulesCommandBuilder original) {
+        this.environment = new Environment(original.environment);
+        this.serverArgs = original.serverArgs.copy();
+        this.javaOpts = original.javaOpts.copy();
+        this.moduleName = original.moduleName;
+        this.modulesLocklessArg = original.modulesLocklessArg;
+        this.modulesMetricsArg = original.modulesMetricsArg;
+        this.useSecMgr = original.useSecMgr;
+        this.addModuleAgent = original.addModuleAgent;
+        this.moduleOpts = new ArrayList<>(original.moduleOpts);
+        // The cached arguments are unmodifiable and can be shared until either builder is changed
+        this.arguments = original.arguments;
+        this.command = original.command;
+        this.commandArguments = original.commandArguments;
+    }
+
     /**
      * Creates a command builder for a launching JBoss Modules module.
      *
@@ -174,6 +199,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
     public JBossModulesCommandBuilder setUseSecurityManager(final boolean useSecMgr) {
         if (environment.getJvm().isSecurityManagerSupported()) {
             this.useSecMgr = useSecMgr;
+            invalidate();
             return this;
         }
         throw MESSAGES.securityManagerNotSupported(environment.getJvm().getPath());
@@ -199,6 +225,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder addModuleDir(final String moduleDir) {
         environment.addModuleDir(moduleDir);
+        invalidate();
         return this;
     }
 
@@ -213,6 +240,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder addModuleDirs(final String... moduleDirs) {
         environment.addModuleDirs(moduleDirs);
+        invalidate();
         return this;
     }
 
@@ -227,6 +255,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder addModuleDirs(final Iterable<String> moduleDirs) {
         environment.addModuleDirs(moduleDirs);
+        invalidate();
         return this;
     }
 
@@ -243,6 +272,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setModuleDirs(final Iterable<String> moduleDirs) {
         environment.setModuleDirs(moduleDirs);
+        invalidate();
         return this;
     }
 
@@ -259,6 +289,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setModuleDirs(final String... moduleDirs) {
         environment.setModuleDirs(moduleDirs);
+        invalidate();
         return this;
     }
 
@@ -286,6 +317,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
                     setUseSecurityManager(true);
                 } else {
                     serverArgs.add(argument);
+                    invalidate();
                 }
             }
         }
@@ -380,6 +412,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
                 setUseSecurityManager(isJavaSecurityManagerConfigured(argument));
             } else {
                 javaOpts.add(argument);
+                invalidate();
             }
         }
         return this;
@@ -429,6 +462,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setJavaOptions(final Iterable<String> javaOpts) {
         this.javaOpts.clear();
+        invalidate();
         return addJavaOptions(javaOpts);
     }
 
@@ -444,6 +478,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setJavaOptions(final String... javaOpts) {
         this.javaOpts.clear();
+        invalidate();
         return addJavaOptions(javaOpts);
     }
 
@@ -477,6 +512,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
                 throw MESSAGES.invalidArgument(arg, "setUseSecurityManager");
             }
             moduleOpts.add(arg);
+            invalidate();
         }
         return this;
     }
@@ -534,6 +570,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setModuleOptions(final String... args) {
         moduleOpts.clear();
+        invalidate();
         addModuleOptions(args);
         return this;
     }
@@ -551,6 +588,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setModuleOptions(final Iterable<String> args) {
         moduleOpts.clear();
+        invalidate();
         addModuleOptions(args);
         return this;
     }
@@ -564,6 +602,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setJavaHome(final String javaHome) {
         environment.setJvm(Jvm.of(javaHome));
+        invalidate();
         return this;
     }
 
@@ -576,6 +615,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
      */
     public JBossModulesCommandBuilder setJavaHome(final Path javaHome) {
         environment.setJvm(Jvm.of(javaHome));
+        invalidate();
         return this;
     }
 
@@ -592,6 +632,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
         } else {
             modulesLocklessArg = null;
         }
+        invalidate();
         return this;
     }
 
@@ -608,11 +649,33 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
         } else {
             modulesMetricsArg = null;
         }
+        invalidate();
         return this;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The arguments are cached until the builder is changed. Repeated invocations without a change return the same
+     * unmodifiable list.
+     * </p>
+     */
     @Override
     public List<String> buildArguments() {
+        List<String> result = arguments;
+        if (result == null) {
+            result = arguments = Collections.unmodifiableList(createArguments());
+        }
+        return result;
+    }
+
+    /**
+     * Creates the arguments for the command line. This is only invoked if the state of the builder has changed since
+     * the arguments were last created.
+     *
+     * @return the arguments for the command line
+     */
+    List<String> createArguments() {
         final List<String> cmd = new ArrayList<>();
         // Check to see if an agent was added as a module option, if so we want to add JBoss Modules as an agent.
         if (addModuleAgent) {
@@ -621,11 +684,7 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
         cmd.addAll(getJavaOptions());
         if (environment.getJvm().isModular()) {
             cmd.addAll(DEFAULT_MODULAR_VM_ARGUMENTS);
-            for (final String optionalModularArgument : OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS) {
-                if (Jvm.isPackageAvailable(environment.getJvm().getPath(), optionalModularArgument)) {
-                    cmd.add(optionalModularArgument);
-                }
-            }
+            cmd.addAll(environment.getJvm().getAvailablePackages(OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS));
         }
         if (useSecurityManager() && environment.getJvm().enhancedSecurityManagerAvailable()) {
             cmd.add(SECURITY_MANAGER_PROP_WITH_ALLOW_VALUE);
@@ -652,20 +711,42 @@ public class JBossModulesCommandBuilder implements CommandBuilder {
         return cmd;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The command is cached until the builder is changed. Repeated invocations without a change return the same
+     * unmodifiable list.
+     * </p>
+     */
     @Override
     public List<String> build() {
-        final List<String> cmd = new ArrayList<>();
-        cmd.add(environment.getJvm().getCommand());
-        cmd.addAll(buildArguments());
-        return cmd;
+        final List<String> arguments = buildArguments();
+        // Compare the instance as the command must be rebuilt if the arguments were
+        if (command == null || commandArguments != arguments) {
+            final List<String> cmd = new ArrayList<>(arguments.size() + 1);
+            cmd.add(environment.getJvm().getCommand());
+            cmd.addAll(arguments);
+            command = Collections.unmodifiableList(cmd);
+            commandArguments = arguments;
+        }
+        return command;
+    }
+
+    /**
+     * Discards the cached command line. This must be invoked whenever the state used to create the arguments changes.
+     */
+    void invalidate() {
+        arguments = null;
     }
 
     protected void setSingleServerArg(final String key, final String value) {
         serverArgs.set(key, value);
+        invalidate();
     }
 
     protected void addServerArg(final String key, final String value) {
         serverArgs.add(key, value);
+        invalidate();
     }
 
     /**
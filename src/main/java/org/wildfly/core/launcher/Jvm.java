@@ -6,16 +6,30 @@
 package org.wildfly.core.launcher;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.wildfly.core.launcher.logger.LauncherMessages;
 
@@ -41,18 +55,39 @@ class Jvm {
         JAVA_HOME = Paths.get(javaHome);
     }
 
-    private static final Jvm DEFAULT = new Jvm(JAVA_HOME, true, SUPPORTS_SECURITY_MANGER, ENHANCED_SECURITY_MANAGER);
+    private static final Jvm DEFAULT = new Jvm(JAVA_HOME, Runtime.version().feature(), true, SUPPORTS_SECURITY_MANGER,
+            ENHANCED_SECURITY_MANAGER, Map.of());
+
+    /**
+     * Resolved JVM's keyed by the normalized Java home. An entry is only reused if the {@link Fingerprint} of the Java
+     * home has not changed since the JVM was resolved.
+     */
+    private static final Map<Path, CachedJvm> CACHE = new ConcurrentHashMap<>();
+
+    // The maximum number of characters of a check processes output to scan for warnings
+    private static final int MAX_SCANNED_OUTPUT = 64 * 1024;
+
+    /**
+     * Used to resolve JVM's, and the capabilities which need to be probed, in the background. Resolving a JVM is mostly
+     * blocked on child processes so the threads are not bound to the number of processors.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory());
 
     private final Path path;
+    private final int featureVersion;
     private final boolean isModular;
     private final boolean isSecurityManagerSupported;
     private final boolean enhancedSecurityManager;
+    private final Map<String, Boolean> availablePackages;
 
-    private Jvm(final Path path, final boolean isModular, final boolean isSecurityManagerSupported, final boolean enhancedSecurityManager) {
+    private Jvm(final Path path, final int featureVersion, final boolean isModular, final boolean isSecurityManagerSupported,
+                final boolean enhancedSecurityManager, final Map<String, Boolean> availablePackages) {
         this.path = path;
+        this.featureVersion = featureVersion;
         this.isModular = isModular;
         this.isSecurityManagerSupported = isSecurityManagerSupported;
         this.enhancedSecurityManager = enhancedSecurityManager;
+        this.availablePackages = new ConcurrentHashMap<>(availablePackages);
     }
 
     /**
@@ -80,6 +115,13 @@ class Jvm {
 
     /**
      * Creates a new JVM. If the {@code javaHome} is {@code null} the {@linkplain #current() current} JVM is returned.
+     * <p>
+     * The JVM is cached for the lifetime of this process. If the {@code bin/java} executable or the {@code release}
+     * file of the Java home change, the JVM is resolved again. If the {@link JvmCapabilityStore persistent store} is
+     * enabled, the capabilities are read from the store first. Otherwise the capabilities are resolved from the files
+     * in the Java home and only if that is not possible is a process launched to probe the JVM. Concurrent invocations
+     * for the same Java home wait for a single resolution, other Java homes are resolved independently.
+     * </p>
      *
      * @param javaHome the path to the Java home
      *
@@ -90,7 +132,83 @@ class Jvm {
             return DEFAULT;
         }
         final Path path = validateJavaHome(javaHome);
-        return new Jvm(path, isModularJavaHome(javaHome), isSecurityManagerSupported(javaHome), hasEnhancedSecurityManager(javaHome));
+        final Fingerprint fingerprint = Fingerprint.of(path);
+        // Resolving may launch processes, so it must not be done while holding the lock of the map
+        final CachedJvm created = new CachedJvm(fingerprint);
+        final CachedJvm cached = CACHE.compute(path, (key, current) ->
+                current != null && current.fingerprint.equals(fingerprint) ? current : created);
+        if (cached == created) {
+            try {
+                created.jvm.complete(resolve(path));
+            } catch (RuntimeException | Error e) {
+                // Allow the next invocation to try again
+                CACHE.remove(path, created);
+                created.jvm.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return cached.jvm.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves the JVM in the background. If the {@code javaHome} is {@code null} the {@linkplain #current() current}
+     * JVM is returned.
+     *
+     * @param javaHome the path to the Java home
+     *
+     * @return a future which completes with the JVM descriptor based on the Java home path or exceptionally if the
+     * Java home is invalid
+     *
+     * @see #of(Path)
+     */
+    static CompletableFuture<Jvm> ofAsync(final Path javaHome) {
+        if (javaHome == null || javaHome.equals(JAVA_HOME)) {
+            return CompletableFuture.completedFuture(DEFAULT);
+        }
+        return CompletableFuture.supplyAsync(() -> of(javaHome), EXECUTOR);
+    }
+
+    private static Jvm resolve(final Path javaHome) {
+        final JvmCapabilityStore store = JvmCapabilityStore.getInstance();
+        if (store != null) {
+            final Capabilities capabilities = store.read(javaHome);
+            if (capabilities != null) {
+                return new Jvm(javaHome, capabilities.feature, capabilities.modular, capabilities.securityManager,
+                        capabilities.enhancedSecurityManager, capabilities.packages);
+            }
+        }
+        final Jvm jvm;
+        Capabilities capabilities = JvmImageInspector.inspect(javaHome, JBossModulesCommandBuilder.OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS);
+        if (capabilities == null) {
+            // Not enough information on disk, launch the JVM
+            capabilities = probe(javaHome);
+        }
+        if (capabilities == null) {
+            // Each check may launch a process, run them concurrently
+            final CompletableFuture<Boolean> modular = CompletableFuture.supplyAsync(() -> isModularJavaHome(javaHome), EXECUTOR);
+            final CompletableFuture<Boolean> securityManager = CompletableFuture.supplyAsync(() -> isSecurityManagerSupportedInJvm(javaHome), EXECUTOR);
+            final boolean enhancedSecurityManager = hasEnhancedSecurityManager(javaHome);
+            // The release file did not describe the version, so the feature version is unknown
+            jvm = new Jvm(javaHome, -1, modular.join(), securityManager.join(), enhancedSecurityManager, Map.of());
+        } else {
+            jvm = new Jvm(javaHome, capabilities.feature, capabilities.modular, capabilities.securityManager,
+                    capabilities.enhancedSecurityManager, capabilities.packages);
+        }
+        if (store != null) {
+            store.write(javaHome, jvm.getCapabilities());
+        }
+        return jvm;
     }
 
     /**
@@ -111,6 +229,15 @@ class Jvm {
         return path;
     }
 
+    /**
+     * The feature version of this JVM, for example {@code 17} for Java 17.
+     *
+     * @return the feature version or {@code -1} if the version could not be determined
+     */
+    public int getFeatureVersion() {
+        return featureVersion;
+    }
+
     /**
      * Indicates whether or not this is a modular JVM.
      *
@@ -138,84 +265,63 @@ class Jvm {
         return enhancedSecurityManager;
     }
 
-    private static boolean isModularJavaHome(final Path javaHome) {
-        final Path jmodsDir = javaHome.resolve("jmods");
-        // If the jmods directory exists we can safely assume this is a modular JDK, note even in a modular JDK this
-        // may not exist.
-        if (Files.isDirectory(jmodsDir)) {
-            return true;
-        }
-        // Next check for a $JAVA_HOME/release file, for a JRE this will not exist
-        final Path releaseFile = javaHome.resolve("release");
-        if (Files.isReadable(releaseFile) && Files.isRegularFile(releaseFile)) {
-            // Read the file and look for a JAVA_VERSION property
-            try (final BufferedReader reader = Files.newBufferedReader(releaseFile, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("JAVA_VERSION=")) {
-                        // Get the version value
-                        final int index = line.indexOf('=');
-                        return isModularJavaVersion(line.substring(index + 1).replace("\"", ""));
-                    }
-                }
-            } catch (IOException ignore) {
-            }
-        }
-        // Final check is to launch a new process with some modular JVM arguments and check the exit code
-        return isModular(javaHome);
+    /**
+     * Checks whether the optional modular argument, e.g. {@code --add-opens=java.base/java.lang=ALL-UNNAMED}, can be
+     * used with this JVM. The result is cached for the lifetime of this JVM descriptor.
+     *
+     * @param optionalModularArgument the argument to check
+     *
+     * @return {@code true} if the argument can be used with this JVM, otherwise {@code false}
+     */
+    boolean isPackageAvailable(final String optionalModularArgument) {
+        return !getAvailablePackages(List.of(optionalModularArgument)).isEmpty();
     }
 
-    private static boolean isModularJavaVersion(final String version) {
-        if (version != null) {
-            try {
-                final String[] versionParts = version.split("\\.");
-                if (versionParts.length == 1) {
-                    return Integer.parseInt(versionParts[0]) >= 9;
-                } else if (versionParts.length > 1) {
-                    // Check the first part and if one, use the second part
-                    if ("1".equals(versionParts[0])) {
-                        return Integer.parseInt(versionParts[2]) >= 9;
-                    }
-                    return Integer.parseInt(versionParts[0]) >= 9;
-                }
-            } catch (Exception ignore) {
+    /**
+     * Returns the optional modular arguments, e.g. {@code --add-opens=java.base/java.lang=ALL-UNNAMED}, which can be
+     * used with this JVM. The results are cached for the lifetime of this JVM descriptor and the
+     * {@link JvmCapabilityStore persistent store} is updated once for all the arguments which had to be checked.
+     *
+     * @param optionalModularArguments the arguments to check
+     *
+     * @return the arguments which can be used with this JVM in the order of the arguments checked
+     */
+    List<String> getAvailablePackages(final Collection<String> optionalModularArguments) {
+        final List<String> result = new ArrayList<>();
+        boolean checked = false;
+        for (String optionalModularArgument : optionalModularArguments) {
+            Boolean available = availablePackages.get(optionalModularArgument);
+            if (available == null) {
+                available = availablePackages.computeIfAbsent(optionalModularArgument, arg -> isPackageAvailable(path, arg));
+                checked = true;
+            }
+            if (available) {
+                result.add(optionalModularArgument);
             }
         }
-        return false;
-    }
-
-    private static boolean isSecurityManagerSupported(final Path javaHome) {
-        // Next check for a $JAVA_HOME/release file, for a JRE this will not exist
-        final Path releaseFile = javaHome.resolve("release");
-        if (Files.isReadable(releaseFile) && Files.isRegularFile(releaseFile)) {
-            // Read the file and look for a JAVA_VERSION property
-            try (final BufferedReader reader = Files.newBufferedReader(releaseFile, StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("JAVA_VERSION=")) {
-                        // Get the version value
-                        final int index = line.indexOf('=');
-                        return isSecurityManagerSupported(line.substring(index + 1).replace("\"", ""));
-                    }
-                }
-            } catch (IOException ignore) {
+        if (checked) {
+            final JvmCapabilityStore store = JvmCapabilityStore.getInstance();
+            if (store != null) {
+                store.write(path, getCapabilities());
             }
         }
-        // Final check is to launch a new process with some modular JVM arguments and check the exit code
-        return isSecurityManagerSupportedInJvm(javaHome);
+        return result;
     }
 
-    private static boolean isSecurityManagerSupported(final String version) {
-        if (version != null) {
-            try {
-                final String[] versionParts = version.split("\\.");
-                if (versionParts.length >= 1) {
-                    return Integer.parseInt(versionParts[0]) < 24;
-                }
-            } catch (Exception ignore) {
-            }
+    private Capabilities getCapabilities() {
+        return new Capabilities(featureVersion, isModular, isSecurityManagerSupported, enhancedSecurityManager, Map.copyOf(availablePackages));
+    }
+
+    private static boolean isModularJavaHome(final Path javaHome) {
+        final Path jmodsDir = javaHome.resolve("jmods");
+        // If the jmods directory exists we can safely assume this is a modular JDK, note even in a modular JDK this
+        // may not exist.
+        if (Files.isDirectory(jmodsDir)) {
+            return true;
         }
-        return false;
+        // The version in the release file was already checked when the JVM was inspected, launch a new process with
+        // some modular JVM arguments and check the exit code
+        return isModular(javaHome);
     }
 
     /**
@@ -233,7 +339,13 @@ class Jvm {
         return checkProcessStatus(cmd);
     }
 
-    static boolean isPackageAvailable(final Path javaHome, final String optionalModularArgument) {
+    private static boolean isPackageAvailable(final Path javaHome, final String optionalModularArgument) {
+        if (javaHome.equals(JAVA_HOME)) {
+            final Boolean available = JvmImageInspector.isAvailableInCurrentJvm(optionalModularArgument);
+            if (available != null) {
+                return available;
+            }
+        }
         final List<String> cmd = new ArrayList<>();
         cmd.add(resolveJavaCommand(javaHome));
         cmd.add(optionalModularArgument);
@@ -271,56 +383,151 @@ class Jvm {
         return checkProcessStatus(cmd);
     }
 
+    /**
+     * Launches the {@link JvmProbe} in the JVM to resolve all the capabilities, including the availability of the
+     * {@linkplain JBossModulesCommandBuilder#OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS optional modular arguments}, with a
+     * single process.
+     * <p>
+     * The probe is first launched with {@code -Djava.security.manager=allow}. A JVM which does not understand the
+     * token, or does not allow a security manager at all, fails to start. In that case the probe is launched again
+     * without the property.
+     * </p>
+     *
+     * @param javaHome the Java home
+     *
+     * @return the capabilities or {@code null} if the probe could not be executed, e.g. the JVM is not modular or is
+     * older than the version this library was compiled for
+     */
+    private static Capabilities probe(final Path javaHome) {
+        final Path location = getProbeLocation();
+        if (location == null) {
+            return null;
+        }
+        final Capabilities capabilities = probe(javaHome, location, true);
+        return capabilities == null ? probe(javaHome, location, false) : capabilities;
+    }
+
+    private static Capabilities probe(final Path javaHome, final Path location, final boolean allowSecurityManager) {
+        final List<String> cmd = new ArrayList<>();
+        cmd.add(resolveJavaCommand(javaHome));
+        if (allowSecurityManager) {
+            cmd.add(JBossModulesCommandBuilder.SECURITY_MANAGER_PROP_WITH_ALLOW_VALUE);
+        }
+        cmd.add("-cp");
+        cmd.add(location.toString());
+        cmd.add(JvmProbe.class.getName());
+        cmd.addAll(JBossModulesCommandBuilder.OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS);
+        final ProcessBuilder builder = new ProcessBuilder(cmd)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = null;
+        try {
+            process = builder.start();
+            if (!process.waitFor(30, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                return null;
+            }
+            final Properties result = new Properties();
+            try (InputStream in = process.getInputStream()) {
+                result.load(in);
+            }
+            if (result.getProperty(JvmProbe.MODULAR) == null) {
+                return null;
+            }
+            final Map<String, Boolean> packages = new HashMap<>();
+            for (String name : result.stringPropertyNames()) {
+                if (name.startsWith(JvmProbe.PACKAGE_PREFIX)) {
+                    packages.put(name.substring(JvmProbe.PACKAGE_PREFIX.length()), Boolean.parseBoolean(result.getProperty(name)));
+                }
+            }
+            return new Capabilities(JvmImageInspector.parseFeatureVersion(result.getProperty(JvmProbe.FEATURE)),
+                    Boolean.parseBoolean(result.getProperty(JvmProbe.MODULAR)),
+                    Boolean.parseBoolean(result.getProperty(JvmProbe.SECURITY_MANAGER)),
+                    Boolean.parseBoolean(result.getProperty(JvmProbe.ENHANCED_SECURITY_MANAGER)),
+                    packages);
+        } catch (IOException | InterruptedException | IllegalArgumentException e) {
+            return null;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static Path getProbeLocation() {
+        try {
+            final CodeSource codeSource = JvmProbe.class.getProtectionDomain().getCodeSource();
+            if (codeSource != null && codeSource.getLocation() != null) {
+                final Path location = Paths.get(codeSource.getLocation().toURI());
+                if (Files.exists(location)) {
+                    return location;
+                }
+            }
+        } catch (SecurityException | URISyntaxException | IllegalArgumentException ignore) {
+        }
+        return null;
+    }
+
     /**
      * Checks the process status.
+     * <p>
+     * The merged output of the process is scanned as it is produced. If a line starts with {@code WARNING:} the
+     * process is killed right away as the result is already known.
+     * </p>
      *
      * @param cmd command to execute
      *
      * @return {@code true} if command was successful, {@code false} if process failed.
      */
     private static boolean checkProcessStatus(final List<String> cmd) {
-        boolean result;
-        final ProcessBuilder builder = new ProcessBuilder(cmd);
+        final ProcessBuilder builder = new ProcessBuilder(cmd)
+                .redirectErrorStream(true);
         Process process = null;
-        Path stdout = null;
         try {
-            // Create a temporary file for stdout
-            stdout = Files.createTempFile("stdout", ".txt");
-            process = builder.redirectErrorStream(true)
-                    .redirectOutput(stdout.toFile()).start();
-
-            if (process.waitFor(30, TimeUnit.SECONDS)) {
-                result = process.exitValue() == 0;
-            } else {
-                result = false;
+            process = builder.start();
+            // Reading the output blocks, kill the process if it does not complete in time which closes the stream
+            final Process p = process;
+            CompletableFuture.delayedExecutor(30, TimeUnit.SECONDS, EXECUTOR).execute(() -> {
+                if (p.isAlive()) {
+                    p.destroyForcibly();
+                }
+            });
+            try (InputStream in = process.getInputStream()) {
+                if (containsWarning(in)) {
+                    return false;
+                }
             }
+            return process.waitFor(30, TimeUnit.SECONDS) && process.exitValue() == 0;
         } catch (IOException | InterruptedException e) {
-            result = false;
+            return false;
         } finally {
             if (process != null && process.isAlive()) {
                 process.destroyForcibly();
             }
-            if (stdout != null) {
-                try {
-                    if (containsWarning(stdout)) {
-                        result = false;
-                    }
-                    Files.deleteIfExists(stdout);
-                } catch (IOException ignore) {
-                }
-            }
         }
-        return result;
     }
 
-    private static boolean containsWarning(final Path logFile) throws IOException {
+    /**
+     * Scans the stream for a line which starts with {@code WARNING:}. Only the first
+     * {@value #MAX_SCANNED_OUTPUT} characters are scanned. The remaining output is discarded, but still read so the
+     * process does not block on a full pipe.
+     *
+     * @param in the stream to scan
+     *
+     * @return {@code true} if a warning was found, otherwise {@code false} once the end of the stream was reached
+     *
+     * @throws IOException if an error occurs reading the stream
+     */
+    static boolean containsWarning(final InputStream in) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        int scanned = 0;
         String line;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(logFile.toFile())))) {
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("WARNING:")) {
-                    return true;
-                }
+        while (scanned < MAX_SCANNED_OUTPUT && (line = reader.readLine()) != null) {
+            if (line.startsWith("WARNING:")) {
+                return true;
             }
+            scanned += line.length() + 1;
+        }
+        while (reader.skip(MAX_SCANNED_OUTPUT) > 0) {
+            // Discard the remaining output
         }
         return false;
     }
@@ -360,4 +567,116 @@ class Jvm {
         }
         return result;
     }
+
+    /**
+     * The size and last modified time of the Java executable and the {@code release} file, and a hash of the content of
+     * the {@code release} file. The {@code release} file is small and hashing it detects an upgrade in place even if
+     * the timestamps of the file system are too coarse to change.
+     */
+    private static class Fingerprint {
+        private final long javaExeSize;
+        private final long javaExeModified;
+        private final long releaseSize;
+        private final long releaseModified;
+        private final int releaseHash;
+
+        private Fingerprint(final long javaExeSize, final long javaExeModified, final long releaseSize, final long releaseModified,
+                            final int releaseHash) {
+            this.javaExeSize = javaExeSize;
+            this.javaExeModified = javaExeModified;
+            this.releaseSize = releaseSize;
+            this.releaseModified = releaseModified;
+            this.releaseHash = releaseHash;
+        }
+
+        static Fingerprint of(final Path javaHome) {
+            final BasicFileAttributes javaExe = readAttributes(javaHome.resolve("bin").resolve(JAVA_EXE));
+            final Path releaseFile = javaHome.resolve("release");
+            final BasicFileAttributes release = readAttributes(releaseFile);
+            return new Fingerprint(
+                    javaExe == null ? -1L : javaExe.size(),
+                    javaExe == null ? -1L : javaExe.lastModifiedTime().toMillis(),
+                    release == null ? -1L : release.size(),
+                    release == null ? -1L : release.lastModifiedTime().toMillis(),
+                    release == null ? 0 : hash(releaseFile)
+            );
+        }
+
+        private static int hash(final Path file) {
+            try {
+                return Arrays.hashCode(Files.readAllBytes(file));
+            } catch (IOException ignore) {
+                return 0;
+            }
+        }
+
+        private static BasicFileAttributes readAttributes(final Path file) {
+            try {
+                return Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException ignore) {
+                return null;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(javaExeSize, javaExeModified, releaseSize, releaseModified, releaseHash);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            final Fingerprint other = (Fingerprint) obj;
+            return javaExeSize == other.javaExeSize && javaExeModified == other.javaExeModified
+                    && releaseSize == other.releaseSize && releaseModified == other.releaseModified
+                    && releaseHash == other.releaseHash;
+        }
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wildfly-launcher-jvm-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class CachedJvm {
+        private final Fingerprint fingerprint;
+        // Completed by the thread which resolves the JVM, other threads wait for it
+        private final CompletableFuture<Jvm> jvm;
+
+        private CachedJvm(final Fingerprint fingerprint) {
+            this.fingerprint = fingerprint;
+            this.jvm = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * The probed capabilities of a JVM.
+     */
+    static class Capabilities {
+        final int feature;
+        final boolean modular;
+        final boolean securityManager;
+        final boolean enhancedSecurityManager;
+        final Map<String, Boolean> packages;
+
+        Capabilities(final int feature, final boolean modular, final boolean securityManager,
+                     final boolean enhancedSecurityManager, final Map<String, Boolean> packages) {
+            this.feature = feature;
+            this.modular = modular;
+            this.securityManager = securityManager;
+            this.enhancedSecurityManager = enhancedSecurityManager;
+            this.packages = packages;
+        }
+    }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An optional persistent store for the capabilities of a {@link Jvm}. The store allows the capabilities of a Java
+ * home, which are expensive to probe, to be shared across launcher invocations in different processes.
+ * <p>
+ * The store is only enabled if the {@code launcher.jvm.cache.dir} system property is set to a directory. Each entry is
+ * keyed by a fingerprint of the Java home which includes the path, a hash of the {@code release} file and the size and
+ * modification time of the {@code bin/java} executable. Concurrent writers are serialized with a file lock.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class JvmCapabilityStore {
+    static final String CACHE_DIR_PROPERTY = "launcher.jvm.cache.dir";
+    private static final int VERSION = 2;
+    private static final String FILE_NAME = "jvm-capabilities-v" + VERSION + ".properties";
+    private static final String LOCK_FILE_NAME = FILE_NAME + ".lock";
+    private static final String PACKAGE_PREFIX = "package.";
+    // File locks are held on behalf of the whole JVM, in process access needs to be serialized separately
+    private static final Object LOCK = new Object();
+
+    private final Path file;
+    private final Path lockFile;
+
+    private JvmCapabilityStore(final Path dir) {
+        this.file = dir.resolve(FILE_NAME);
+        this.lockFile = dir.resolve(LOCK_FILE_NAME);
+    }
+
+    /**
+     * Returns the store for the configured directory.
+     *
+     * @return the store or {@code null} if the store has not been enabled
+     */
+    static JvmCapabilityStore getInstance() {
+        final String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+        return new JvmCapabilityStore(Paths.get(dir));
+    }
+
+    /**
+     * Reads the capabilities for the Java home.
+     *
+     * @param javaHome the normalized Java home
+     *
+     * @return the capabilities or {@code null} if the Java home is not in the store or the store could not be read
+     */
+    Jvm.Capabilities read(final Path javaHome) {
+        if (Files.notExists(file)) {
+            return null;
+        }
+        try {
+            final String key = fingerprint(javaHome);
+            final Properties properties = withLock(true, this::load);
+            if (properties.getProperty(key + ".modular") == null) {
+                return null;
+            }
+            final Map<String, Boolean> packages = new HashMap<>();
+            final String packagePrefix = key + "." + PACKAGE_PREFIX;
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(packagePrefix)) {
+                    packages.put(name.substring(packagePrefix.length()), Boolean.parseBoolean(properties.getProperty(name)));
+                }
+            }
+            return new Jvm.Capabilities(
+                    JvmImageInspector.parseFeatureVersion(properties.getProperty(key + ".feature")),
+                    Boolean.parseBoolean(properties.getProperty(key + ".modular")),
+                    Boolean.parseBoolean(properties.getProperty(key + ".securityManager")),
+                    Boolean.parseBoolean(properties.getProperty(key + ".enhancedSecurityManager")),
+                    packages
+            );
+        } catch (IOException ignore) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the capabilities for the Java home to the store. Failures to write are ignored as the store is only an
+     * optimization.
+     * <p>
+     * The file is only rewritten if the capabilities changed. When it is rewritten, entries of Java homes which no
+     * longer exist or have changed since they were written are removed.
+     * </p>
+     *
+     * @param javaHome     the normalized Java home
+     * @param capabilities the capabilities to write
+     */
+    void write(final Path javaHome, final Jvm.Capabilities capabilities) {
+        try {
+            final String key = fingerprint(javaHome);
+            withLock(false, () -> {
+                // Re-read the file while holding the lock as another process may have updated it
+                final Properties properties = load();
+                boolean changed = set(properties, "version", Integer.toString(VERSION));
+                changed |= set(properties, key + ".path", javaHome.toString());
+                changed |= set(properties, key + ".feature", Integer.toString(capabilities.feature));
+                changed |= set(properties, key + ".modular", Boolean.toString(capabilities.modular));
+                changed |= set(properties, key + ".securityManager", Boolean.toString(capabilities.securityManager));
+                changed |= set(properties, key + ".enhancedSecurityManager", Boolean.toString(capabilities.enhancedSecurityManager));
+                for (Map.Entry<String, Boolean> entry : capabilities.packages.entrySet()) {
+                    changed |= set(properties, key + "." + PACKAGE_PREFIX + entry.getKey(), Boolean.toString(entry.getValue()));
+                }
+                if (!changed) {
+                    return null;
+                }
+                removeStaleEntries(properties, key);
+                final Path tmp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+                try {
+                    try (OutputStream out = Files.newOutputStream(tmp)) {
+                        properties.store(out, "WildFly Launcher JVM capabilities");
+                    }
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                return null;
+            });
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static boolean set(final Properties properties, final String name, final String value) {
+        return !value.equals(properties.setProperty(name, value));
+    }
+
+    /**
+     * Removes the entries whose fingerprint no longer matches the Java home they were written for. This includes
+     * Java homes which were updated or deleted.
+     */
+    private static void removeStaleEntries(final Properties properties, final String currentKey) {
+        final Set<String> stale = new HashSet<>();
+        for (String name : properties.stringPropertyNames()) {
+            final int index = name.indexOf('.');
+            if (index < 0) {
+                continue;
+            }
+            final String key = name.substring(0, index);
+            if (key.equals(currentKey) || stale.contains(key)) {
+                continue;
+            }
+            final String path = properties.getProperty(key + ".path");
+            try {
+                if (path == null || !key.equals(fingerprint(Paths.get(path)))) {
+                    stale.add(key);
+                }
+            } catch (IOException | InvalidPathException | SecurityException ignore) {
+                stale.add(key);
+            }
+        }
+        if (!stale.isEmpty()) {
+            properties.keySet().removeIf(name -> {
+                final String value = String.valueOf(name);
+                final int index = value.indexOf('.');
+                return index > 0 && stale.contains(value.substring(0, index));
+            });
+        }
+    }
+
+    private Properties load() throws IOException {
+        final Properties properties = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            if (!Integer.toString(VERSION).equals(properties.getProperty("version"))) {
+                properties.clear();
+            }
+        }
+        return properties;
+    }
+
+    private <T> T withLock(final boolean shared, final IOAction<T> action) throws IOException {
+        synchronized (LOCK) {
+            Files.createDirectories(lockFile.getParent());
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final FileLock lock = channel.lock(0L, Long.MAX_VALUE, shared);
+                try {
+                    return action.execute();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static String fingerprint(final Path javaHome) throws IOException {
+        final MessageDigest digest = createDigest();
+        digest.update(javaHome.toString().getBytes(StandardCharsets.UTF_8));
+        final Path releaseFile = javaHome.resolve("release");
+        if (Files.isRegularFile(releaseFile)) {
+            digest.update(Files.readAllBytes(releaseFile));
+        }
+        final Path javaExe = javaHome.resolve("bin").resolve(Environment.isWindows() ? "java.exe" : "java");
+        if (Files.exists(javaExe)) {
+            final BasicFileAttributes attributes = Files.readAttributes(javaExe, BasicFileAttributes.class);
+            digest.update((attributes.size() + ":" + attributes.lastModifiedTime().toMillis()).getBytes(StandardCharsets.UTF_8));
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(final byte[] bytes) {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    private interface IOAction<T> {
+        T execute() throws IOException;
+    }
+}
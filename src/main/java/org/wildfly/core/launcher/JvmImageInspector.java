@@ -0,0 +1,149 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves the capabilities of a JVM from the files in the Java home without launching a process.
+ * <p>
+ * The feature version and the system modules are read from the {@code $JAVA_HOME/release} file. Whether a package
+ * exists in a module is read from the {@code $JAVA_HOME/lib/modules} image using the {@code jrt:/} file system of the
+ * Java home.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class JvmImageInspector {
+
+    private JvmImageInspector() {
+    }
+
+    /**
+     * Inspects the Java home.
+     *
+     * @param javaHome                 the Java home to inspect
+     * @param optionalModularArguments the optional modular arguments to check the availability of
+     *
+     * @return the capabilities or {@code null} if the Java home does not describe its version
+     */
+    static Jvm.Capabilities inspect(final Path javaHome, final Collection<String> optionalModularArguments) {
+        final Map<String, String> release = readRelease(javaHome);
+        final int feature = parseFeatureVersion(release.get("JAVA_VERSION"));
+        if (feature < 1) {
+            return null;
+        }
+        final boolean securityManager = feature < 24;
+        if (feature < 9) {
+            return new Jvm.Capabilities(feature, false, securityManager, false, Map.of());
+        }
+        final Map<String, Boolean> packages = new HashMap<>();
+        if (!optionalModularArguments.isEmpty()) {
+            final Set<String> modules = parseModules(release.get("MODULES"));
+            try (FileSystem fs = FileSystems.newFileSystem(URI.create("jrt:/"), Map.of("java.home", javaHome.toString()))) {
+                for (String arg : optionalModularArguments) {
+                    final Boolean available = JvmProbe.isAvailable(arg,
+                            module -> modules == null ? Files.isDirectory(fs.getPath("/modules", module)) : modules.contains(module),
+                            (module, pkg) -> Files.isDirectory(fs.getPath("/modules", module, pkg.replace('.', '/'))));
+                    if (available != null) {
+                        packages.put(arg, available);
+                    }
+                }
+            } catch (IOException | RuntimeException ignore) {
+                // The image could not be read, the packages will be checked when required
+            }
+        }
+        return new Jvm.Capabilities(feature, true, securityManager, feature >= 12 && securityManager, packages);
+    }
+
+    /**
+     * Checks whether the optional modular argument can be used with the currently running JVM.
+     *
+     * @param optionalModularArgument the argument to check
+     *
+     * @return {@code true} if the argument can be used, {@code false} if it cannot or {@code null} if unknown
+     */
+    static Boolean isAvailableInCurrentJvm(final String optionalModularArgument) {
+        final ModuleFinder finder = ModuleFinder.ofSystem();
+        return JvmProbe.isAvailable(optionalModularArgument, module -> finder.find(module).isPresent(),
+                (module, pkg) -> {
+                    final Optional<ModuleReference> reference = finder.find(module);
+                    return reference.isPresent() && reference.get().descriptor().packages().contains(pkg);
+                });
+    }
+
+    /**
+     * Parses the feature version from a {@code JAVA_VERSION} value, for example {@code 1.8.0_432} is {@code 8} and
+     * {@code 17.0.1} is {@code 17}.
+     *
+     * @param version the version to parse
+     *
+     * @return the feature version or {@code -1} if the version could not be parsed
+     */
+    static int parseFeatureVersion(final String version) {
+        if (version != null && !version.isBlank()) {
+            try {
+                final String[] versionParts = version.split("[._+-]");
+                if ("1".equals(versionParts[0]) && versionParts.length > 1) {
+                    return Integer.parseInt(versionParts[1]);
+                }
+                return Integer.parseInt(versionParts[0]);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the key/value pairs from the {@code release} file with the quotes removed from the values.
+     *
+     * @param javaHome the Java home
+     *
+     * @return the values from the release file or an empty map if the file could not be read
+     */
+    static Map<String, String> readRelease(final Path javaHome) {
+        final Path releaseFile = javaHome.resolve("release");
+        if (!Files.isRegularFile(releaseFile)) {
+            return Map.of();
+        }
+        final Map<String, String> result = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(releaseFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int index = line.indexOf('=');
+                if (index > 0) {
+                    result.put(line.substring(0, index).trim(), line.substring(index + 1).trim().replace("\"", ""));
+                }
+            }
+        } catch (IOException ignore) {
+            return Map.of();
+        }
+        return result;
+    }
+
+    private static Set<String> parseModules(final String modules) {
+        if (modules == null || modules.isBlank()) {
+            return null;
+        }
+        return new HashSet<>(Arrays.asList(modules.trim().split("\\s+")));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReference;
+import java.security.Permission;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * An entry point launched in a target JVM to describe its capabilities in a single process.
+ * <p>
+ * The arguments are optional modular JVM arguments, e.g. {@code --add-opens=java.base/java.lang=ALL-UNNAMED}. The
+ * result is written to {@code stdout} in a {@link Properties} format and includes the feature version, the names of the
+ * system modules, the security manager support and whether the package for each argument exists.
+ * </p>
+ * <p>
+ * The security manager support is tested by installing, and removing, a security manager. If the probe was launched
+ * with {@code -Djava.security.manager=allow} and a security manager can be installed, the enhanced security manager
+ * tokens are supported as well.
+ * </p>
+ * <p>
+ * <strong>Note:</strong> This class is launched in a foreign JVM with only this library on the class path. It must not
+ * depend on any other types.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class JvmProbe {
+    static final String FEATURE = "feature";
+    static final String MODULES = "modules";
+    static final String MODULAR = "modular";
+    static final String SECURITY_MANAGER = "securityManager";
+    static final String ENHANCED_SECURITY_MANAGER = "enhancedSecurityManager";
+    static final String PACKAGE_PREFIX = "package.";
+
+    private JvmProbe() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final int feature = Runtime.version().feature();
+        final Map<String, Set<String>> modules = new TreeMap<>();
+        for (ModuleReference reference : ModuleFinder.ofSystem().findAll()) {
+            modules.put(reference.descriptor().name(), reference.descriptor().packages());
+        }
+        final Properties result = new Properties();
+        result.setProperty(FEATURE, Integer.toString(feature));
+        result.setProperty(MODULAR, Boolean.toString(!modules.isEmpty()));
+        result.setProperty(MODULES, String.join(",", new TreeSet<>(modules.keySet())));
+        final boolean securityManager = isSecurityManagerSupported();
+        result.setProperty(SECURITY_MANAGER, Boolean.toString(securityManager));
+        result.setProperty(ENHANCED_SECURITY_MANAGER, Boolean.toString(securityManager
+                && "allow".equals(System.getProperty("java.security.manager"))));
+        for (String arg : args) {
+            final Boolean available = isAvailable(arg, modules::containsKey,
+                    (module, pkg) -> modules.getOrDefault(module, Set.of()).contains(pkg));
+            if (available != null) {
+                result.setProperty(PACKAGE_PREFIX + arg, available.toString());
+            }
+        }
+        result.store(System.out, null);
+        System.out.flush();
+    }
+
+    /**
+     * Checks whether a security manager can be installed in this JVM. The security manager installed permits
+     * everything, which allows it to be removed again.
+     *
+     * @return {@code true} if a security manager could be installed, otherwise {@code false}
+     */
+    @SuppressWarnings("removal")
+    private static boolean isSecurityManagerSupported() {
+        if (System.getSecurityManager() != null) {
+            return true;
+        }
+        try {
+            System.setSecurityManager(new SecurityManager() {
+                @Override
+                public void checkPermission(final Permission perm) {
+                }
+
+                @Override
+                public void checkPermission(final Permission perm, final Object context) {
+                }
+            });
+            System.setSecurityManager(null);
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether the module, and package if required, of a modular argument exist.
+     *
+     * @param arg           the argument to check
+     * @param moduleExists  checks whether a module exists
+     * @param packageExists checks whether a package exists in a module
+     *
+     * @return {@code true} if the module and package exist, {@code false} if they don't exist or {@code null} if the
+     * argument could not be parsed
+     */
+    static Boolean isAvailable(final String arg, final Predicate<String> moduleExists, final BiPredicate<String, String> packageExists) {
+        final int index = arg.indexOf('=');
+        if (index < 0) {
+            return null;
+        }
+        final String option = arg.substring(0, index);
+        final String value = arg.substring(index + 1);
+        switch (option) {
+            case "--add-modules":
+                return moduleExists.test(value);
+            case "--add-exports":
+            case "--add-opens": {
+                // Format is module/package=target-module(,target-module)*
+                final int slash = value.indexOf('/');
+                final int equals = value.indexOf('=', slash);
+                if (slash < 0 || equals < 0) {
+                    return null;
+                }
+                final String module = value.substring(0, slash);
+                return moduleExists.test(module) && packageExists.test(module, value.substring(slash + 1, equals));
+            }
+            default:
+                return null;
+        }
+    }
+}
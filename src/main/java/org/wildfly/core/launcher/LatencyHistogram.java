@@ -0,0 +1,145 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies. The latencies are recorded in buckets which double in size starting with a bucket for
+ * latencies up to one microsecond. Recording a latency is thread safe and does not allocate.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class LatencyHistogram {
+    // Bucket n holds latencies up to 2^n microseconds, the last bucket holds everything larger
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong total;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        total = new AtomicLong();
+        min = new AtomicLong(Long.MAX_VALUE);
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void record(final long nanos) {
+        final long value = Math.max(0L, nanos);
+        final long micros = (value + 999L) / 1000L;
+        final int bucket = micros <= 1L ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1L));
+        counts.incrementAndGet(bucket);
+        total.addAndGet(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * The number of latencies recorded.
+     *
+     * @return the number of latencies
+     */
+    public long getCount() {
+        long result = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            result += counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * The smallest latency recorded.
+     *
+     * @return the smallest latency or {@link Duration#ZERO} if no latencies were recorded
+     */
+    public Duration getMin() {
+        final long value = min.get();
+        return value == Long.MAX_VALUE ? Duration.ZERO : Duration.ofNanos(value);
+    }
+
+    /**
+     * The largest latency recorded.
+     *
+     * @return the largest latency or {@link Duration#ZERO} if no latencies were recorded
+     */
+    public Duration getMax() {
+        return Duration.ofNanos(max.get());
+    }
+
+    /**
+     * The average of the latencies recorded.
+     *
+     * @return the average latency or {@link Duration#ZERO} if no latencies were recorded
+     */
+    public Duration getMean() {
+        final long count = getCount();
+        return count == 0L ? Duration.ZERO : Duration.ofNanos(total.get() / count);
+    }
+
+    /**
+     * Returns the upper bound of the bucket which contains the percentile. The result is never larger than the
+     * {@linkplain #getMax() largest} latency.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     *
+     * @return the upper bound of the bucket for the percentile or {@link Duration#ZERO} if no latencies were recorded
+     */
+    public Duration getPercentile(final double percentile) {
+        final long count = getCount();
+        if (count == 0L) {
+            return Duration.ZERO;
+        }
+        final long target = Math.max(1L, (long) Math.ceil(count * (Math.min(100d, Math.max(0d, percentile)) / 100d)));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                final Duration max = getMax();
+                return i == BUCKETS - 1 || upperBound(i).compareTo(max) > 0 ? max : upperBound(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the number of latencies for each bucket which contains at least one latency. The key is the upper bound
+     * of the bucket.
+     *
+     * @return the counts of the buckets
+     */
+    public Map<Duration, Long> getBuckets() {
+        final Map<Duration, Long> result = new TreeMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = counts.get(i);
+            if (count > 0L) {
+                result.put(i == BUCKETS - 1 ? getMax() : upperBound(i), count);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Duration upperBound(final int bucket) {
+        return Duration.ofNanos((1L << bucket) * 1000L);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram[count=" + getCount() + ", min=" + getMin() + ", mean=" + getMean() + ", p50=" +
+                getPercentile(50d) + ", p99=" + getPercentile(99d) + ", max=" + getMax() + "]";
+    }
+}
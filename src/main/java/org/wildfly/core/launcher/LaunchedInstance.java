@@ -0,0 +1,136 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * An instance launched by the {@link BatchLauncher}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public final class LaunchedInstance {
+
+    private final int index;
+    private final int portOffset;
+    private final CommandBuilder builder;
+    private final List<String> serverArguments;
+    private volatile Process process;
+    private volatile Duration queuedTime;
+    private volatile Duration startupTime;
+    private volatile boolean ready;
+    private volatile Throwable failure;
+
+    LaunchedInstance(final int index, final int portOffset, final CommandBuilder builder, final List<String> serverArguments) {
+        this.index = index;
+        this.portOffset = portOffset;
+        this.builder = builder;
+        this.serverArguments = serverArguments;
+    }
+
+    /**
+     * The position of the instance in the batch.
+     *
+     * @return the index of the instance
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * The port offset assigned to the instance.
+     *
+     * @return the port offset or {@code 0} if no port offset was assigned
+     */
+    public int getPortOffset() {
+        return portOffset;
+    }
+
+    /**
+     * The command builder used to launch the instance.
+     *
+     * @return the command builder
+     */
+    public CommandBuilder getCommandBuilder() {
+        return builder;
+    }
+
+    /**
+     * The server arguments the batch launcher passes to the instance in addition to the arguments of the command
+     * builder, for example the assigned port offset. The command builder itself is not changed.
+     *
+     * @return the additional server arguments
+     */
+    List<String> getServerArguments() {
+        return serverArguments;
+    }
+
+    /**
+     * The launched process.
+     *
+     * @return the process or {@code null} if the process could not be launched
+     */
+    public Process getProcess() {
+        return process;
+    }
+
+    /**
+     * Indicates whether the instance was launched and passed the readiness check.
+     *
+     * @return {@code true} if the instance is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * The error which occurred launching the instance or checking whether it was ready.
+     *
+     * @return the failure or {@code null} if no error occurred
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * The time the instance waited for a free launch slot before it was launched.
+     *
+     * @return the time waited or {@code null} if the instance was not launched
+     */
+    public Duration getQueuedTime() {
+        return queuedTime;
+    }
+
+    /**
+     * The time between launching the process and the instance passing the readiness check.
+     *
+     * @return the startup time or {@code null} if the instance is not ready
+     */
+    public Duration getStartupTime() {
+        return startupTime;
+    }
+
+    void launched(final Process process, final Duration queuedTime) {
+        this.process = process;
+        this.queuedTime = queuedTime;
+    }
+
+    void ready(final Duration startupTime) {
+        this.startupTime = startupTime;
+        this.ready = true;
+    }
+
+    void failed(final Throwable failure) {
+        this.failure = failure;
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchedInstance[index=" + index + ", portOffset=" + portOffset + ", ready=" + ready +
+                ", startupTime=" + startupTime + "]";
+    }
+}
@@ -9,9 +9,13 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.ProcessBuilder.Redirect;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.wildfly.core.launcher.logger.LauncherMessages;
+
 /**
  * Builds a {@link java.lang.Process process} to launch a standalone or domain server based on the {@link
  * org.wildfly.core.launcher.CommandBuilder command builder}.
@@ -30,6 +34,10 @@ public class Launcher {
     private Redirect errorDestination;
     private File workingDirectory;
     private final Map<String, String> env;
+    private Path argumentFileDirectory;
+    private OutputSink outputSink;
+    private OutputSink errorSink;
+    private final List<String> serverArguments;
 
     /**
      * Creates a new launcher.
@@ -42,6 +50,7 @@ public class Launcher {
         outputDestination = null;
         errorDestination = null;
         env = new HashMap<>();
+        serverArguments = new ArrayList<>();
     }
 
     /**
@@ -63,6 +72,8 @@ public class Launcher {
     public Launcher inherit() {
         outputDestination = Redirect.INHERIT;
         errorDestination = Redirect.INHERIT;
+        outputSink = null;
+        errorSink = null;
         return this;
     }
 
@@ -91,6 +102,7 @@ public class Launcher {
      */
     public Launcher redirectOutput(final File file) {
         outputDestination = Redirect.to(file);
+        outputSink = null;
         return this;
     }
 
@@ -118,6 +130,29 @@ public class Launcher {
      */
     public Launcher redirectOutput(final Redirect destination) {
         outputDestination = destination;
+        outputSink = null;
+        return this;
+    }
+
+    /**
+     * Delivers the output of the process to the sink. This replaces any previous {@linkplain #redirectOutput(Redirect)
+     * redirect} of the output.
+     * <p>
+     * The output is read by the launcher so the process does not block on a full pipe. The streams are polled from
+     * virtual threads on Java 21 or higher, otherwise from a small pool of threads shared by all processes. The
+     * {@linkplain Process#getInputStream() input stream} of the process must not be read by the caller.
+     * </p>
+     *
+     * @param sink the sink to deliver the output to
+     *
+     * @return the launcher
+     */
+    public Launcher consumeOutput(final OutputSink sink) {
+        if (sink == null) {
+            throw LauncherMessages.MESSAGES.nullParam("sink");
+        }
+        outputDestination = null;
+        outputSink = sink;
         return this;
     }
 
@@ -132,6 +167,7 @@ public class Launcher {
      */
     public Launcher redirectError(final File file) {
         errorDestination = Redirect.to(file);
+        errorSink = null;
         return this;
     }
 
@@ -147,6 +183,28 @@ public class Launcher {
      */
     public Launcher redirectError(final Redirect destination) {
         errorDestination = destination;
+        errorSink = null;
+        return this;
+    }
+
+    /**
+     * Delivers the error stream of the process to the sink. This replaces any previous
+     * {@linkplain #redirectError(Redirect) redirect} of the error stream. If the
+     * {@linkplain #setRedirectErrorStream(boolean) error stream is redirected} to the output stream, the sink is not
+     * used.
+     *
+     * @param sink the sink to deliver the error stream to
+     *
+     * @return the launcher
+     *
+     * @see #consumeOutput(OutputSink)
+     */
+    public Launcher consumeError(final OutputSink sink) {
+        if (sink == null) {
+            throw LauncherMessages.MESSAGES.nullParam("sink");
+        }
+        errorDestination = null;
+        errorSink = sink;
         return this;
     }
 
@@ -226,6 +284,37 @@ public class Launcher {
         return this;
     }
 
+    /**
+     * Sets the directory to write a Java argument file, {@code @argfile}, to. If set, the arguments of the command are
+     * written to the file and only the file is passed on the command line of the process. This avoids the limits
+     * some operating systems place on the length of a command line.
+     * <p>
+     * The name of the file is a hash of the arguments, a file is reused if the arguments have not changed. Argument
+     * files are only supported with Java 9 or higher, for older JVM's the arguments are passed on the command line.
+     * </p>
+     *
+     * @param dir the directory for the argument files or {@code null} to pass the arguments on the command line
+     *
+     * @return the launcher
+     */
+    public Launcher setArgumentFileDirectory(final Path dir) {
+        argumentFileDirectory = dir == null ? null : dir.toAbsolutePath().normalize();
+        return this;
+    }
+
+    /**
+     * Adds an argument passed to the server in addition to the arguments of the builder. The builder is not changed.
+     * The server arguments are the last arguments of each builder, the argument is added to the end of the command.
+     *
+     * @param arg the server argument
+     *
+     * @return the launcher
+     */
+    Launcher addServerArgument(final String arg) {
+        serverArguments.add(arg);
+        return this;
+    }
+
     /**
      * Launches a new process based on the commands from the {@link org.wildfly.core.launcher.CommandBuilder builder}.
      *
@@ -234,20 +323,131 @@ public class Launcher {
      * @throws IOException if an error occurs launching the process
      */
     public Process launch() throws IOException {
-        final ProcessBuilder processBuilder = new ProcessBuilder(builder.build());
-        if (outputDestination != null) {
-            processBuilder.redirectOutput(outputDestination);
+        List<String> command = new ArrayList<>(builder.build());
+        // The install directory of a bootable JAR is leased for the lifetime of the process
+        final BootableJarCache.Lease lease = builder instanceof BootableJarCommandBuilder ?
+                ((BootableJarCommandBuilder) builder).leaseInstallDir() : null;
+        final List<ClassDataSharing.Dump> dumps = new ArrayList<>();
+        final Process process;
+        try {
+            command.addAll(serverArguments);
+            if (lease != null) {
+                command.add("--install-dir=" + lease.getInstallDir());
+            }
+            for (ClassDataSharing.Archive archive : getClassDataSharingArchives()) {
+                final ClassDataSharing.Dump dump = archive.prepare(command);
+                if (dump != null) {
+                    dumps.add(dump);
+                }
+            }
+            if (argumentFileDirectory != null && ArgumentFile.isSupported(getJvm(command), command)) {
+                command = ArgumentFile.create(argumentFileDirectory, command);
+            }
+            final ProcessBuilder processBuilder = new ProcessBuilder(command);
+            if (outputDestination != null) {
+                processBuilder.redirectOutput(outputDestination);
+            }
+            if (errorDestination != null) {
+                processBuilder.redirectError(errorDestination);
+            }
+            if (workingDirectory != null) {
+                processBuilder.directory(workingDirectory);
+            }
+            if (!env.isEmpty()) {
+                processBuilder.environment().putAll(env);
+            }
+            processBuilder.redirectErrorStream(redirectErrorStream);
+            process = processBuilder.start();
+        } catch (IOException | RuntimeException e) {
+            dumps.forEach(ClassDataSharing.Dump::abort);
+            if (lease != null) {
+                lease.close();
+            }
+            throw e;
+        }
+        if (lease != null || !dumps.isEmpty()) {
+            process.onExit().whenComplete((p, error) -> {
+                // The archives are dumped when the process exits
+                dumps.forEach(ClassDataSharing.Dump::complete);
+                if (lease != null) {
+                    lease.close();
+                }
+            });
         }
-        if (errorDestination != null) {
-            processBuilder.redirectError(errorDestination);
+        if (outputSink != null) {
+            OutputPump.start(process, process.getInputStream(), outputSink);
         }
-        if (workingDirectory != null) {
-            processBuilder.directory(workingDirectory);
+        if (errorSink != null && !redirectErrorStream) {
+            OutputPump.start(process, process.getErrorStream(), errorSink);
+        }
+        return process;
+    }
+
+    /**
+     * Dumps the {@linkplain FlightRecording flight recording} of the process, and its descendants, with {@code jcmd}
+     * of the Java home of the builder. This should be invoked before the process is
+     * {@linkplain ProcessHelper#destroyProcess(Process) destroyed} as a process which is forcibly killed cannot write
+     * its recording.
+     * <p>
+     * If no recording was set on the builder, or the Java home does not provide {@code jcmd}, nothing is dumped.
+     * </p>
+     *
+     * @param process the process launched by this launcher
+     *
+     * @return the files the recordings were written to
+     *
+     * @throws IOException          if an error occurs executing {@code jcmd}
+     * @throws InterruptedException if the current thread was interrupted while waiting for {@code jcmd}
+     */
+    public List<Path> dumpFlightRecording(final Process process) throws IOException, InterruptedException {
+        if (process == null) {
+            throw LauncherMessages.MESSAGES.nullParam("process");
+        }
+        if (builder instanceof AbstractCommandBuilder) {
+            final AbstractCommandBuilder<?> commandBuilder = (AbstractCommandBuilder<?>) builder;
+            if (commandBuilder.getFlightRecording() != null) {
+                return commandBuilder.getFlightRecording().dump(process.toHandle(), commandBuilder.getJavaHome(),
+                        commandBuilder.getLogDirectory());
+            }
+        } else if (builder instanceof BootableJarCommandBuilder) {
+            final BootableJarCommandBuilder commandBuilder = (BootableJarCommandBuilder) builder;
+            if (commandBuilder.getFlightRecording() != null) {
+                return commandBuilder.getFlightRecording().dump(process.toHandle(), commandBuilder.getJavaHome(),
+                        commandBuilder.getFlightRecordingDirectory());
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns the JVM the builder resolved for the command. For other builders the current JVM is returned if the
+     * command launches it.
+     *
+     * @param command the command to launch
+     *
+     * @return the JVM or {@code null} if it is not known
+     */
+    private Jvm getJvm(final List<String> command) {
+        if (builder instanceof JBossModulesCommandBuilder) {
+            return ((JBossModulesCommandBuilder) builder).environment.getJvm();
+        }
+        if (builder instanceof BootableJarCommandBuilder) {
+            return ((BootableJarCommandBuilder) builder).getJvm();
+        }
+        if (builder instanceof CliCommandBuilder) {
+            return ((CliCommandBuilder) builder).getJvm();
+        }
+        final Jvm current = Jvm.current();
+        return !command.isEmpty() && current.getCommand().equals(command.get(0)) ? current : null;
+    }
+
+    private List<ClassDataSharing.Archive> getClassDataSharingArchives() {
+        if (builder instanceof AbstractCommandBuilder) {
+            return ((AbstractCommandBuilder<?>) builder).getClassDataSharingArchives();
         }
-        if (!env.isEmpty()) {
-            processBuilder.environment().putAll(env);
+        if (builder instanceof BootableJarCommandBuilder) {
+            return ((BootableJarCommandBuilder) builder).getClassDataSharingArchives();
         }
-        processBuilder.redirectErrorStream(redirectErrorStream);
-        return processBuilder.start();
+        return List.of();
     }
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.wildfly.core.launcher.Arguments.Argument;
+
+/**
+ * A readiness check which waits until the management port of a server accepts connections.
+ * <p>
+ * The address is resolved from the arguments of the command builder. The host is the
+ * {@linkplain AbstractCommandBuilder#setBindAddressHint(String, String) management bind address hint}, or the
+ * {@code jboss.bind.address.management} system property, and defaults to {@code 127.0.0.1}. The port is the
+ * {@code jboss.management.http.port} system property, which defaults to {@code 9990}, plus the
+ * {@code jboss.socket.binding.port-offset} for a standalone server.
+ * </p>
+ * <p>
+ * Connections are attempted with a non-blocking connect. The delay between attempts doubles, with a random jitter, up
+ * to the {@linkplain #setBackoff(long, long, TimeUnit) maximum delay}. The latency of each connection attempt and the
+ * time until each instance was ready are recorded in histograms.
+ * </p>
+ * <p>
+ * Note that the management port accepts connections near the end of the boot, but possibly before all deployments have
+ * been started.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class ManagementPortReadinessCheck implements ReadinessCheck {
+
+    static final String DEFAULT_HOST = "127.0.0.1";
+    static final int DEFAULT_PORT = 9990;
+    private static final String BIND_ADDRESS_ARG = "-bmanagement";
+    private static final String BIND_ADDRESS_PROPERTY = "jboss.bind.address.management";
+    private static final String PORT_PROPERTY = "jboss.management.http.port";
+
+    private final InetSocketAddress address;
+    private final LatencyHistogram connectLatencies;
+    private final LatencyHistogram readyLatencies;
+    private long initialDelay;
+    private long maxDelay;
+    private long connectTimeout;
+
+    private ManagementPortReadinessCheck(final InetSocketAddress address) {
+        this.address = address;
+        connectLatencies = new LatencyHistogram();
+        readyLatencies = new LatencyHistogram();
+        initialDelay = TimeUnit.MILLISECONDS.toNanos(10L);
+        maxDelay = TimeUnit.SECONDS.toNanos(1L);
+        connectTimeout = TimeUnit.SECONDS.toNanos(1L);
+    }
+
+    /**
+     * Creates a check which resolves the management address from the command builder of each launched instance. This
+     * is used with the {@link BatchLauncher}.
+     *
+     * @return a new readiness check
+     */
+    public static ManagementPortReadinessCheck create() {
+        return new ManagementPortReadinessCheck(null);
+    }
+
+    /**
+     * Creates a check for the management address resolved from the command builder.
+     *
+     * @param builder the command builder used to launch the server
+     *
+     * @return a new readiness check
+     */
+    public static ManagementPortReadinessCheck of(final CommandBuilder builder) {
+        return new ManagementPortReadinessCheck(resolveAddress(builder));
+    }
+
+    /**
+     * Creates a check for the management address.
+     *
+     * @param host the management host
+     * @param port the management port
+     *
+     * @return a new readiness check
+     */
+    public static ManagementPortReadinessCheck of(final String host, final int port) {
+        return new ManagementPortReadinessCheck(createAddress(host, port));
+    }
+
+    /**
+     * Sets the delay after the first failed connection attempt and the maximum delay between attempts. The default is
+     * 10 milliseconds initially and a maximum of 1 second.
+     *
+     * @param initialDelay the delay after the first attempt
+     * @param maxDelay     the maximum delay between attempts
+     * @param unit         the unit of the delays
+     *
+     * @return this check
+     */
+    public ManagementPortReadinessCheck setBackoff(final long initialDelay, final long maxDelay, final TimeUnit unit) {
+        if (initialDelay < 1) {
+            throw MESSAGES.invalidPositiveValue(initialDelay, "initialDelay");
+        }
+        if (maxDelay < 1) {
+            throw MESSAGES.invalidPositiveValue(maxDelay, "maxDelay");
+        }
+        this.initialDelay = unit.toNanos(initialDelay);
+        this.maxDelay = Math.max(this.initialDelay, unit.toNanos(maxDelay));
+        return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for a single connection attempt. The default is 1 second.
+     *
+     * @param timeout the timeout
+     * @param unit    the unit of the timeout
+     *
+     * @return this check
+     */
+    public ManagementPortReadinessCheck setConnectTimeout(final long timeout, final TimeUnit unit) {
+        if (timeout < 1) {
+            throw MESSAGES.invalidPositiveValue(timeout, "timeout");
+        }
+        this.connectTimeout = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * The latencies of each connection attempt, successful or not.
+     *
+     * @return the connection latencies
+     */
+    public LatencyHistogram getConnectLatencies() {
+        return connectLatencies;
+    }
+
+    /**
+     * The time from the start of waiting until the management port accepted a connection for each ready server.
+     *
+     * @return the latencies until ready
+     */
+    public LatencyHistogram getReadyLatencies() {
+        return readyLatencies;
+    }
+
+    /**
+     * Waits for the management port to accept a connection.
+     *
+     * @param process the process of the server or {@code null} to not check whether the process is alive
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     *
+     * @return {@code true} if the management port accepted a connection or {@code false} if the port did not accept
+     * a connection in time or the process exited
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public boolean awaitReady(final Process process, final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (address == null) {
+            throw MESSAGES.nullParam("address");
+        }
+        return await(process, address, timeout, unit);
+    }
+
+    @Override
+    public boolean awaitReady(final LaunchedInstance instance, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final InetSocketAddress address = this.address == null ?
+                resolveAddress(instance.getCommandBuilder(), instance.getServerArguments()) : this.address;
+        return await(instance.getProcess(), address, timeout, unit);
+    }
+
+    private boolean await(final Process process, final InetSocketAddress address, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long start = System.nanoTime();
+        final long deadline = start + unit.toNanos(timeout);
+        long delay = initialDelay;
+        while (process == null || process.isAlive()) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            if (tryConnect(address, Math.min(connectTimeout, remaining))) {
+                readyLatencies.record(System.nanoTime() - start);
+                return true;
+            }
+            // Equal jitter, wait between half and the full delay so parallel checks do not connect at the same time
+            final long jittered = (delay / 2L) + ThreadLocalRandom.current().nextLong((delay / 2L) + 1L);
+            final long sleep = Math.min(jittered, deadline - System.nanoTime());
+            if (sleep > 0L) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+            delay = Math.min(delay * 2L, maxDelay);
+        }
+        return false;
+    }
+
+    private boolean tryConnect(final InetSocketAddress address, final long timeout) throws InterruptedException {
+        final long start = System.nanoTime();
+        try (
+                SocketChannel channel = SocketChannel.open();
+                Selector selector = Selector.open()
+        ) {
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                return true;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            final long millis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(timeout));
+            if (selector.select(millis) > 0) {
+                return channel.finishConnect();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return false;
+        } catch (IOException ignore) {
+            // The port is not yet accepting connections
+            return false;
+        } finally {
+            connectLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Resolves the management address from the arguments of the command builder.
+     *
+     * @param builder the command builder
+     *
+     * @return the management address
+     */
+    static InetSocketAddress resolveAddress(final CommandBuilder builder) {
+        return resolveAddress(builder, List.of());
+    }
+
+    /**
+     * Resolves the management address from the arguments of the command builder and the server arguments passed in
+     * addition to them.
+     *
+     * @param builder         the command builder
+     * @param serverArguments the server arguments added after the arguments of the command builder
+     *
+     * @return the management address
+     */
+    static InetSocketAddress resolveAddress(final CommandBuilder builder, final List<String> serverArguments) {
+        final List<String> args = new ArrayList<>();
+        final boolean applyPortOffset;
+        if (builder instanceof DomainCommandBuilder) {
+            final DomainCommandBuilder domainBuilder = (DomainCommandBuilder) builder;
+            args.addAll(domainBuilder.getHostControllerJavaOptions());
+            args.addAll(domainBuilder.getServerArguments());
+            // The port offset is not applied to the management interfaces of a host controller
+            applyPortOffset = false;
+        } else if (builder instanceof JBossModulesCommandBuilder) {
+            final JBossModulesCommandBuilder modulesBuilder = (JBossModulesCommandBuilder) builder;
+            args.addAll(modulesBuilder.getJavaOptions());
+            args.addAll(modulesBuilder.getServerArguments());
+            applyPortOffset = true;
+        } else if (builder instanceof BootableJarCommandBuilder) {
+            final BootableJarCommandBuilder bootableJarBuilder = (BootableJarCommandBuilder) builder;
+            args.addAll(bootableJarBuilder.getJavaOptions());
+            args.addAll(bootableJarBuilder.getServerArguments());
+            applyPortOffset = true;
+        } else {
+            return createAddress(DEFAULT_HOST, DEFAULT_PORT);
+        }
+        args.addAll(serverArguments);
+        String host = DEFAULT_HOST;
+        int port = DEFAULT_PORT;
+        int portOffset = 0;
+        for (String arg : args) {
+            final Argument argument = Arguments.parse(arg);
+            final String value = argument.getValue();
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            try {
+                switch (argument.getKey()) {
+                    case BIND_ADDRESS_ARG:
+                    case BIND_ADDRESS_PROPERTY:
+                        host = value;
+                        break;
+                    case PORT_PROPERTY:
+                        port = Integer.parseInt(value.trim());
+                        break;
+                    case BatchLauncher.PORT_OFFSET_PROPERTY:
+                        portOffset = Integer.parseInt(value.trim());
+                        break;
+                }
+            } catch (NumberFormatException ignore) {
+                // Likely an expression, use the default
+            }
+        }
+        return createAddress(host, applyPortOffset ? port + portOffset : port);
+    }
+
+    private static InetSocketAddress createAddress(final String host, final int port) {
+        if (host == null) {
+            throw MESSAGES.nullParam("host");
+        }
+        // Connect to the loopback address if the server binds to all addresses
+        if ("0.0.0.0".equals(host) || "::".equals(host) || "[::]".equals(host)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        }
+        return new InetSocketAddress(host, port);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.util.List;
+
+/**
+ * Derives the heap, metaspace and direct memory sizes of launched processes from the memory and CPUs available,
+ * instead of the fixed default of {@code -Xms64m -Xmx512m}.
+ * <p>
+ * The available memory is the memory limit of the cgroup, v1 or v2, of this process or the physical memory if there
+ * is no limit. The available processors take the CPU quota of the cgroup into account. Both are divided by the
+ * number of {@linkplain #setInstances(int) instances} which share them, for example when many servers are launched in
+ * the same container.
+ * </p>
+ * <p>
+ * JVM options added to the builder always win. For example if {@code -Xmx2g} was added, only the remaining options
+ * are derived and the initial heap size is limited to {@code 2g}. Only the default heap options of the builder are
+ * replaced, the same options added by the user are kept. The process controller and host controller of a managed
+ * domain use smaller sizes than a server.
+ * </p>
+ * <pre>
+ *     final MemoryErgonomics ergonomics = MemoryErgonomics.create()
+ *             .setInstances(4);
+ *     for (int i = 0; i &lt; 4; i++) {
+ *         Launcher.of(StandaloneCommandBuilder.of(wildflyHome)
+ *                 .setMemoryErgonomics(ergonomics)
+ *                 ...)
+ *                 .launch();
+ *     }
+ * </pre>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class MemoryErgonomics {
+    private static final long MB = 1024L * 1024L;
+    // Compressed object pointers can only be used with heaps smaller than 32 GB
+    private static final long MAX_HEAP = 31L * 1024L * MB;
+    private static final String MAX_HEAP_OPTION = "-Xmx";
+    private static final String INITIAL_HEAP_OPTION = "-Xms";
+    private static final List<String> MAX_HEAP_OPTIONS = List.of(MAX_HEAP_OPTION, "-XX:MaxHeapSize=");
+    private static final List<String> INITIAL_HEAP_OPTIONS = List.of(INITIAL_HEAP_OPTION, "-XX:InitialHeapSize=");
+    // The size of a heap option which was not set, or could not be parsed
+    private static final long NOT_SET = -1L;
+    private static final long UNKNOWN = -2L;
+    private static final String MAX_METASPACE_OPTION = "-XX:MaxMetaspaceSize=";
+    private static final String MAX_DIRECT_MEMORY_OPTION = "-XX:MaxDirectMemorySize=";
+    private static final String ACTIVE_PROCESSOR_COUNT_OPTION = "-XX:ActiveProcessorCount=";
+    // Options which size the heap relative to the memory available and are not combined with a derived heap size
+    private static final List<String> HEAP_RELATIVE_OPTIONS = List.of(
+            "-XX:MaxRAM", "-XX:MaxRAMPercentage", "-XX:InitialRAMPercentage", "-XX:MinRAMPercentage"
+    );
+
+    /**
+     * The processes sized differently.
+     */
+    enum Profile {
+        SERVER,
+        PROCESS_CONTROLLER,
+        HOST_CONTROLLER,
+    }
+
+    private final ContainerResources resources;
+    private int instances;
+
+    private MemoryErgonomics(final ContainerResources resources) {
+        this.resources = resources;
+        instances = 1;
+    }
+
+    private MemoryErgonomics(final MemoryErgonomics original) {
+        resources = original.resources;
+        instances = original.instances;
+    }
+
+    /**
+     * Creates the ergonomics for the resources available to this process.
+     *
+     * @return the ergonomics
+     */
+    public static MemoryErgonomics create() {
+        return new MemoryErgonomics(ContainerResources.current());
+    }
+
+    /**
+     * Creates the ergonomics for the resources.
+     *
+     * @param resources the available resources
+     *
+     * @return the ergonomics
+     */
+    static MemoryErgonomics of(final ContainerResources resources) {
+        return new MemoryErgonomics(resources);
+    }
+
+    /**
+     * Sets the number of instances which share the memory and processors. The default is 1.
+     *
+     * @param instances the number of instances
+     *
+     * @return this ergonomics
+     */
+    public MemoryErgonomics setInstances(final int instances) {
+        if (instances < 1) {
+            throw MESSAGES.invalidPositiveValue(instances, "instances");
+        }
+        this.instances = instances;
+        return this;
+    }
+
+    /**
+     * The number of instances which share the memory and processors.
+     *
+     * @return the number of instances
+     */
+    public int getInstances() {
+        return instances;
+    }
+
+    /**
+     * The memory, in bytes, available to all instances.
+     *
+     * @return the available memory or {@code -1} if it could not be determined
+     */
+    public long getAvailableMemory() {
+        return resources.getMemory();
+    }
+
+    /**
+     * The number of processors available to all instances.
+     *
+     * @return the number of available processors
+     */
+    public int getAvailableProcessors() {
+        return resources.getProcessors();
+    }
+
+    /**
+     * Creates a copy of these ergonomics. The command builders keep a copy, so changes made after the ergonomics were
+     * set on a builder do not change the arguments of the builder.
+     *
+     * @return a copy of these ergonomics
+     */
+    MemoryErgonomics copy() {
+        return new MemoryErgonomics(this);
+    }
+
+    /**
+     * Applies the derived sizes to the JVM options. The {@linkplain Arguments#addDefaults(String...) default} heap
+     * options, {@code -Xms64m} and {@code -Xmx512m}, are replaced. Options added by the user are not changed and the
+     * derived heap sizes are limited by the heap sizes of the user.
+     *
+     * @param profile     the profile of the process
+     * @param javaOptions the JVM options of the process
+     *
+     * @return the JVM options with the derived sizes
+     */
+    List<String> apply(final Profile profile, final Arguments javaOptions) {
+        final long memory = resources.getMemory();
+        if (memory < 0L) {
+            // Nothing to derive the sizes from, keep the defaults
+            return javaOptions.asList();
+        }
+        final List<String> result = javaOptions.asList(arg -> !(Arguments.isDefault(arg) && isHeapOption(arg.asCommandLineArgument())));
+        final long perInstance = memory / instances;
+        final int processors = Math.max(1, resources.getProcessors() / instances);
+        final long maxHeap;
+        final long initialHeap;
+        final long maxMetaspace;
+        final long maxDirectMemory;
+        final int activeProcessors;
+        switch (profile) {
+            case PROCESS_CONTROLLER:
+                // The process controller only starts and monitors the other processes
+                maxHeap = clamp(perInstance / 64L, 32L * MB, 128L * MB);
+                initialHeap = 16L * MB;
+                maxMetaspace = clamp(perInstance / 64L, 64L * MB, 128L * MB);
+                maxDirectMemory = -1L;
+                activeProcessors = 1;
+                break;
+            case HOST_CONTROLLER:
+                maxHeap = clamp(perInstance / 16L, 128L * MB, 1024L * MB);
+                initialHeap = 64L * MB;
+                maxMetaspace = clamp(perInstance / 16L, 128L * MB, 256L * MB);
+                maxDirectMemory = -1L;
+                activeProcessors = Math.min(2, processors);
+                break;
+            default:
+                // Leave half of the memory for the metaspace, code cache, thread stacks and direct buffers
+                maxHeap = clamp(perInstance / 2L, 64L * MB, MAX_HEAP);
+                initialHeap = clamp(maxHeap / 4L, 64L * MB, maxHeap);
+                maxMetaspace = clamp(perInstance / 8L, 128L * MB, 512L * MB);
+                maxDirectMemory = clamp(perInstance / 16L, 64L * MB, 1024L * MB);
+                activeProcessors = processors;
+                break;
+        }
+        if (!containsAny(result, HEAP_RELATIVE_OPTIONS)) {
+            // The derived sizes must not conflict with the sizes of the user, the JVM fails to start if the initial
+            // heap size is larger than the maximum heap size
+            final long userMaxHeap = findSize(result, MAX_HEAP_OPTIONS);
+            final long userInitialHeap = findSize(result, INITIAL_HEAP_OPTIONS);
+            if (userMaxHeap == NOT_SET && userInitialHeap != UNKNOWN) {
+                result.add(MAX_HEAP_OPTION + toSize(Math.max(maxHeap, userInitialHeap)));
+            }
+            if (userInitialHeap == NOT_SET && userMaxHeap != UNKNOWN) {
+                result.add(INITIAL_HEAP_OPTION + toSize(Math.min(initialHeap, userMaxHeap == NOT_SET ? maxHeap : userMaxHeap)));
+            }
+        }
+        if (!contains(result, MAX_METASPACE_OPTION)) {
+            result.add(MAX_METASPACE_OPTION + toMegabytes(maxMetaspace));
+        }
+        if (maxDirectMemory > 0L && !contains(result, MAX_DIRECT_MEMORY_OPTION)) {
+            result.add(MAX_DIRECT_MEMORY_OPTION + toMegabytes(maxDirectMemory));
+        }
+        // Only limit the processors if they are shared, otherwise the JVM detects them itself
+        if ((instances > 1 || profile != Profile.SERVER) && !contains(result, ACTIVE_PROCESSOR_COUNT_OPTION)) {
+            result.add(ACTIVE_PROCESSOR_COUNT_OPTION + activeProcessors);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryErgonomics[availableMemory=" + getAvailableMemory() + ", availableProcessors=" +
+                getAvailableProcessors() + ", instances=" + instances + "]";
+    }
+
+    private static boolean isHeapOption(final String option) {
+        return option.startsWith(MAX_HEAP_OPTION) || option.startsWith(INITIAL_HEAP_OPTION);
+    }
+
+    /**
+     * Finds the size of the last of the options, which is the one used by the JVM.
+     *
+     * @return the size in bytes, {@link #NOT_SET} if none of the options is present or {@link #UNKNOWN} if the size
+     * could not be parsed
+     */
+    private static long findSize(final List<String> options, final List<String> prefixes) {
+        long result = NOT_SET;
+        for (String option : options) {
+            for (String prefix : prefixes) {
+                if (option.startsWith(prefix)) {
+                    result = parseSize(option.substring(prefix.length()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long parseSize(final String value) {
+        if (value.isEmpty()) {
+            return UNKNOWN;
+        }
+        final long multiplier;
+        switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+            case 'k':
+                multiplier = 1024L;
+                break;
+            case 'm':
+                multiplier = MB;
+                break;
+            case 'g':
+                multiplier = 1024L * MB;
+                break;
+            case 't':
+                multiplier = 1024L * 1024L * MB;
+                break;
+            default:
+                multiplier = 1L;
+                break;
+        }
+        try {
+            final long size = Long.parseLong(multiplier == 1L ? value : value.substring(0, value.length() - 1));
+            return size < 0L || size > Long.MAX_VALUE / multiplier ? UNKNOWN : size * multiplier;
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static boolean containsAny(final List<String> options, final List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (contains(options, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(final List<String> options, final String prefix) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long clamp(final long value, final long min, final long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static String toMegabytes(final long bytes) {
+        return (bytes / MB) + "m";
+    }
+
+    private static String toSize(final long bytes) {
+        if (bytes % MB == 0L) {
+            return toMegabytes(bytes);
+        }
+        if (bytes % 1024L == 0L) {
+            return (bytes / 1024L) + "k";
+        }
+        return Long.toString(bytes);
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A sink which notifies listeners when the output of a process contains one of the registered patterns.
+ * <p>
+ * The patterns are literal strings, for example a message id like {@code WFLYCTL0013} or {@code OutOfMemoryError}. All
+ * patterns are matched in a single pass over the output with an Aho-Corasick automaton, so the cost does not grow with
+ * the number of patterns. Matches spanning two chunks of output are found as well.
+ * </p>
+ * <p>
+ * A listener is invoked at most once per line with the line which contained the pattern. Listeners are invoked
+ * asynchronously so a slow listener does not block reading the output of the process. By default the listeners of a
+ * matcher are invoked one at a time, in the order the lines were written, from a single daemon thread which is only
+ * running while there are matches to notify. The output can also be passed on to other {@linkplain #tee(OutputSink) sinks}, for example
+ * to write the output to a file:
+ * <pre>
+ *     final OutputMatcher matcher = OutputMatcher.create()
+ *             .addListener("OutOfMemoryError", (pattern, line) -&gt; restart())
+ *             .addListener("WFLYCTL0013", (pattern, line) -&gt; failures.add(line))
+ *             .tee(OutputSink.toFile(logFile));
+ *     Launcher.of(builder)
+ *             .setRedirectErrorStream(true)
+ *             .consumeOutput(matcher)
+ *             .launch();
+ * </pre>
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class OutputMatcher implements OutputSink {
+
+    // Longer lines are truncated when passed to a listener, the patterns are still matched
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final List<String> patterns;
+    private final List<Listener> listeners;
+    private final List<OutputSink> sinks;
+    private Executor executor;
+    private Charset charset;
+
+    // The state while matching, the automaton is created on the first write after the patterns changed
+    private Automaton automaton;
+    private boolean changed;
+    private int state;
+    private boolean[] matched;
+    private int[] pending;
+    private int pendingCount;
+    private byte[] line;
+    private int lineLength;
+
+    private OutputMatcher() {
+        patterns = new ArrayList<>();
+        listeners = new ArrayList<>();
+        sinks = new ArrayList<>();
+        executor = new SerialExecutor();
+        charset = StandardCharsets.UTF_8;
+        line = new byte[256];
+    }
+
+    /**
+     * Creates a new matcher.
+     *
+     * @return a new matcher
+     */
+    public static OutputMatcher create() {
+        return new OutputMatcher();
+    }
+
+    /**
+     * Adds a listener which is notified when a line of the output contains the pattern.
+     * <p>
+     * A listener can be added while the output is being matched. The pattern is only matched against the output
+     * written after it was added. Partial matches of the other patterns, and the matches of the current line, are
+     * kept.
+     * </p>
+     *
+     * @param pattern  the literal pattern to match
+     * @param listener the listener to notify
+     *
+     * @return this matcher
+     */
+    public synchronized OutputMatcher addListener(final String pattern, final Listener listener) {
+        if (pattern == null) {
+            throw MESSAGES.nullParam("pattern");
+        }
+        if (pattern.isEmpty()) {
+            throw MESSAGES.emptyParam("pattern");
+        }
+        if (listener == null) {
+            throw MESSAGES.nullParam("listener");
+        }
+        patterns.add(pattern);
+        listeners.add(listener);
+        changed = true;
+        return this;
+    }
+
+    /**
+     * Passes all the output on to the sink after it has been matched.
+     *
+     * @param sink the sink to pass the output to
+     *
+     * @return this matcher
+     */
+    public synchronized OutputMatcher tee(final OutputSink sink) {
+        if (sink == null) {
+            throw MESSAGES.nullParam("sink");
+        }
+        sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * Sets the executor used to notify the listeners. Use {@code Runnable::run} to notify the listeners on the thread
+     * reading the output.
+     *
+     * @param executor the executor
+     *
+     * @return this matcher
+     */
+    public synchronized OutputMatcher setExecutor(final Executor executor) {
+        if (executor == null) {
+            throw MESSAGES.nullParam("executor");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the character set used to encode the patterns and decode the lines passed to the listeners. The default
+     * is UTF-8.
+     *
+     * @param charset the character set of the output
+     *
+     * @return this matcher
+     */
+    public synchronized OutputMatcher setCharset(final Charset charset) {
+        if (charset == null) {
+            throw MESSAGES.nullParam("charset");
+        }
+        this.charset = charset;
+        changed = true;
+        return this;
+    }
+
+    @Override
+    public synchronized void write(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (automaton == null || changed) {
+            rebuild();
+        }
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            final byte b = buffer[i];
+            state = automaton.next(state, b);
+            final int[] found = automaton.output[state];
+            for (int pattern : found) {
+                if (!matched[pattern]) {
+                    matched[pattern] = true;
+                    pending[pendingCount++] = pattern;
+                }
+            }
+            if (b == '\n') {
+                endLine();
+            } else if (b != '\r' && lineLength < MAX_LINE_LENGTH) {
+                if (lineLength == line.length) {
+                    line = Arrays.copyOf(line, Math.min(line.length * 2, MAX_LINE_LENGTH));
+                }
+                line[lineLength++] = b;
+            }
+        }
+        for (OutputSink sink : sinks) {
+            sink.write(buffer, offset, length);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (automaton != null) {
+            endLine();
+        }
+        IOException error = null;
+        for (OutputSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void rebuild() {
+        final Automaton previous = automaton;
+        automaton = new Automaton(patterns, charset);
+        changed = false;
+        if (previous == null) {
+            state = 0;
+            matched = new boolean[patterns.size()];
+            pending = new int[patterns.size()];
+            pendingCount = 0;
+        } else {
+            // The patterns are only appended, the indexes of the matches of the current line are still valid. The
+            // partial match is a prefix of a pattern of both automata, resume at the same prefix.
+            int next = 0;
+            for (byte b : previous.prefix(state)) {
+                next = automaton.next(next, b);
+            }
+            state = next;
+            matched = Arrays.copyOf(matched, patterns.size());
+            pending = Arrays.copyOf(pending, patterns.size());
+        }
+    }
+
+    private void endLine() {
+        if (pendingCount > 0) {
+            final String value = new String(line, 0, lineLength, charset);
+            for (int i = 0; i < pendingCount; i++) {
+                final int pattern = pending[i];
+                final Listener listener = listeners.get(pattern);
+                final String matchedPattern = patterns.get(pattern);
+                executor.execute(() -> listener.matched(matchedPattern, value));
+                matched[pattern] = false;
+            }
+            pendingCount = 0;
+        }
+        lineLength = 0;
+    }
+
+    /**
+     * A listener notified when a line of output contains a pattern.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Invoked when a line of output contains the pattern.
+         *
+         * @param pattern the pattern which was matched
+         * @param line    the line containing the pattern
+         */
+        void matched(String pattern, String line);
+    }
+
+    /**
+     * An Aho-Corasick automaton over the bytes of the encoded patterns.
+     */
+    private static class Automaton {
+        private static final int[] EMPTY = new int[0];
+
+        // The transitions of each state, the keys are sorted for a binary search
+        private final byte[][] keys;
+        private final int[][] targets;
+        private final int[] fail;
+        // The parent of each state and the byte of the transition from the parent
+        private final int[] parent;
+        private final byte[] incoming;
+        // The patterns which end in each state, including the patterns ending in the fail states
+        private final int[][] output;
+
+        Automaton(final List<String> patterns, final Charset charset) {
+            final List<TreeMap<Byte, Integer>> transitions = new ArrayList<>();
+            final List<int[]> outputs = new ArrayList<>();
+            final List<Integer> parents = new ArrayList<>();
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            transitions.add(new TreeMap<>());
+            outputs.add(EMPTY);
+            parents.add(0);
+            bytes.write(0);
+            for (int p = 0; p < patterns.size(); p++) {
+                int current = 0;
+                for (byte b : patterns.get(p).getBytes(charset)) {
+                    Integer next = transitions.get(current).get(b);
+                    if (next == null) {
+                        next = transitions.size();
+                        transitions.add(new TreeMap<>());
+                        outputs.add(EMPTY);
+                        parents.add(current);
+                        bytes.write(b);
+                        transitions.get(current).put(b, next);
+                    }
+                    current = next;
+                }
+                outputs.set(current, append(outputs.get(current), p));
+            }
+            final int size = transitions.size();
+            parent = parents.stream().mapToInt(Integer::intValue).toArray();
+            incoming = bytes.toByteArray();
+            keys = new byte[size][];
+            targets = new int[size][];
+            for (int s = 0; s < size; s++) {
+                final TreeMap<Byte, Integer> map = transitions.get(s);
+                keys[s] = new byte[map.size()];
+                targets[s] = new int[map.size()];
+                int i = 0;
+                for (var entry : map.entrySet()) {
+                    keys[s][i] = entry.getKey();
+                    targets[s][i++] = entry.getValue();
+                }
+            }
+            // Compute the fail links breadth first so the fail state of a parent is known before its children
+            fail = new int[size];
+            output = new int[size][];
+            output[0] = outputs.get(0);
+            final Deque<Integer> queue = new ArrayDeque<>();
+            for (int target : targets[0]) {
+                fail[target] = 0;
+                output[target] = outputs.get(target);
+                queue.add(target);
+            }
+            while (!queue.isEmpty()) {
+                final int s = queue.poll();
+                for (int i = 0; i < keys[s].length; i++) {
+                    final int target = targets[s][i];
+                    final int f = next(fail[s], keys[s][i]);
+                    fail[target] = f;
+                    output[target] = merge(outputs.get(target), output[f]);
+                    queue.add(target);
+                }
+            }
+        }
+
+        int next(int state, final byte b) {
+            while (true) {
+                final int index = Arrays.binarySearch(keys[state], b);
+                if (index >= 0) {
+                    return targets[state][index];
+                }
+                if (state == 0) {
+                    return 0;
+                }
+                state = fail[state];
+            }
+        }
+
+        /**
+         * Returns the bytes which lead from the root to the state, which is the prefix of a pattern.
+         *
+         * @param state the state
+         *
+         * @return the prefix
+         */
+        byte[] prefix(final int state) {
+            int length = 0;
+            for (int s = state; s != 0; s = parent[s]) {
+                length++;
+            }
+            final byte[] result = new byte[length];
+            for (int s = state; s != 0; s = parent[s]) {
+                result[--length] = incoming[s];
+            }
+            return result;
+        }
+
+        private static int[] append(final int[] values, final int value) {
+            final int[] result = Arrays.copyOf(values, values.length + 1);
+            result[values.length] = value;
+            return result;
+        }
+
+        private static int[] merge(final int[] first, final int[] second) {
+            if (second.length == 0) {
+                return first;
+            }
+            if (first.length == 0) {
+                return second;
+            }
+            final int[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+    }
+
+    /**
+     * Runs the tasks in the order they were submitted on a single thread, which is started when a task is submitted
+     * and ends once no tasks are left.
+     */
+    private static class SerialExecutor implements Executor {
+        private static final ThreadFactory THREAD_FACTORY = new ThreadFactory();
+
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        @Override
+        public void execute(final Runnable task) {
+            synchronized (tasks) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                THREAD_FACTORY.newThread(this::runTasks).start();
+            } catch (RuntimeException | Error e) {
+                synchronized (tasks) {
+                    running = false;
+                }
+                throw e;
+            }
+        }
+
+        private void runTasks() {
+            while (true) {
+                final Runnable task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    // A failing listener must not stop the notification of the following matches
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                }
+            }
+        }
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wildfly-launcher-listener-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
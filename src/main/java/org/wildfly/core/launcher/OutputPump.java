@@ -0,0 +1,176 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the output of a process and delivers it to an {@link OutputSink}.
+ * <p>
+ * A thread per stream is too expensive when many processes are launched. Virtual threads do not help, a blocking read
+ * of a pipe occupies its carrier thread and the JDK compensates with additional carrier threads. So the streams are
+ * polled from a small shared pool of platform threads on every Java version. Only the bytes which are
+ * {@linkplain InputStream#available() available} are read, a read never blocks, and the time between polls backs off
+ * while the process is quiet.
+ * </p>
+ * <p>
+ * Once the process has exited, the stream is polled until the end of the stream is reached or no output arrived for a
+ * second, as descendants which inherited the pipe may still write to it. Note the JDK drains and closes the pipe of an
+ * exited process, output a descendant writes afterwards is lost.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class OutputPump implements Runnable {
+
+    static final int BUFFER_SIZE = 8192;
+    private static final long MIN_DELAY = TimeUnit.MILLISECONDS.toNanos(1L);
+    private static final long MAX_DELAY = TimeUnit.MILLISECONDS.toNanos(50L);
+    // The maximum number of reads in a single poll, so one busy process cannot starve the others sharing a thread
+    private static final int MAX_READS = 64;
+    // How long the stream of an exited process is polled without receiving output
+    private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toNanos(1L);
+
+    private final Process process;
+    private final InputStream in;
+    private final OutputSink sink;
+    private final byte[] buffer;
+    private long delay;
+    private long quietSince;
+    private boolean exited;
+    private boolean discard;
+
+    private OutputPump(final Process process, final InputStream in, final OutputSink sink) {
+        this.process = process;
+        this.in = in;
+        this.sink = sink;
+        buffer = new byte[BUFFER_SIZE];
+        delay = MIN_DELAY;
+    }
+
+    /**
+     * Starts delivering the output of the stream to the sink. The sink is closed once the process has exited and all
+     * the output has been read.
+     *
+     * @param process the process the stream belongs to
+     * @param in      the output or error stream of the process
+     * @param sink    the sink to deliver the output to
+     */
+    static void start(final Process process, final InputStream in, final OutputSink sink) {
+        SharedPool.EXECUTOR.execute(new OutputPump(process, in, sink));
+    }
+
+    @Override
+    public void run() {
+        final long next = poll();
+        if (next >= 0L) {
+            SharedPool.EXECUTOR.schedule(this, next, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Reads the available output.
+     *
+     * @return the time, in nanoseconds, until the next poll or {@code -1} if the stream is no longer polled
+     */
+    private long poll() {
+        try {
+            int reads = 0;
+            int available;
+            // Check whether the process is alive first, so output written just before it exited is not missed
+            final boolean alive = process.isAlive();
+            while ((available = in.available()) > 0) {
+                final int len = in.read(buffer, 0, Math.min(available, buffer.length));
+                if (len < 0) {
+                    complete();
+                    return -1L;
+                }
+                deliver(len);
+                if (++reads == MAX_READS) {
+                    delay = MIN_DELAY;
+                    return 0L;
+                }
+            }
+            if (!alive) {
+                // Descendants may still write to the pipe, poll until the output stops
+                final long now = System.nanoTime();
+                if (!exited || reads > 0) {
+                    exited = true;
+                    quietSince = now;
+                } else if (now - quietSince >= DRAIN_TIMEOUT) {
+                    complete();
+                    return -1L;
+                }
+            }
+            if (reads > 0) {
+                delay = MIN_DELAY;
+            } else {
+                delay = Math.min(delay * 2L, MAX_DELAY);
+            }
+            return delay;
+        } catch (IOException ignore) {
+            // The stream was closed
+            complete();
+            return -1L;
+        }
+    }
+
+    private void deliver(final int len) {
+        if (!discard) {
+            try {
+                sink.write(buffer, 0, len);
+            } catch (IOException | RuntimeException ignore) {
+                // Keep reading so the process does not block on a full pipe
+                discard = true;
+            }
+        }
+    }
+
+    private void complete() {
+        try {
+            in.close();
+        } catch (IOException ignore) {
+        }
+        try {
+            sink.close();
+        } catch (IOException | RuntimeException ignore) {
+        }
+    }
+
+    private static class SharedPool {
+        static final ScheduledExecutorService EXECUTOR;
+
+        static {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)),
+                    new PlatformThreadFactory("wildfly-launcher-output-"));
+            executor.setRemoveOnCancelPolicy(true);
+            EXECUTOR = executor;
+        }
+    }
+
+    private static class PlatformThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        private final String prefix;
+
+        private PlatformThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
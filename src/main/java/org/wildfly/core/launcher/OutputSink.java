@@ -0,0 +1,93 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Receives the output of a launched process.
+ * <p>
+ * The output is delivered in chunks as it is read from the process. A chunk is not aligned to lines and the buffer is
+ * reused after {@link #write(byte[], int, int)} returns, the bytes must be copied if they are needed later. A sink
+ * receives the chunks of a single stream in order from a single thread at a time.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ * @see Launcher#consumeOutput(OutputSink)
+ * @see Launcher#consumeError(OutputSink)
+ */
+@FunctionalInterface
+public interface OutputSink {
+
+    /**
+     * Writes a chunk of the output.
+     *
+     * @param buffer the buffer containing the output
+     * @param offset the offset of the output in the buffer
+     * @param length the number of bytes
+     *
+     * @throws IOException if the output cannot be written, the remaining output of the process is discarded
+     */
+    void write(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Invoked once all the output of the process has been read.
+     *
+     * @throws IOException if an error occurs completing the output
+     */
+    default void close() throws IOException {
+    }
+
+    /**
+     * Creates a sink which writes the output to the stream. The stream is flushed after each chunk, but is not closed.
+     *
+     * @param out the stream to write the output to
+     *
+     * @return a new sink
+     */
+    static OutputSink of(final OutputStream out) {
+        if (out == null) {
+            throw MESSAGES.nullParam("out");
+        }
+        return (buffer, offset, length) -> {
+            out.write(buffer, offset, length);
+            out.flush();
+        };
+    }
+
+    /**
+     * Creates a sink which writes the output to a file. The file is replaced if it already exists and is closed once
+     * all the output has been read.
+     *
+     * @param file the file to write the output to
+     *
+     * @return a new sink
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    static OutputSink toFile(final Path file) throws IOException {
+        if (file == null) {
+            throw MESSAGES.nullParam("file");
+        }
+        final OutputStream out = Files.newOutputStream(file);
+        return new OutputSink() {
+            @Override
+            public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+                out.write(buffer, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sink which keeps only the most recent output of a process in a fixed size buffer.
+ * <p>
+ * The output is copied into a ring buffer of bytes and the start of each line is recorded in a ring of line offsets.
+ * Once either ring is full the oldest output is overwritten. Writing output does not allocate, which keeps the memory
+ * used constant regardless of how long the process runs. Lines are only decoded when the tail is requested.
+ * </p>
+ * <p>
+ * This is useful for keeping the output of a process for diagnosing failures, for example:
+ * <pre>
+ *     final OutputTail tail = OutputTail.create();
+ *     final Process process = Launcher.of(builder)
+ *             .setRedirectErrorStream(true)
+ *             .consumeOutput(tail)
+ *             .launch();
+ *     ...
+ *     tail.getLines(200).forEach(System.err::println);
+ * </pre>
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings("unused")
+public final class OutputTail implements OutputSink {
+
+    /**
+     * The default number of bytes kept.
+     */
+    public static final int DEFAULT_CAPACITY = 256 * 1024;
+
+    /**
+     * The default number of lines kept.
+     */
+    public static final int DEFAULT_MAX_LINES = 2000;
+
+    private final byte[] buffer;
+    // The absolute position of the first byte of each line, the ring starts at lineHead
+    private final long[] lineStarts;
+    private int lineHead;
+    private int lineCount;
+    // The absolute number of bytes written
+    private long position;
+    private long totalLines;
+
+    private OutputTail(final int capacity, final int maxLines) {
+        buffer = new byte[capacity];
+        // One more entry for the start of the line currently being written
+        lineStarts = new long[maxLines + 1];
+        lineCount = 1;
+    }
+
+    /**
+     * Creates a sink which keeps the last {@value #DEFAULT_CAPACITY} bytes, and at most {@value #DEFAULT_MAX_LINES}
+     * lines, of output.
+     *
+     * @return a new sink
+     */
+    public static OutputTail create() {
+        return of(DEFAULT_CAPACITY, DEFAULT_MAX_LINES);
+    }
+
+    /**
+     * Creates a sink which keeps the last bytes of output up to the capacity and at most the maximum number of lines.
+     *
+     * @param capacity the maximum number of bytes to keep
+     * @param maxLines the maximum number of lines to keep
+     *
+     * @return a new sink
+     */
+    public static OutputTail of(final int capacity, final int maxLines) {
+        if (capacity < 1) {
+            throw MESSAGES.invalidPositiveValue(capacity, "capacity");
+        }
+        if (maxLines < 1) {
+            throw MESSAGES.invalidPositiveValue(maxLines, "maxLines");
+        }
+        return new OutputTail(capacity, maxLines);
+    }
+
+    @Override
+    public synchronized void write(final byte[] bytes, final int offset, final int length) {
+        final int capacity = buffer.length;
+        // Only the end of a chunk larger than the buffer is kept, but every line start is still recorded
+        final int skip = Math.max(0, length - capacity);
+        int index = (int) ((position + skip) % capacity);
+        int remaining = length - skip;
+        int from = offset + skip;
+        while (remaining > 0) {
+            final int len = Math.min(remaining, capacity - index);
+            System.arraycopy(bytes, from, buffer, index, len);
+            from += len;
+            remaining -= len;
+            index = 0;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[offset + i] == '\n') {
+                addLine(position + i + 1);
+            }
+        }
+        position += length;
+    }
+
+    /**
+     * Returns the number of bytes written to this sink.
+     *
+     * @return the number of bytes written
+     */
+    public synchronized long getTotalBytes() {
+        return position;
+    }
+
+    /**
+     * Returns the number of complete lines written to this sink.
+     *
+     * @return the number of lines written
+     */
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    /**
+     * Returns the most recent lines decoded as UTF-8.
+     *
+     * @param max the maximum number of lines to return
+     *
+     * @return the most recent lines, the last line may not yet be complete
+     */
+    public List<String> getLines(final int max) {
+        return getLines(max, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the most recent lines.
+     *
+     * @param max     the maximum number of lines to return
+     * @param charset the character set used to decode the lines
+     *
+     * @return the most recent lines, the last line may not yet be complete
+     */
+    public synchronized List<String> getLines(final int max, final Charset charset) {
+        if (max < 1) {
+            return Collections.emptyList();
+        }
+        final long oldest = Math.max(0L, position - buffer.length);
+        // Skip the last line if it is empty, i.e. the output ends with a new line
+        final int last = lineStart(lineCount - 1) == position ? lineCount - 2 : lineCount - 1;
+        int first = Math.max(0, last - max + 1);
+        // Skip the lines which have been overwritten in the buffer
+        while (first <= last && lineStart(first) < oldest) {
+            first++;
+        }
+        final List<String> result = new ArrayList<>(Math.max(0, last - first + 1));
+        for (int i = first; i <= last; i++) {
+            final long start = lineStart(i);
+            long end = i + 1 < lineCount ? lineStart(i + 1) - 1 : position;
+            if (end > start && byteAt(end - 1) == '\r') {
+                end--;
+            }
+            result.add(decode(start, end, charset));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the output kept decoded as UTF-8, starting with the oldest complete line.
+     *
+     * @return the output
+     */
+    @Override
+    public synchronized String toString() {
+        final long oldest = Math.max(0L, position - buffer.length);
+        long start = oldest;
+        for (int i = 0; i < lineCount; i++) {
+            final long lineStart = lineStart(i);
+            if (lineStart >= oldest) {
+                start = lineStart;
+                break;
+            }
+        }
+        return decode(start, position, StandardCharsets.UTF_8);
+    }
+
+    private void addLine(final long start) {
+        totalLines++;
+        if (lineCount == lineStarts.length) {
+            // Overwrite the oldest line
+            lineStarts[lineHead] = start;
+            lineHead = (lineHead + 1) % lineStarts.length;
+        } else {
+            lineStarts[(lineHead + lineCount) % lineStarts.length] = start;
+            lineCount++;
+        }
+    }
+
+    private long lineStart(final int line) {
+        return lineStarts[(lineHead + line) % lineStarts.length];
+    }
+
+    private byte byteAt(final long pos) {
+        return buffer[(int) (pos % buffer.length)];
+    }
+
+    private String decode(final long start, final long end, final Charset charset) {
+        final int length = (int) (end - start);
+        final byte[] bytes = new byte[length];
+        final int index = (int) (start % buffer.length);
+        final int len = Math.min(length, buffer.length - index);
+        System.arraycopy(buffer, index, bytes, 0, len);
+        System.arraycopy(buffer, 0, bytes, len, length - len);
+        return new String(bytes, charset);
+    }
+}
@@ -5,6 +5,14 @@
 
 package org.wildfly.core.launcher;
 
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * A helper class to help with managing a process.
  *
@@ -12,6 +20,16 @@ package org.wildfly.core.launcher;
  */
 public class ProcessHelper {
 
+    /**
+     * The default time, in seconds, processes are given to exit gracefully before they are forcibly killed.
+     */
+    public static final long DEFAULT_GRACE_PERIOD = 30L;
+
+    // The time to wait for a process to exit after it has been forcibly killed
+    private static final long KILL_TIMEOUT = TimeUnit.SECONDS.toNanos(10L);
+    private static final long MIN_POLL_DELAY = TimeUnit.MILLISECONDS.toNanos(1L);
+    private static final long MAX_POLL_DELAY = TimeUnit.MILLISECONDS.toNanos(50L);
+
     /**
      * Checks to see if the process has died.
      *
@@ -27,19 +45,69 @@ public class ProcessHelper {
     }
 
     /**
-     * Destroys the process if the process is not {@code null}.
+     * Destroys the process, and its descendants, if the process is not {@code null}. The processes are given the
+     * {@linkplain #DEFAULT_GRACE_PERIOD default grace period} to exit before they are forcibly killed.
      *
      * @param process the process to destroy, terminate
      *
      * @return 0 if the process was successfully destroyed
+     *
+     * @see #shutdown(Process, long, TimeUnit)
      */
     public static int destroyProcess(final Process process) throws InterruptedException {
         if (process == null)
             return 0;
-        process.destroy();
+        shutdown(process, DEFAULT_GRACE_PERIOD, TimeUnit.SECONDS);
         return process.waitFor();
     }
 
+    /**
+     * Shuts down the process and all of its descendants. All the processes are signalled to terminate at the same
+     * time. Processes which have not exited when the grace period elapses are forcibly killed.
+     * <p>
+     * This is useful for a managed domain where the process controller launches the host controller which launches
+     * the servers. Destroying only the process controller can leave the other processes running.
+     * </p>
+     *
+     * @param process     the process to shut down
+     * @param gracePeriod the time to wait for the processes to exit before forcibly killing them, {@code 0} to kill
+     *                    the processes immediately
+     * @param unit        the unit of the grace period
+     *
+     * @return the result describing how each process exited
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting for the processes to exit
+     */
+    public static ShutdownResult shutdown(final Process process, final long gracePeriod, final TimeUnit unit) throws InterruptedException {
+        if (process == null) {
+            throw MESSAGES.nullParam("process");
+        }
+        return shutdown(process.toHandle(), gracePeriod, unit);
+    }
+
+    /**
+     * Shuts down the process and all of its descendants.
+     *
+     * @param process     the process to shut down
+     * @param gracePeriod the time to wait for the processes to exit before forcibly killing them, {@code 0} to kill
+     *                    the processes immediately
+     * @param unit        the unit of the grace period
+     *
+     * @return the result describing how each process exited
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting for the processes to exit
+     * @see #shutdown(Process, long, TimeUnit)
+     */
+    public static ShutdownResult shutdown(final ProcessHandle process, final long gracePeriod, final TimeUnit unit) throws InterruptedException {
+        if (process == null) {
+            throw MESSAGES.nullParam("process");
+        }
+        if (gracePeriod < 0L) {
+            throw MESSAGES.invalidNegativeValue(gracePeriod, "gracePeriod");
+        }
+        return shutdown(List.of(process), unit.toNanos(gracePeriod), KILL_TIMEOUT);
+    }
+
     /**
      * Adds a shutdown hook for the process.
      *
@@ -49,7 +117,10 @@ public class ProcessHelper {
      *
      * @throws java.lang.SecurityException If a security manager is present and it denies {@link
      *                                     java.lang.RuntimePermission <code>RuntimePermission("shutdownHooks")</code>}
+     * @deprecated a shutdown hook thread is registered for each process, use {@link #registerShutdownHook(Process)}
+     * which shares a single shutdown hook for all processes
      */
+    @Deprecated
     public static Thread addShutdownHook(final Process process) {
         final Thread thread = new Thread(() -> {
             if (process != null) {
@@ -65,4 +136,133 @@ public class ProcessHelper {
         Runtime.getRuntime().addShutdownHook(thread);
         return thread;
     }
+
+    /**
+     * Registers the process to be forcibly killed, along with its descendants, when the JVM shuts down. The process is
+     * unregistered once it exits.
+     * <p>
+     * A single shutdown hook is shared by all registered processes. The hook kills all the processes at once and waits
+     * for them to exit for at most the {@linkplain #setShutdownHookTimeout(long, TimeUnit) shutdown hook timeout}.
+     * </p>
+     *
+     * @param process the process to register
+     *
+     * @return the registration, {@linkplain ShutdownHook#remove() removing} it unregisters the process
+     *
+     * @throws java.lang.SecurityException If a security manager is present and it denies {@link
+     *                                     java.lang.RuntimePermission <code>RuntimePermission("shutdownHooks")</code>}
+     */
+    public static ShutdownHook registerShutdownHook(final Process process) {
+        if (process == null) {
+            throw MESSAGES.nullParam("process");
+        }
+        return ShutdownHookRegistry.INSTANCE.register(process);
+    }
+
+    /**
+     * Sets the maximum time the shared shutdown hook waits for all registered processes to exit. The default is 10
+     * seconds.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     */
+    public static void setShutdownHookTimeout(final long timeout, final TimeUnit unit) {
+        if (timeout < 0L) {
+            throw MESSAGES.invalidNegativeValue(timeout, "timeout");
+        }
+        ShutdownHookRegistry.INSTANCE.setTimeout(unit.toNanos(timeout));
+    }
+
+    /**
+     * Shuts down the processes and all of their descendants.
+     *
+     * @param roots       the processes to shut down
+     * @param gracePeriod the time, in nanoseconds, to wait before forcibly killing the processes
+     * @param killTimeout the time, in nanoseconds, to wait for the processes to exit after they were forcibly killed
+     *
+     * @return the result describing how each process exited
+     *
+     * @throws InterruptedException if the current thread was interrupted while waiting for the processes to exit
+     */
+    static ShutdownResult shutdown(final Collection<ProcessHandle> roots, final long gracePeriod, final long killTimeout) throws InterruptedException {
+        final long start = System.nanoTime();
+        // Collect the descendants first, once a parent exits its children are no longer its descendants
+        final List<TerminatingProcess> processes = new ArrayList<>();
+        for (ProcessHandle root : roots) {
+            processes.add(new TerminatingProcess(root));
+            root.descendants().forEach(handle -> processes.add(new TerminatingProcess(handle)));
+        }
+
+        for (TerminatingProcess process : processes) {
+            process.signal(gracePeriod == 0L);
+        }
+        if (!await(processes, start, start + gracePeriod)) {
+            for (TerminatingProcess process : processes) {
+                if (process.exitTime < 0L) {
+                    process.signal(true);
+                }
+            }
+            await(processes, start, System.nanoTime() + killTimeout);
+        }
+        final List<ShutdownResult.ProcessExit> result = new ArrayList<>(processes.size());
+        long end = start;
+        for (TerminatingProcess process : processes) {
+            final boolean exited = process.exitTime >= 0L;
+            // If a process did not exit the total time is the time spent waiting
+            end = Math.max(end, exited ? start + process.exitTime : System.nanoTime());
+            result.add(new ShutdownResult.ProcessExit(process.handle.pid(), process.command,
+                    exited ? Duration.ofNanos(process.exitTime) : null, process.forcibly));
+        }
+        return new ShutdownResult(result, Duration.ofNanos(end - start));
+    }
+
+    private static boolean await(final List<TerminatingProcess> processes, final long start, final long deadline) throws InterruptedException {
+        // Poll rather than use ProcessHandle.onExit(), which checks processes which are not children of this JVM with
+        // a delay growing up to several seconds
+        long delay = MIN_POLL_DELAY;
+        while (true) {
+            boolean alive = false;
+            for (TerminatingProcess process : processes) {
+                if (process.exitTime < 0L) {
+                    if (process.handle.isAlive()) {
+                        alive = true;
+                    } else {
+                        process.exitTime = System.nanoTime() - start;
+                    }
+                }
+            }
+            if (!alive) {
+                return true;
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(delay, remaining));
+            delay = Math.min(delay * 2L, MAX_POLL_DELAY);
+        }
+    }
+
+    private static class TerminatingProcess {
+        private final ProcessHandle handle;
+        private final String command;
+        private long exitTime;
+        private boolean forcibly;
+
+        private TerminatingProcess(final ProcessHandle handle) {
+            this.handle = handle;
+            // The information is no longer available once the process has exited
+            this.command = handle.info().command().orElse(null);
+            this.exitTime = -1L;
+        }
+
+        private void signal(final boolean forcibly) {
+            if (forcibly || !handle.supportsNormalTermination()) {
+                this.forcibly |= handle.isAlive();
+                handle.destroyForcibly();
+            } else {
+                handle.destroy();
+            }
+        }
+    }
 }
@@ -0,0 +1,588 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically samples the resources used by launched processes and, optionally, their descendants.
+ * <p>
+ * On Linux the CPU time, resident set size, number of threads, open file descriptors and I/O bytes are read from
+ * {@code /proc/<pid>}. The files are kept open between samples and read into a reused buffer. The open file
+ * descriptors are counted from the size of {@code /proc/<pid>/fd}, older kernels which do not report the size fall
+ * back to listing the directory. On other operating systems only the CPU time is sampled.
+ * </p>
+ * <p>
+ * Walking the {@linkplain ProcessHandle#descendants() descendants} of a process visits every process of the system.
+ * The descendants are therefore only walked again every 10 samples, or as soon as one of the known descendants exits.
+ * A new descendant, e.g. a server launched by a host controller, is sampled within 10
+ * {@linkplain #setInterval(long, TimeUnit) intervals}.
+ * </p>
+ * <pre>
+ *     final ProcessMonitor monitor = ProcessMonitor.create()
+ *             .setInterval(5, TimeUnit.SECONDS)
+ *             .addListener(sample -&gt; {
+ *                 if (sample.getResidentSetSize() &gt; limit) {
+ *                     ...
+ *                 }
+ *             });
+ *     monitor.monitor(process);
+ * </pre>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class ProcessMonitor implements Closeable {
+
+    private static final int DESCENDANTS_REFRESH_SAMPLES = 10;
+
+    private static final Path PROC = Paths.get("/proc");
+    // The auxiliary vector entries for the end of the vector and USER_HZ
+    private static final long AT_NULL = 0L;
+    private static final long AT_CLKTCK = 17L;
+    private static final long DEFAULT_CLOCK_TICKS = 100L;
+    // USER_HZ is the unit of the CPU times in /proc/<pid>/stat
+    private static final long NANOS_PER_TICK = TimeUnit.SECONDS.toNanos(1L) / readClockTicks();
+    private static final byte[] VM_RSS = "VmRSS:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] THREADS = "Threads:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RCHAR = "rchar:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WCHAR = "wchar:".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<Long, ProcessHandle> roots;
+    private final Map<Long, ResourceSample> latest;
+    private final Map<Long, ProcFiles> files;
+    private final Map<Long, Descendants> descendants;
+    private final List<Listener> listeners;
+    private final boolean procSupported;
+    private final ByteBuffer buffer;
+    private final Set<Long> seen;
+    private long interval;
+    private boolean includeDescendants;
+    private ScheduledFuture<?> task;
+
+    private ProcessMonitor() {
+        roots = new ConcurrentHashMap<>();
+        latest = new ConcurrentHashMap<>();
+        files = new ConcurrentHashMap<>();
+        descendants = new ConcurrentHashMap<>();
+        listeners = new CopyOnWriteArrayList<>();
+        procSupported = Files.isReadable(PROC.resolve("self").resolve("stat"));
+        buffer = ByteBuffer.allocate(8192);
+        seen = new HashSet<>();
+        interval = TimeUnit.SECONDS.toNanos(1L);
+        includeDescendants = true;
+    }
+
+    /**
+     * Creates a new monitor. Sampling starts once the first process is {@linkplain #monitor(Process) monitored}.
+     *
+     * @return a new monitor
+     */
+    public static ProcessMonitor create() {
+        return new ProcessMonitor();
+    }
+
+    /**
+     * Sets the interval between samples. The default is 1 second.
+     *
+     * @param interval the interval
+     * @param unit     the unit of the interval
+     *
+     * @return this monitor
+     */
+    public synchronized ProcessMonitor setInterval(final long interval, final TimeUnit unit) {
+        if (interval < 1L) {
+            throw MESSAGES.invalidPositiveValue(interval, "interval");
+        }
+        this.interval = unit.toNanos(interval);
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+            schedule();
+        }
+        return this;
+    }
+
+    /**
+     * Set to {@code false} to only sample the monitored processes and not their descendants. The default is
+     * {@code true}, which for a managed domain samples the host controller and servers as well.
+     *
+     * @param includeDescendants {@code true} to sample the descendants of the monitored processes
+     *
+     * @return this monitor
+     */
+    public synchronized ProcessMonitor setIncludeDescendants(final boolean includeDescendants) {
+        this.includeDescendants = includeDescendants;
+        return this;
+    }
+
+    /**
+     * Adds a listener which is notified of each sample. Listeners are notified on the sampling thread and should not
+     * block.
+     *
+     * @param listener the listener
+     *
+     * @return this monitor
+     */
+    public ProcessMonitor addListener(final Listener listener) {
+        if (listener == null) {
+            throw MESSAGES.nullParam("listener");
+        }
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Removes the listener.
+     *
+     * @param listener the listener to remove
+     *
+     * @return this monitor
+     */
+    public ProcessMonitor removeListener(final Listener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+
+    /**
+     * Starts sampling the process. The process is no longer sampled once it has exited.
+     *
+     * @param process the process to sample
+     *
+     * @return this monitor
+     */
+    public ProcessMonitor monitor(final Process process) {
+        if (process == null) {
+            throw MESSAGES.nullParam("process");
+        }
+        return monitor(process.toHandle());
+    }
+
+    /**
+     * Starts sampling the process. The process is no longer sampled once it has exited.
+     *
+     * @param process the process to sample
+     *
+     * @return this monitor
+     */
+    public synchronized ProcessMonitor monitor(final ProcessHandle process) {
+        if (process == null) {
+            throw MESSAGES.nullParam("process");
+        }
+        roots.put(process.pid(), process);
+        if (task == null) {
+            schedule();
+        }
+        return this;
+    }
+
+    /**
+     * Stops sampling the process.
+     *
+     * @param process the process to stop sampling
+     *
+     * @return this monitor
+     */
+    public ProcessMonitor unmonitor(final Process process) {
+        if (process != null) {
+            roots.remove(process.pid());
+        }
+        return this;
+    }
+
+    /**
+     * Returns the most recent sample of each process which is still being sampled.
+     *
+     * @return the most recent samples
+     */
+    public List<ResourceSample> getSnapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(latest.values()));
+    }
+
+    /**
+     * Samples the processes now, on the calling thread.
+     *
+     * @return the samples taken
+     */
+    public synchronized List<ResourceSample> sample() {
+        final List<ResourceSample> result = new ArrayList<>();
+        seen.clear();
+        final Instant now = Instant.now();
+        final Iterator<ProcessHandle> iter = roots.values().iterator();
+        while (iter.hasNext()) {
+            final ProcessHandle root = iter.next();
+            if (!root.isAlive()) {
+                iter.remove();
+                continue;
+            }
+            sample(root, root.pid(), now, result);
+            if (includeDescendants) {
+                final Descendants known = descendants.computeIfAbsent(root.pid(), pid -> new Descendants());
+                for (ProcessHandle handle : known.get(root)) {
+                    if (!sample(handle, root.pid(), now, result)) {
+                        known.exited();
+                    }
+                }
+            }
+        }
+        if (includeDescendants) {
+            descendants.keySet().retainAll(roots.keySet());
+        } else {
+            descendants.clear();
+        }
+        // Release the resources of processes which are no longer sampled
+        latest.keySet().retainAll(seen);
+        final Iterator<Map.Entry<Long, ProcFiles>> fileIter = files.entrySet().iterator();
+        while (fileIter.hasNext()) {
+            final Map.Entry<Long, ProcFiles> entry = fileIter.next();
+            if (!seen.contains(entry.getKey())) {
+                entry.getValue().close();
+                fileIter.remove();
+            }
+        }
+        if (roots.isEmpty() && task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        return result;
+    }
+
+    /**
+     * Stops sampling all processes.
+     */
+    @Override
+    public synchronized void close() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        roots.clear();
+        latest.clear();
+        descendants.clear();
+        for (ProcFiles procFiles : files.values()) {
+            procFiles.close();
+        }
+        files.clear();
+    }
+
+    private void schedule() {
+        task = Sampler.EXECUTOR.scheduleAtFixedRate(this::sampleAndNotify, 0L, interval, TimeUnit.NANOSECONDS);
+    }
+
+    private void sampleAndNotify() {
+        final List<ResourceSample> samples = sample();
+        for (ResourceSample sample : samples) {
+            for (Listener listener : listeners) {
+                try {
+                    listener.sampled(sample);
+                } catch (RuntimeException ignore) {
+                    // A failing listener should not stop the sampling
+                }
+            }
+        }
+    }
+
+    private boolean sample(final ProcessHandle handle, final long rootPid, final Instant now,
+                           final List<ResourceSample> result) {
+        final long pid = handle.pid();
+        if (!seen.add(pid)) {
+            return true;
+        }
+        final ResourceSample sample;
+        if (procSupported) {
+            final ProcFiles procFiles = files.computeIfAbsent(pid, ProcFiles::new);
+            sample = procFiles.sample(rootPid, now);
+        } else if (handle.isAlive()) {
+            final long cpuTime = handle.info().totalCpuDuration().map(Duration::toNanos).orElse(-1L);
+            sample = new ResourceSample(pid, rootPid, now, cpuTime, -1L, -1, -1, -1L, -1L);
+        } else {
+            sample = null;
+        }
+        if (sample == null) {
+            // The process exited, release its files
+            seen.remove(pid);
+            return false;
+        }
+        latest.put(pid, sample);
+        result.add(sample);
+        return true;
+    }
+
+    /**
+     * Reads USER_HZ from the auxiliary vector the kernel passed to this process.
+     *
+     * @return the number of clock ticks per second
+     */
+    private static long readClockTicks() {
+        try {
+            final ByteBuffer auxv = ByteBuffer.wrap(Files.readAllBytes(PROC.resolve("self").resolve("auxv")))
+                    .order(ByteOrder.nativeOrder());
+            // Each entry is a type and a value, both the size of a native word
+            final boolean is32Bit = "32".equals(System.getProperty("sun.arch.data.model"));
+            while (auxv.remaining() >= (is32Bit ? 8 : 16)) {
+                final long type = is32Bit ? auxv.getInt() : auxv.getLong();
+                final long value = is32Bit ? auxv.getInt() : auxv.getLong();
+                if (type == AT_CLKTCK && value > 0L) {
+                    return value;
+                }
+                if (type == AT_NULL) {
+                    break;
+                }
+            }
+        } catch (IOException | SecurityException | UnsupportedOperationException ignore) {
+        }
+        return DEFAULT_CLOCK_TICKS;
+    }
+
+    /**
+     * A listener notified of each sample.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Invoked when a process was sampled.
+         *
+         * @param sample the sample
+         */
+        void sampled(ResourceSample sample);
+    }
+
+    /**
+     * The descendants of a monitored process, which are only walked again after a number of samples or once a
+     * descendant exited.
+     */
+    private static class Descendants {
+        private List<ProcessHandle> handles = List.of();
+        private int remaining;
+
+        List<ProcessHandle> get(final ProcessHandle root) {
+            if (remaining-- <= 0) {
+                handles = root.descendants().collect(Collectors.toList());
+                remaining = DESCENDANTS_REFRESH_SAMPLES - 1;
+            }
+            return handles;
+        }
+
+        void exited() {
+            remaining = 0;
+        }
+    }
+
+    /**
+     * The files of a process in {@code /proc}, which are kept open and re-read from the start for each sample.
+     */
+    private class ProcFiles {
+        private final long pid;
+        private final Path dir;
+        private final Path fd;
+        private final FileChannel stat;
+        private final FileChannel status;
+        private final FileChannel io;
+
+        ProcFiles(final Long pid) {
+            this.pid = pid;
+            dir = PROC.resolve(Long.toString(pid));
+            fd = dir.resolve("fd");
+            stat = open(dir.resolve("stat"));
+            status = open(dir.resolve("status"));
+            io = open(dir.resolve("io"));
+        }
+
+        ResourceSample sample(final long rootPid, final Instant now) {
+            if (stat == null || !read(stat)) {
+                // The process has exited
+                return null;
+            }
+            final long cpuTime = parseCpuTime();
+            long rss = -1L;
+            int threads = -1;
+            if (status != null && read(status)) {
+                final long kb = parseField(VM_RSS);
+                rss = kb < 0L ? -1L : kb * 1024L;
+                threads = (int) parseField(THREADS);
+            }
+            long readBytes = -1L;
+            long writtenBytes = -1L;
+            if (io != null && read(io)) {
+                readBytes = parseField(RCHAR);
+                writtenBytes = parseField(WCHAR);
+            }
+            return new ResourceSample(pid, rootPid, now, cpuTime, rss, threads, countOpenFiles(), readBytes, writtenBytes);
+        }
+
+        void close() {
+            closeQuietly(stat);
+            closeQuietly(status);
+            closeQuietly(io);
+        }
+
+        private int countOpenFiles() {
+            try {
+                // As of Linux 6.2 the size of the directory is the number of open file descriptors
+                final long size = Files.size(fd);
+                if (size > 0L) {
+                    return (int) size;
+                }
+                final String[] names = fd.toFile().list();
+                return names == null ? -1 : names.length;
+            } catch (IOException | SecurityException ignore) {
+                return -1;
+            }
+        }
+
+        private long parseCpuTime() {
+            // The command in the second field may contain spaces, the fields are counted from the last ')'
+            int index = -1;
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == ')') {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return -1L;
+            }
+            // utime and stime are the 14th and 15th fields, the 12th and 13th after the command
+            long utime = -1L;
+            long stime = -1L;
+            int field = 0;
+            for (int i = index + 1; i < buffer.limit(); i++) {
+                if (buffer.get(i) == ' ') {
+                    field++;
+                    if (field == 12) {
+                        utime = parseNumber(i + 1);
+                    } else if (field == 13) {
+                        stime = parseNumber(i + 1);
+                        break;
+                    }
+                }
+            }
+            return utime < 0L || stime < 0L ? -1L : (utime + stime) * NANOS_PER_TICK;
+        }
+    }
+
+    private boolean read(final FileChannel channel) {
+        buffer.clear();
+        try {
+            // Reading from the start regenerates the content of the file
+            channel.position(0L);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Read until the end of the file or the buffer is full
+            }
+        } catch (IOException ignore) {
+            return false;
+        }
+        buffer.flip();
+        return buffer.hasRemaining();
+    }
+
+    private long parseField(final byte[] name) {
+        final int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            if (startsWith(lineStart, name)) {
+                return parseNumber(lineStart + name.length);
+            }
+            while (lineStart < limit && buffer.get(lineStart) != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1L;
+    }
+
+    private boolean startsWith(final int index, final byte[] value) {
+        if (index + value.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (buffer.get(index + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseNumber(final int index) {
+        int i = index;
+        final int limit = buffer.limit();
+        while (i < limit && (buffer.get(i) == ' ' || buffer.get(i) == '\t')) {
+            i++;
+        }
+        long result = 0L;
+        boolean found = false;
+        while (i < limit) {
+            final byte b = buffer.get(i++);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            result = result * 10L + (b - '0');
+            found = true;
+        }
+        return found ? result : -1L;
+    }
+
+    private static FileChannel open(final Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException | SecurityException ignore) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(final FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static class Sampler {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory());
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wildfly-launcher-monitor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
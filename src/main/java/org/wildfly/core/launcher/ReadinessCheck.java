@@ -0,0 +1,45 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks whether a launched instance is ready, for example whether the server has completed booting.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ * @see BatchLauncher#setReadinessCheck(ReadinessCheck)
+ */
+@FunctionalInterface
+public interface ReadinessCheck {
+
+    /**
+     * Invoked before the instance is launched. This allows a check to record state, for example the current size of a
+     * log file, before the process is started.
+     *
+     * @param instance the instance about to be launched
+     *
+     * @throws IOException if an error occurs recording the state
+     */
+    default void beforeLaunch(LaunchedInstance instance) throws IOException {
+    }
+
+    /**
+     * Waits for the instance to become ready. Implementations should return {@code false} as soon as the process has
+     * exited.
+     *
+     * @param instance the launched instance
+     * @param timeout  the maximum time to wait
+     * @param unit     the unit of the timeout
+     *
+     * @return {@code true} if the instance is ready or {@code false} if the instance did not become ready in time
+     *
+     * @throws IOException          if an error occurs checking the instance
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    boolean awaitReady(LaunchedInstance instance, long timeout, TimeUnit unit) throws IOException, InterruptedException;
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * The resources used by a process at the time it was sampled by a {@link ProcessMonitor}. Values which could not be
+ * determined are {@code -1}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings("unused")
+public final class ResourceSample {
+    private final long pid;
+    private final long rootPid;
+    private final Instant timestamp;
+    private final long cpuTime;
+    private final long residentSetSize;
+    private final int threads;
+    private final int openFiles;
+    private final long readBytes;
+    private final long writtenBytes;
+
+    ResourceSample(final long pid, final long rootPid, final Instant timestamp, final long cpuTime,
+                   final long residentSetSize, final int threads, final int openFiles, final long readBytes,
+                   final long writtenBytes) {
+        this.pid = pid;
+        this.rootPid = rootPid;
+        this.timestamp = timestamp;
+        this.cpuTime = cpuTime;
+        this.residentSetSize = residentSetSize;
+        this.threads = threads;
+        this.openFiles = openFiles;
+        this.readBytes = readBytes;
+        this.writtenBytes = writtenBytes;
+    }
+
+    /**
+     * The process id of the sampled process.
+     *
+     * @return the process id
+     */
+    public long getPid() {
+        return pid;
+    }
+
+    /**
+     * The process id of the monitored process. This is different from the {@linkplain #getPid() process id} if the
+     * sampled process is a descendant of the monitored process, for example a server of a managed domain.
+     *
+     * @return the process id of the monitored process
+     */
+    public long getRootPid() {
+        return rootPid;
+    }
+
+    /**
+     * The time the sample was taken.
+     *
+     * @return the time of the sample
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * The total CPU time, user and system, used by the process.
+     *
+     * @return the CPU time or {@code null} if not known
+     */
+    public Duration getCpuTime() {
+        return cpuTime < 0L ? null : Duration.ofNanos(cpuTime);
+    }
+
+    /**
+     * The resident set size of the process in bytes.
+     *
+     * @return the resident set size
+     */
+    public long getResidentSetSize() {
+        return residentSetSize;
+    }
+
+    /**
+     * The number of threads of the process.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * The number of open file descriptors of the process.
+     *
+     * @return the number of open file descriptors
+     */
+    public int getOpenFiles() {
+        return openFiles;
+    }
+
+    /**
+     * The number of bytes the process has read, including from pipes and sockets.
+     *
+     * @return the number of bytes read
+     */
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * The number of bytes the process has written, including to pipes and sockets.
+     *
+     * @return the number of bytes written
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceSample[pid=" + pid + ", rootPid=" + rootPid + ", timestamp=" + timestamp + ", cpuTime=" +
+                getCpuTime() + ", residentSetSize=" + residentSetSize + ", threads=" + threads + ", openFiles=" +
+                openFiles + ", readBytes=" + readBytes + ", writtenBytes=" + writtenBytes + "]";
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.wildfly.core.launcher.logger.LauncherMessages.MESSAGES;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A sink which writes the output of a process to a file and rolls the file over once it reaches a maximum size or
+ * after a time interval.
+ * <p>
+ * A rolled file is renamed to the name of the file with a timestamp suffix, for example
+ * {@code server.log.20240101-120000-000}. Rolled files can optionally be compressed with gzip. Compressing and deleting
+ * old rolled files is done on a background thread so it does not delay reading the output of the process.
+ * </p>
+ * <pre>
+ *     Launcher.of(builder)
+ *             .setRedirectErrorStream(true)
+ *             .consumeOutput(RotatingFileSink.of(Path.of("console.log"))
+ *                     .setMaxSize(50L * 1024L * 1024L)
+ *                     .setMaxBackups(5)
+ *                     .setCompress(true))
+ *             .launch();
+ * </pre>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public final class RotatingFileSink implements OutputSink {
+
+    static final String COMPRESSED_SUFFIX = ".gz";
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    // The suffix of a rolled file, only files matching the suffix are deleted
+    private static final String BACKUP_SUFFIX = "(\\d{8}-\\d{6}-\\d{3})(?:-(\\d{1,9}))?(?:\\.gz)?";
+
+    private final Path file;
+    private long maxSize;
+    private long interval;
+    private int maxBackups;
+    private boolean compress;
+
+    private FileChannel channel;
+    private long size;
+    private long rotateAt;
+
+    private RotatingFileSink(final Path file) {
+        this.file = file;
+        maxSize = Long.MAX_VALUE;
+        interval = 0L;
+        maxBackups = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates a sink which writes to the file. If the file already exists it is rolled over before the first output
+     * is written.
+     *
+     * @param file the file to write the output to
+     *
+     * @return a new sink
+     */
+    public static RotatingFileSink of(final Path file) {
+        if (file == null) {
+            throw MESSAGES.nullParam("file");
+        }
+        return new RotatingFileSink(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Sets the size, in bytes, at which the file is rolled over. By default, the file is not rolled over based on its
+     * size.
+     *
+     * @param maxSize the maximum size of the file
+     *
+     * @return this sink
+     */
+    public synchronized RotatingFileSink setMaxSize(final long maxSize) {
+        if (maxSize < 1L) {
+            throw MESSAGES.invalidPositiveValue(maxSize, "maxSize");
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Sets the interval after which the file is rolled over. The file is rolled over when output is written after the
+     * interval has elapsed. By default, the file is not rolled over based on time.
+     *
+     * @param interval the interval
+     * @param unit     the unit of the interval
+     *
+     * @return this sink
+     */
+    public synchronized RotatingFileSink setRotationInterval(final long interval, final TimeUnit unit) {
+        if (interval < 1L) {
+            throw MESSAGES.invalidPositiveValue(interval, "interval");
+        }
+        this.interval = unit.toNanos(interval);
+        if (channel != null) {
+            rotateAt = System.nanoTime() + this.interval;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of rolled files to keep. The oldest rolled files are deleted. By default, all rolled
+     * files are kept.
+     *
+     * @param maxBackups the maximum number of rolled files
+     *
+     * @return this sink
+     */
+    public synchronized RotatingFileSink setMaxBackups(final int maxBackups) {
+        if (maxBackups < 1) {
+            throw MESSAGES.invalidPositiveValue(maxBackups, "maxBackups");
+        }
+        this.maxBackups = maxBackups;
+        return this;
+    }
+
+    /**
+     * Set to {@code true} to compress rolled files with gzip.
+     *
+     * @param compress {@code true} to compress the rolled files
+     *
+     * @return this sink
+     */
+    public synchronized RotatingFileSink setCompress(final boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    /**
+     * The file the output is currently written to.
+     *
+     * @return the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void write(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (channel == null) {
+            if (Files.exists(file)) {
+                roll();
+            }
+            open();
+        } else if (size > 0L && (size + length > maxSize || (interval > 0L && System.nanoTime() - rotateAt >= 0L))) {
+            channel.close();
+            channel = null;
+            roll();
+            open();
+        }
+        final ByteBuffer bytes = ByteBuffer.wrap(buffer, offset, length);
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void open() throws IOException {
+        final Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        size = 0L;
+        rotateAt = System.nanoTime() + interval;
+    }
+
+    private void roll() throws IOException {
+        final String name = file.getFileName() + "." + LocalDateTime.now().format(SUFFIX_FORMAT);
+        Path target = file.resolveSibling(name);
+        int count = 0;
+        while (Files.exists(target) || Files.exists(target.resolveSibling(target.getFileName() + COMPRESSED_SUFFIX))) {
+            target = file.resolveSibling(name + "-" + (++count));
+        }
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        final Path rolled = target;
+        final boolean compress = this.compress;
+        final int maxBackups = this.maxBackups;
+        // Compressing and deleting are done in order on a single thread, so a file is not deleted while compressed
+        Background.EXECUTOR.execute(() -> {
+            if (compress) {
+                compress(rolled);
+            }
+            deleteOldBackups(maxBackups);
+        });
+    }
+
+    private static void compress(final Path rolled) {
+        final Path compressed = rolled.resolveSibling(rolled.getFileName() + COMPRESSED_SUFFIX);
+        final Path tmp = rolled.resolveSibling(rolled.getFileName() + COMPRESSED_SUFFIX + ".tmp");
+        try {
+            try (
+                    InputStream in = Files.newInputStream(rolled);
+                    OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)
+            ) {
+                in.transferTo(out);
+            }
+            Files.move(tmp, compressed, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(rolled);
+        } catch (IOException ignore) {
+            // Keep the uncompressed file
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void deleteOldBackups(final int maxBackups) {
+        if (maxBackups == Integer.MAX_VALUE) {
+            return;
+        }
+        final Pattern pattern = Pattern.compile(Pattern.quote(file.getFileName() + ".") + BACKUP_SUFFIX);
+        final List<Backup> backups = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.getParent())) {
+            for (Path backup : stream) {
+                final Matcher matcher = pattern.matcher(backup.getFileName().toString());
+                if (matcher.matches()) {
+                    try {
+                        backups.add(new Backup(backup, LocalDateTime.parse(matcher.group(1), SUFFIX_FORMAT),
+                                matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2))));
+                    } catch (DateTimeParseException ignore) {
+                        // Not a timestamp, so not a rolled file
+                    }
+                }
+            }
+        } catch (IOException ignore) {
+            return;
+        }
+        // Sort from oldest to newest, the names do not sort as the counter is optional and not padded
+        backups.sort(Comparator.comparing((Backup backup) -> backup.timestamp).thenComparingInt(backup -> backup.counter));
+        for (int i = 0; i < backups.size() - maxBackups; i++) {
+            try {
+                Files.deleteIfExists(backups.get(i).path);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static class Backup {
+        final Path path;
+        final LocalDateTime timestamp;
+        // The counter of files rolled within the same millisecond
+        final int counter;
+
+        Backup(final Path path, final LocalDateTime timestamp, final int counter) {
+            this.path = path;
+            this.timestamp = timestamp;
+            this.counter = counter;
+        }
+    }
+
+    private static class Background {
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory());
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "wildfly-launcher-rotate-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            // Compressing is not time critical, keep it from competing with the processes being launched
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+/**
+ * The registration of a process with the shutdown hook shared by all processes, see
+ * {@link ProcessHelper#registerShutdownHook(Process)}. The process is killed, along with its descendants, when the JVM
+ * shuts down unless the registration was {@linkplain #remove() removed} or the process has exited.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings("unused")
+public final class ShutdownHook {
+    private final Process process;
+
+    ShutdownHook(final Process process) {
+        this.process = process;
+    }
+
+    /**
+     * The registered process.
+     *
+     * @return the process
+     */
+    public Process getProcess() {
+        return process;
+    }
+
+    /**
+     * Unregisters the process, it is no longer killed when the JVM shuts down. The shutdown hook shared with the other
+     * processes stays registered.
+     *
+     * @return {@code true} if the process was registered, otherwise {@code false}
+     */
+    public boolean remove() {
+        return ShutdownHookRegistry.INSTANCE.unregister(process);
+    }
+}
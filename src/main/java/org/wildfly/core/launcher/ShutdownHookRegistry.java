@@ -0,0 +1,107 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks the processes which should be killed when the JVM shuts down. A single shutdown hook is registered the first
+ * time a process is registered. Processes are removed once they exit.
+ * <p>
+ * The shared hook is never handed out, otherwise removing it from the {@link Runtime} would remove the protection of
+ * all the registered processes. Each registration returns a {@link ShutdownHook} which only unregisters its process.
+ * </p>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+final class ShutdownHookRegistry {
+
+    static final ShutdownHookRegistry INSTANCE = new ShutdownHookRegistry();
+
+    private final Set<Process> processes;
+    private final Thread hook;
+    private final AtomicBoolean hookAdded;
+    private volatile long timeout;
+
+    private ShutdownHookRegistry() {
+        processes = ConcurrentHashMap.newKeySet();
+        hook = new Thread(this::shutdown, "wildfly-launcher-shutdown");
+        hook.setDaemon(true);
+        hookAdded = new AtomicBoolean();
+        timeout = TimeUnit.SECONDS.toNanos(10L);
+    }
+
+    /**
+     * Registers the process and adds the shutdown hook if it has not yet been added.
+     *
+     * @param process the process to register
+     *
+     * @return the registration of the process
+     */
+    ShutdownHook register(final Process process) {
+        if (hookAdded.compareAndSet(false, true)) {
+            try {
+                Runtime.getRuntime().addShutdownHook(hook);
+            } catch (RuntimeException e) {
+                hookAdded.set(false);
+                throw e;
+            }
+        }
+        if (processes.add(process)) {
+            process.onExit().thenRun(() -> processes.remove(process));
+        }
+        return new ShutdownHook(process);
+    }
+
+    /**
+     * Removes the process from the registry.
+     *
+     * @param process the process to remove
+     *
+     * @return {@code true} if the process was registered, otherwise {@code false}
+     */
+    boolean unregister(final Process process) {
+        return processes.remove(process);
+    }
+
+    /**
+     * The number of processes which are currently registered.
+     *
+     * @return the number of registered processes
+     */
+    int size() {
+        return processes.size();
+    }
+
+    /**
+     * Sets the maximum time to wait for all the processes to exit when the JVM shuts down.
+     *
+     * @param timeout the timeout in nanoseconds
+     */
+    void setTimeout(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    private void shutdown() {
+        final List<ProcessHandle> handles = new ArrayList<>(processes.size());
+        for (Process process : processes) {
+            handles.add(process.toHandle());
+        }
+        if (handles.isEmpty()) {
+            return;
+        }
+        try {
+            ProcessHelper.shutdown(handles, 0L, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The result of {@linkplain ProcessHelper#shutdown(Process, long, java.util.concurrent.TimeUnit) shutting down} a
+ * process and its descendants.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@SuppressWarnings("unused")
+public final class ShutdownResult {
+    private final List<ProcessExit> processes;
+    private final Duration totalTime;
+
+    ShutdownResult(final List<ProcessExit> processes, final Duration totalTime) {
+        this.processes = Collections.unmodifiableList(processes);
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * The processes which were signalled. The first process is the root process followed by its descendants.
+     *
+     * @return the processes
+     */
+    public List<ProcessExit> getProcesses() {
+        return processes;
+    }
+
+    /**
+     * Indicates whether all the processes have exited.
+     *
+     * @return {@code true} if all processes have exited, otherwise {@code false}
+     */
+    public boolean isTerminated() {
+        for (ProcessExit process : processes) {
+            if (!process.hasExited()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether all the processes exited within the grace period without being forcibly killed.
+     *
+     * @return {@code true} if all the processes exited gracefully, otherwise {@code false}
+     */
+    public boolean isGraceful() {
+        for (ProcessExit process : processes) {
+            if (process.isForcibly() || !process.hasExited()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The processes which had to be forcibly killed or which did not exit.
+     *
+     * @return the processes which did not exit gracefully
+     */
+    public List<ProcessExit> getForciblyTerminated() {
+        final List<ProcessExit> result = new ArrayList<>();
+        for (ProcessExit process : processes) {
+            if (process.isForcibly() || !process.hasExited()) {
+                result.add(process);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The time from signalling the processes until the last process exited or the wait was abandoned.
+     *
+     * @return the total time
+     */
+    public Duration getTotalTime() {
+        return totalTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ShutdownResult[totalTime=" + totalTime + ", processes=" + processes + "]";
+    }
+
+    /**
+     * Describes how a single process exited.
+     */
+    public static final class ProcessExit {
+        private final long pid;
+        private final String command;
+        private final Duration exitTime;
+        private final boolean forcibly;
+
+        ProcessExit(final long pid, final String command, final Duration exitTime, final boolean forcibly) {
+            this.pid = pid;
+            this.command = command;
+            this.exitTime = exitTime;
+            this.forcibly = forcibly;
+        }
+
+        /**
+         * The native process id.
+         *
+         * @return the process id
+         */
+        public long getPid() {
+            return pid;
+        }
+
+        /**
+         * The executable of the process if it was available before the process was signalled.
+         *
+         * @return the executable of the process
+         */
+        public Optional<String> getCommand() {
+            return Optional.ofNullable(command);
+        }
+
+        /**
+         * The time from signalling the process until it exited.
+         *
+         * @return the time until the process exited or {@code null} if the process did not exit
+         */
+        public Duration getExitTime() {
+            return exitTime;
+        }
+
+        /**
+         * Indicates whether the process was forcibly killed after the grace period elapsed.
+         *
+         * @return {@code true} if the process was forcibly killed
+         */
+        public boolean isForcibly() {
+            return forcibly;
+        }
+
+        /**
+         * Indicates whether the process has exited.
+         *
+         * @return {@code true} if the process exited, otherwise {@code false}
+         */
+        public boolean hasExited() {
+            return exitTime != null;
+        }
+
+        @Override
+        public String toString() {
+            return "ProcessExit[pid=" + pid + ", command=" + command + ", exitTime=" + exitTime + ", forcibly=" +
+                    forcibly + "]";
+        }
+    }
+}
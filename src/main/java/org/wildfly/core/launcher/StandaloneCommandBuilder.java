@@ -14,6 +14,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 
 import org.wildfly.core.launcher.Arguments.Argument;
 
@@ -34,6 +35,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
     private static final String SERVER_BASE_DIR = "jboss.server.base.dir";
     private static final String SERVER_CONFIG_DIR = "jboss.server.config.dir";
     private static final String SERVER_LOG_DIR = "jboss.server.log.dir";
+    private static final String BOOT_LOG_FILE_NAME = "server.log";
 
     private Path baseDir;
     private final Arguments javaOpts;
@@ -53,14 +55,30 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      * @param wildflyHome the path to WildFly
      */
     private StandaloneCommandBuilder(final Path wildflyHome) {
-        super(wildflyHome, MODULE_NAME);
+        this(wildflyHome, null);
+    }
+
+    private StandaloneCommandBuilder(final Path wildflyHome, final Jvm jvm) {
+        super(wildflyHome, jvm, MODULE_NAME);
         javaOpts = new Arguments();
-        javaOpts.addAll(DEFAULT_VM_ARGUMENTS);
+        javaOpts.addDefaults(DEFAULT_VM_ARGUMENTS);
         securityProperties = new LinkedHashMap<>();
         moduleOpts = new ArrayList<>();
         addModuleAgent = false;
     }
 
+    private StandaloneCommandBuilder(final StandaloneCommandBuilder original) {
+        super(original);
+        baseDir = original.baseDir;
+        javaOpts = original.javaOpts.copy();
+        debugArg = original.debugArg;
+        modulesLocklessArg = original.modulesLocklessArg;
+        modulesMetricsArg = original.modulesMetricsArg;
+        securityProperties = new LinkedHashMap<>(original.securityProperties);
+        addModuleAgent = original.addModuleAgent;
+        moduleOpts = new ArrayList<>(original.moduleOpts);
+    }
+
     /**
      * Creates a command builder for a standalone instance of WildFly.
      *
@@ -83,6 +101,34 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
         return new StandaloneCommandBuilder(Environment.validateWildFlyDir(wildflyHome));
     }
 
+    /**
+     * Creates a command builder for a standalone instance of WildFly once the Java home has been resolved. Resolving the
+     * Java home may require launching the JVM, this is done in the background.
+     *
+     * @param wildflyHome the path to the WildFly home directory
+     * @param javaHome    the path to the Java home directory or {@code null} to use the current Java home
+     *
+     * @return a future which completes with the new builder, or exceptionally if the Java home is not valid
+     */
+    public static CompletableFuture<StandaloneCommandBuilder> ofAsync(final Path wildflyHome, final Path javaHome) {
+        final Path validatedHome = Environment.validateWildFlyDir(wildflyHome);
+        return Jvm.ofAsync(javaHome).thenApply(jvm -> new StandaloneCommandBuilder(validatedHome, jvm));
+    }
+
+    /**
+     * Creates a template from the current state of this builder. Changes made to this builder after the template is
+     * created are not reflected in the template.
+     * <p>
+     * Builders {@linkplain CommandTemplate#fork() forked} from the template share the validated WildFly home, the
+     * resolved JVM and the arguments of the template until they are changed.
+     * </p>
+     *
+     * @return a new template
+     */
+    public CommandTemplate<StandaloneCommandBuilder> toTemplate() {
+        return new CommandTemplate<>(new StandaloneCommandBuilder(this), StandaloneCommandBuilder::new);
+    }
+
     /**
      * Adds a JVM argument to the command ignoring {@code null} arguments.
      *
@@ -116,6 +162,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
                     break;
                 default:
                     javaOpts.add(argument);
+                    invalidate();
                     break;
             }
         }
@@ -166,6 +213,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setJavaOptions(final Iterable<String> javaOpts) {
         this.javaOpts.clear();
+        invalidate();
         return addJavaOptions(javaOpts);
     }
 
@@ -181,6 +229,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setJavaOptions(final String... javaOpts) {
         this.javaOpts.clear();
+        invalidate();
         return addJavaOptions(javaOpts);
     }
 
@@ -214,6 +263,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
                 throw MESSAGES.invalidArgument(arg, "setUseSecurityManager");
             }
             moduleOpts.add(arg);
+            invalidate();
         }
         return this;
     }
@@ -271,6 +321,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setModuleOptions(final String... args) {
         moduleOpts.clear();
+        invalidate();
         addModuleOptions(args);
         return this;
     }
@@ -288,6 +339,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setModuleOptions(final Iterable<String> args) {
         moduleOpts.clear();
+        invalidate();
         addModuleOptions(args);
         return this;
     }
@@ -322,6 +374,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setDebug(final boolean suspend, final int port) {
         debugArg = String.format(DEBUG_FORMAT, (suspend ? "y" : "n"), port);
+        invalidate();
         return this;
     }
 
@@ -336,6 +389,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setBaseDirectory(final String baseDir) {
         this.baseDir = Environment.validateAndNormalizeDir(baseDir, true);
+        invalidate();
         return this;
     }
 
@@ -350,6 +404,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setBaseDirectory(final Path baseDir) {
         this.baseDir = Environment.validateAndNormalizeDir(baseDir, true);
+        invalidate();
         return this;
     }
 
@@ -362,6 +417,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setJavaHome(final String javaHome) {
         environment.setJvm(Jvm.of(javaHome));
+        invalidate();
         return this;
     }
 
@@ -374,6 +430,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder setJavaHome(final Path javaHome) {
         environment.setJvm(Jvm.of(javaHome));
+        invalidate();
         return this;
     }
 
@@ -390,6 +447,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
         } else {
             modulesLocklessArg = null;
         }
+        invalidate();
         return this;
     }
 
@@ -406,6 +464,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
         } else {
             modulesMetricsArg = null;
         }
+        invalidate();
         return this;
     }
 
@@ -466,6 +525,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder addSecurityProperty(final String key) {
         securityProperties.put(key, null);
+        invalidate();
         return this;
     }
 
@@ -479,6 +539,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder addSecurityProperty(final String key, final String value) {
         securityProperties.put(key, value);
+        invalidate();
         return this;
     }
 
@@ -491,6 +552,7 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
      */
     public StandaloneCommandBuilder addSecurityProperties(final Map<String, String> properties) {
         securityProperties.putAll(properties);
+        invalidate();
         return this;
     }
 
@@ -564,21 +626,18 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
     }
 
     @Override
-    public List<String> buildArguments() {
+    List<String> createArguments() {
         final List<String> cmd = new ArrayList<>();
         cmd.add("-D[Standalone]");
         // Check to see if an agent was added as a module option, if so we want to add JBoss Modules as an agent.
         if (addModuleAgent) {
             cmd.add("-javaagent:" + getModulesJarName());
         }
-        cmd.addAll(getJavaOptions());
+        cmd.addAll(applyMemoryErgonomics(MemoryErgonomics.Profile.SERVER, javaOpts));
+        addGcProfileArguments(cmd, environment.getJvm(), getJavaOptions());
         if (environment.getJvm().isModular()) {
             cmd.addAll(DEFAULT_MODULAR_VM_ARGUMENTS);
-            for (final String optionalModularArgument : OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS) {
-                if (Jvm.isPackageAvailable(environment.getJvm().getPath(), optionalModularArgument)) {
-                    cmd.add(optionalModularArgument);
-                }
-            }
+            cmd.addAll(environment.getJvm().getAvailablePackages(OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS));
         }
         if (useSecurityManager() && environment.getJvm().enhancedSecurityManagerAvailable()) {
             cmd.add(SECURITY_MANAGER_PROP_WITH_ALLOW_VALUE);
@@ -597,7 +656,9 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
         if (debugArg != null) {
             cmd.add(debugArg);
         }
-        cmd.add(getBootLogArgument("server.log"));
+        addClassDataSharingArguments(cmd, "standalone", environment.getJvm(), getJavaOptions());
+        addFlightRecordingArguments(cmd, "standalone", environment.getJvm(), getJavaOptions());
+        cmd.add(getBootLogArgument(BOOT_LOG_FILE_NAME));
         cmd.add(getLoggingPropertiesArgument("logging.properties"));
         cmd.add("-jar");
         cmd.add(getModulesJarName());
@@ -638,6 +699,11 @@ public class StandaloneCommandBuilder extends AbstractCommandBuilder<StandaloneC
         return baseDir;
     }
 
+    @Override
+    Path getBootLogFile() {
+        return normalizePath(getLogDirectory(), BOOT_LOG_FILE_NAME);
+    }
+
     @Override
     protected StandaloneCommandBuilder getThis() {
         return this;
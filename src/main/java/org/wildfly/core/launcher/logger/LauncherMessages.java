@@ -5,6 +5,7 @@
 
 package org.wildfly.core.launcher.logger;
 
+import java.io.IOException;
 import java.nio.file.Path;
 
 import org.jboss.logging.annotations.Message;
@@ -48,4 +49,46 @@ public interface LauncherMessages {
 
     @Message(id = 8, value = "The security manager is not supported for %s")
     IllegalArgumentException securityManagerNotSupported(Path javaHome);
+
+    @Message(id = 9, value = "A port offset cannot be assigned to the command builder %s")
+    IllegalArgumentException portOffsetNotSupported(String builderType);
+
+    @Message(id = 10, value = "The value %d for %s must be greater than 0.")
+    IllegalArgumentException invalidPositiveValue(long value, String name);
+
+    @Message(id = 11, value = "The instance %d did not become ready within %d %s")
+    IllegalStateException instanceNotReady(int index, long timeout, String unit);
+
+    @Message(id = 12, value = "The boot log of the command builder %s cannot be determined")
+    IllegalArgumentException bootLogNotSupported(String builderType);
+
+    @Message(id = 13, value = "The server failed to boot, see %s: %s")
+    IllegalStateException serverBootFailed(Path bootLog, String message);
+
+    @Message(id = 14, value = "The value %d for %s must not be negative.")
+    IllegalArgumentException invalidNegativeValue(long value, String name);
+
+    @Message(id = 15, value = "The parameter %s cannot be empty.")
+    IllegalArgumentException emptyParam(String name);
+
+    @Message(id = 16, value = "The garbage collector profile %s requires Java %d or later, the JVM %s is Java %d.")
+    IllegalStateException gcProfileNotSupported(String profile, int requiredVersion, Path javaHome, int featureVersion);
+
+    @Message(id = 17, value = "The garbage collector profile %s requires the version of the JVM %s, which could not be determined.")
+    IllegalStateException gcProfileUnknownVersion(String profile, Path javaHome);
+
+    @Message(id = 18, value = "The garbage collector profile %s conflicts with the JVM option %s.")
+    IllegalStateException gcProfileConflict(String profile, String option);
+
+    @Message(id = 19, value = "Java Flight Recorder requires Java 11 or later and is not supported by the JVM %s.")
+    IllegalStateException flightRecordingNotSupported(Path javaHome);
+
+    @Message(id = 20, value = "Java Flight Recorder requires the version of the JVM %s, which could not be determined.")
+    IllegalStateException flightRecordingUnknownVersion(Path javaHome);
+
+    @Message(id = 21, value = "The %s of a flight recording cannot contain a ',' or '=' character: %s")
+    IllegalArgumentException flightRecordingInvalidValue(String name, Object value);
+
+    @Message(id = 22, value = "Failed to dump the flight recording of process %d, jcmd exited with %d: %s")
+    IOException flightRecordingDumpFailed(long pid, int exitCode, String output);
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class AggregatedOutputTest {
+
+    @Test
+    void prefixedLines(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("aggregated.log");
+        try (AggregatedOutput output = AggregatedOutput.open(file, false, 64)) {
+            final OutputSink first = output.sink("first | ");
+            final OutputSink second = output.sink("second | ");
+            write(first, "one\r\ntw");
+            write(second, "a line which is longer than the buffer of the aggregated output\n");
+            write(first, "o\nincomplete");
+            first.close();
+            second.close();
+        }
+        assertEquals(List.of("first | one", "second | a line which is longer than the buffer of the aggregated output",
+                "first | two", "first | incomplete"), Files.readAllLines(file));
+    }
+
+    private static void write(final OutputSink sink, final String value) throws Exception {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        sink.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class BootableJarCacheTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void hash() throws Exception {
+        final byte[] bytes = new byte[3 * 1024 * 1024 + 17];
+        new Random(17L).nextBytes(bytes);
+        final Path jar = Files.write(dir.resolve("server-bootable.jar"), bytes);
+        final String expected = JvmCapabilityStore.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        assertEquals(expected, BootableJarCache.hash(jar));
+
+        // A changed file is hashed again
+        bytes[0]++;
+        Files.write(jar, bytes);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000L));
+        assertNotEquals(expected, BootableJarCache.hash(jar));
+    }
+
+    @Test
+    void reuseInstallDir() throws Exception {
+        final Path jar = createBootableJar(dir.resolve("server-bootable.jar"), 10, null);
+        final BootableJarCache cache = BootableJarCache.of(dir.resolve("cache"));
+        final Path installDir;
+        try (BootableJarCache.Lease lease = cache.lease(jar)) {
+            installDir = lease.getInstallDir();
+            assertEquals(cache.getDirectory(), installDir.getParent());
+            assertTrue(installDir.getFileName().toString().startsWith("server-bootable-"), () -> "Unexpected install directory " + installDir);
+            assertTrue(Files.isRegularFile(installDir.resolve("jboss-modules.jar")), "Expected the server to be extracted");
+            assertFalse(Files.exists(installDir.resolveSibling(installDir.getFileName() + ".staging")),
+                    "Expected the staging directory to be renamed");
+
+            // A leased install directory is not handed out to a second process
+            try (BootableJarCache.Lease concurrent = cache.lease(jar)) {
+                assertNotEquals(installDir, concurrent.getInstallDir());
+                assertTrue(Files.isRegularFile(concurrent.getInstallDir().resolve("jboss-modules.jar")),
+                        "Expected the server to be extracted");
+            }
+        }
+
+        // Once released the installed server is reused without extracting it again
+        final Path marker = Files.createFile(installDir.resolve("marker"));
+        try (BootableJarCache.Lease lease = cache.lease(jar)) {
+            assertEquals(installDir, lease.getInstallDir());
+            assertTrue(Files.exists(marker), "Expected the install directory to be reused");
+        }
+
+        // Different content uses a different install directory
+        createBootableJar(jar, 11, null);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 2000L));
+        try (BootableJarCache.Lease lease = cache.lease(jar)) {
+            assertNotEquals(installDir, lease.getInstallDir());
+        }
+
+        // Building the arguments does not lease an install directory
+        final BootableJarCommandBuilder builder = BootableJarCommandBuilder.of(jar)
+                .setExtractionCache(cache);
+        assertTrue(builder.buildArguments().stream().noneMatch(arg -> arg.startsWith("--install-dir")),
+                () -> "Unexpected install directory: " + builder.buildArguments());
+        // The install directory of the user wins
+        builder.setInstallDir(dir);
+        assertNull(builder.leaseInstallDir(), "Expected the cache not to be used");
+    }
+
+    @Test
+    void leastRecentlyUsed() throws Exception {
+        final BootableJarCache cache = BootableJarCache.of(dir.resolve("cache"))
+                .setMaxSize(2048L);
+        final Path first;
+        try (BootableJarCache.Lease lease = cache.lease(createBootableJar(dir.resolve("first.jar"), 1024, null))) {
+            first = lease.getInstallDir();
+        }
+        final BootableJarCache.Lease second = cache.lease(createBootableJar(dir.resolve("second.jar"), 1024, null));
+        try {
+            // Make both the least recently used, the second one is still leased
+            Files.setLastModifiedTime(dir.resolve("cache").resolve(second.getInstallDir().getFileName() + ".entry"), FileTime.fromMillis(0L));
+            Files.setLastModifiedTime(dir.resolve("cache").resolve(first.getFileName() + ".entry"), FileTime.fromMillis(1000L));
+
+            final Path third;
+            try (BootableJarCache.Lease lease = cache.lease(createBootableJar(dir.resolve("third.jar"), 1024, null))) {
+                third = lease.getInstallDir();
+            }
+            assertFalse(Files.exists(first), "Expected the least recently used install directory to be deleted");
+            assertTrue(Files.exists(second.getInstallDir()), "Expected the leased install directory to be kept");
+            assertTrue(Files.exists(third), "Expected the current install directory to be kept");
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    void launchSkipsExtraction() throws Exception {
+        final Path jar = createBootableJar(dir.resolve("server-bootable.jar"), 10, PrintInstallDir.class);
+        final BootableJarCache cache = BootableJarCache.of(dir.resolve("cache"));
+        final BootableJarCommandBuilder builder = BootableJarCommandBuilder.of(jar)
+                .setExtractionCache(cache);
+        final Path installDir = launch(builder);
+        assertEquals(cache.getDirectory(), installDir.getParent());
+        assertTrue(Files.isRegularFile(installDir.resolve("jboss-modules.jar")), "Expected the server to be extracted");
+
+        // The lease is released once the process has exited, which is observed asynchronously
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+        while (true) {
+            try (BootableJarCache.Lease lease = cache.lease(jar)) {
+                if (installDir.equals(lease.getInstallDir())) {
+                    break;
+                }
+            }
+            assertTrue(System.nanoTime() < deadline, "The install directory was not released");
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+
+        final Path marker = Files.createFile(installDir.resolve("marker"));
+        assertEquals(installDir, launch(builder));
+        assertTrue(Files.exists(marker), "Expected the second launch to reuse the extracted server");
+    }
+
+    private Path launch(final BootableJarCommandBuilder builder) throws IOException, InterruptedException {
+        final Path stdout = dir.resolve("stdout.txt");
+        final Process process = Launcher.of(builder)
+                .setRedirectErrorStream(true)
+                .redirectOutput(stdout)
+                .launch();
+        try {
+            assertTrue(process.waitFor(30L, TimeUnit.SECONDS), "The process did not exit");
+            final String output = Files.readString(stdout).trim();
+            assertEquals(0, process.exitValue(), output);
+            return Path.of(output);
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    /**
+     * Creates a bootable JAR with a {@code wildfly.zip} containing a {@code jboss-modules.jar} of the size.
+     */
+    private static Path createBootableJar(final Path jar, final int size, final Class<?> mainClass) throws IOException {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (mainClass != null) {
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass.getName());
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH,
+                    mainClass.getProtectionDomain().getCodeSource().getLocation().toString());
+        }
+        final ByteArrayOutputStream serverZip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(serverZip)) {
+            out.putNextEntry(new ZipEntry("modules/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("jboss-modules.jar"));
+            out.write(new byte[size]);
+            out.closeEntry();
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            out.putNextEntry(new JarEntry("wildfly.zip"));
+            out.write(serverZip.toByteArray());
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    /**
+     * Prints the install directory passed to the bootable JAR.
+     */
+    public static class PrintInstallDir {
+        public static void main(final String[] args) {
+            for (String arg : args) {
+                if (arg.startsWith("--install-dir=")) {
+                    System.out.println(arg.substring("--install-dir=".length()));
+                }
+            }
+        }
+    }
+}
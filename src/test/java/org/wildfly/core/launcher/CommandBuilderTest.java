@@ -7,16 +7,25 @@ package org.wildfly.core.launcher;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.wildfly.core.launcher.Arguments.Argument;
 
 /**
@@ -242,6 +251,200 @@ class CommandBuilderTest {
         assertFalse(commands.contains("-b=0.0.0.0"), "Binding address should have been removed");
     }
 
+    @Test
+    void domainBuilderJavaHomes() throws Exception {
+        final Path javaHome = Paths.get(System.getProperty("java.home"));
+        // Use a different path for the host controller to ensure the Java home is resolved
+        final DomainCommandBuilder commandBuilder = DomainCommandBuilder.ofAsync(WILDFLY_HOME, javaHome, javaHome.resolve("."), null)
+                .get(30, TimeUnit.SECONDS);
+
+        assertEquals(javaHome, commandBuilder.getJavaHome());
+        assertEquals(javaHome.toAbsolutePath().normalize(), commandBuilder.getHostControllerJavaHome());
+        assertEquals(javaHome, commandBuilder.getServerJavaHome());
+
+        // If we're using Java 9+ ensure the modular JDK options were added
+        testModularJvmArguments(commandBuilder.buildArguments(), 2);
+    }
+
+    @Test
+    void cachedCommand() {
+        final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(WILDFLY_HOME)
+                .setServerConfiguration("standalone.xml");
+
+        final List<String> command = commandBuilder.build();
+        assertSame(command, commandBuilder.build());
+        assertSame(commandBuilder.buildArguments(), commandBuilder.buildArguments());
+        assertThrows(UnsupportedOperationException.class, () -> command.add("--admin-only"));
+
+        // Changing the builder should create a new command
+        commandBuilder.setAdminOnly();
+        final List<String> changed = commandBuilder.build();
+        assertNotSame(command, changed);
+        assertFalse(command.contains("--admin-only"), "The previous command should not have been modified");
+        assertTrue(changed.contains("--admin-only"), "Missing --admin-only");
+
+        commandBuilder.setDebug(5005);
+        assertTrue(commandBuilder.build().stream().anyMatch(arg -> arg.startsWith("-agentlib:jdwp")), "Missing the debug argument");
+    }
+
+    @Test
+    void template() {
+        final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(WILDFLY_HOME)
+                .addJavaOption("-Dtemplate=true");
+        final CommandTemplate<StandaloneCommandBuilder> template = commandBuilder.toTemplate();
+        // Changes to the original builder should not be reflected in the template
+        commandBuilder.addJavaOption("-Doriginal=true");
+
+        final List<String> first = template.fork()
+                .addJavaOption("-Djboss.socket.binding.port-offset=100")
+                .build();
+        final List<String> second = template.fork()
+                .addJavaOption("-Djboss.socket.binding.port-offset=200")
+                .setServerConfiguration("standalone-full.xml")
+                .build();
+
+        assertTrue(first.contains("-Dtemplate=true"), "Missing -Dtemplate=true");
+        assertTrue(first.contains("-Djboss.socket.binding.port-offset=100"), "Missing the port offset");
+        assertFalse(first.contains("-Doriginal=true"), "The template should not have been modified");
+        assertFalse(first.contains("-c=standalone-full.xml"), "The forked builders should not share changes");
+
+        assertTrue(second.contains("-Dtemplate=true"), "Missing -Dtemplate=true");
+        assertTrue(second.contains("-Djboss.socket.binding.port-offset=200"), "Missing the port offset");
+        assertFalse(second.contains("-Djboss.socket.binding.port-offset=100"), "The forked builders should not share changes");
+        assertTrue(second.contains("-c=standalone-full.xml"), "Missing -c=standalone-full.xml");
+
+        final List<String> unchanged = template.fork().build();
+        assertFalse(unchanged.stream().anyMatch(arg -> arg.startsWith("-Djboss.socket.binding.port-offset")),
+                "The template should not have been modified");
+    }
+
+    @Test
+    void classDataSharing(@TempDir final Path dir) throws Exception {
+        final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(WILDFLY_HOME)
+                .setClassDataSharing(dir);
+        final List<String> arguments = commandBuilder.buildArguments();
+        final int featureVersion = Runtime.version().feature();
+        if (featureVersion < 13) {
+            assertFalse(arguments.stream().anyMatch(arg -> arg.contains("SharedArchive") || arg.contains("ArchiveClasses")),
+                    () -> "Class data sharing is not supported on Java " + featureVersion + ": " + arguments);
+            return;
+        }
+        final String archiveArg = arguments.stream()
+                .filter(arg -> arg.startsWith("-XX:SharedArchiveFile=") || arg.startsWith("-XX:ArchiveClassesAtExit="))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Missing the class data sharing argument: " + arguments));
+        final Path archive = Path.of(archiveArg.substring(archiveArg.indexOf('=') + 1));
+        assertEquals(dir, archive.getParent());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0L, files.count(), "Building the arguments should not change any files");
+        }
+        if (featureVersion >= 19) {
+            assertTrue(arguments.contains("-XX:+AutoCreateSharedArchive"), "Missing -XX:+AutoCreateSharedArchive");
+        } else {
+            assertTrue(archiveArg.startsWith("-XX:ArchiveClassesAtExit="), "Expected the archive to be created");
+            final ClassDataSharing.Archive cdsArchive = commandBuilder.getClassDataSharingArchives().get(0);
+
+            // An incomplete dump is not used
+            final List<String> incomplete = new ArrayList<>(List.of(archiveArg));
+            final ClassDataSharing.Dump truncated = cdsArchive.prepare(incomplete);
+            final Path truncatedFile = Path.of(incomplete.get(0).substring(archiveArg.indexOf('=') + 1));
+            Files.write(truncatedFile, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            truncated.complete();
+            assertFalse(Files.exists(archive), "Expected the incomplete dump not to be used");
+            assertFalse(Files.exists(truncatedFile), "Expected the incomplete dump to be deleted");
+
+            // Each launch dumps to a file of its own which is renamed to the archive once complete
+            final List<String> command = new ArrayList<>(List.of(Jvm.current().getCommand(), archiveArg, "-version"));
+            final ClassDataSharing.Dump dump = cdsArchive.prepare(command);
+            assertFalse(command.contains(archiveArg), () -> "Expected the process to dump to its own file: " + command);
+            final Process process = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            assertTrue(process.waitFor(60L, TimeUnit.SECONDS), "The process did not exit");
+            dump.complete();
+            assertTrue(Files.isRegularFile(archive), "Expected the archive to be created");
+            assertTrue(commandBuilder.buildArguments().contains("-XX:SharedArchiveFile=" + archive),
+                    "Expected the archive to be used");
+        }
+
+        // Different JVM options require a different archive
+        commandBuilder.addJavaOption("-Dcds.test=true");
+        assertFalse(commandBuilder.buildArguments().stream().anyMatch(arg -> arg.endsWith(archive.toString())),
+                "Expected a different archive for different JVM options");
+
+        // Options from the user win
+        commandBuilder.addJavaOption("-Xshare:off");
+        assertFalse(commandBuilder.buildArguments().stream().anyMatch(arg -> arg.contains("SharedArchive") || arg.contains("ArchiveClasses")),
+                "Class data sharing should not be configured if the user configured it");
+    }
+
+    @Test
+    void flightRecording() {
+        final FlightRecording recording = FlightRecording.create()
+                .setSettings("profile")
+                .setMaxAge(1L, TimeUnit.HOURS)
+                .setMaxSize(100L * 1024L * 1024L);
+        final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(WILDFLY_HOME)
+                .setFlightRecording(recording);
+        assertTrue(commandBuilder.buildArguments().contains("-XX:StartFlightRecording=name=wildfly,settings=profile,disk=true," +
+                        "maxage=3600s,maxsize=104857600,dumponexit=true,filename=" + commandBuilder.getLogDirectory().resolve("standalone.jfr")),
+                () -> "Missing the flight recording: " + commandBuilder.buildArguments());
+
+        // The process controller and host controller each have a recording
+        final DomainCommandBuilder domainBuilder = DomainCommandBuilder.of(WILDFLY_HOME)
+                .setFlightRecording(recording.setDirectory(WILDFLY_HOME));
+        // The standalone builder keeps a copy and is not changed by the directory set on the recording
+        assertFalse(commandBuilder.buildArguments().stream().anyMatch(arg -> arg.startsWith("-XX:StartFlightRecording") && arg.endsWith(
+                        "filename=" + WILDFLY_HOME.toAbsolutePath().normalize().resolve("standalone.jfr"))),
+                () -> "The recording changed after it was set: " + commandBuilder.buildArguments());
+        final List<String> arguments = domainBuilder.buildArguments();
+        assertTrue(arguments.stream().anyMatch(arg -> arg.startsWith("-XX:StartFlightRecording") && arg.endsWith("process-controller.jfr")),
+                () -> "Missing the flight recording of the process controller: " + arguments);
+        assertTrue(arguments.stream().anyMatch(arg -> arg.startsWith("-XX:StartFlightRecording") && arg.endsWith(
+                        "filename=" + WILDFLY_HOME.toAbsolutePath().normalize().resolve("host-controller.jfr"))),
+                () -> "Missing the flight recording of the host controller: " + arguments);
+
+        // A recording started by the user wins
+        commandBuilder.addJavaOption("-XX:StartFlightRecording=filename=test.jfr");
+        assertEquals(1L, commandBuilder.buildArguments().stream().filter(arg -> arg.startsWith("-XX:StartFlightRecording")).count());
+    }
+
+    @Test
+    void flightRecordingInvalidValues() {
+        // The values are separated by a ',' in the -XX:StartFlightRecording option
+        final FlightRecording recording = FlightRecording.create();
+        assertThrows(IllegalArgumentException.class, () -> recording.setName("wildfly,disk=false"));
+        assertThrows(IllegalArgumentException.class, () -> recording.setSettings("profile,maxage=1s"));
+        assertThrows(IllegalArgumentException.class, () -> recording.setDirectory(Paths.get("logs,disk=false")));
+        assertEquals("wildfly", recording.getName());
+        assertEquals("default", recording.getSettings());
+
+        // The log directory is only known once the arguments are built
+        final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(WILDFLY_HOME)
+                .setLogDirectory(WILDFLY_HOME.resolve("logs,disk=false"))
+                .setFlightRecording(recording);
+        assertThrows(IllegalArgumentException.class, commandBuilder::buildArguments);
+    }
+
+    @Test
+    void managementAddress() {
+        final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(WILDFLY_HOME);
+        assertEquals(new InetSocketAddress("127.0.0.1", 9990), ManagementPortReadinessCheck.resolveAddress(commandBuilder));
+
+        commandBuilder.setBindAddressHint("management", "0.0.0.0")
+                .addJavaOption("-Djboss.management.http.port=10090")
+                .addJavaOption("-Djboss.socket.binding.port-offset=100");
+        assertEquals(new InetSocketAddress(InetAddress.getLoopbackAddress(), 10190),
+                ManagementPortReadinessCheck.resolveAddress(commandBuilder));
+
+        // The port offset is not applied to the host controller management interface
+        final DomainCommandBuilder domainBuilder = DomainCommandBuilder.of(WILDFLY_HOME)
+                .addHostControllerJavaOption("-Djboss.management.http.port=10090")
+                .addHostControllerJavaOption("-Djboss.socket.binding.port-offset=100");
+        assertEquals(new InetSocketAddress("127.0.0.1", 10090), ManagementPortReadinessCheck.resolveAddress(domainBuilder));
+    }
+
     @Test
     void cliBuilder() {
         // Set up a standalone command builder
@@ -0,0 +1,69 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class GcProfileTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void lowLatency() throws Exception {
+        assertEquals(List.of("-XX:+UseZGC"), GcProfile.LOW_LATENCY.resolve(createJvm("17.0.9"), List.of()));
+        assertEquals(List.of("-XX:+UseZGC", "-XX:+ZGenerational"), GcProfile.LOW_LATENCY.resolve(createJvm("21.0.5"), List.of()));
+        // Generational ZGC is the default and the option is deprecated
+        assertEquals(List.of("-XX:+UseZGC"), GcProfile.LOW_LATENCY.resolve(createJvm("25"), List.of()));
+
+        final Jvm jvm = createJvm("11.0.21");
+        final IllegalStateException e = assertThrows(IllegalStateException.class, () -> GcProfile.LOW_LATENCY.resolve(jvm, List.of()));
+        assertTrue(e.getMessage().contains("Java 15"), () -> "Expected the required version in the message: " + e.getMessage());
+    }
+
+    @Test
+    void lowFootprint() throws Exception {
+        assertEquals(List.of("-XX:+UseSerialGC", "-XX:MinHeapFreeRatio=10", "-XX:MaxHeapFreeRatio=20"),
+                GcProfile.LOW_FOOTPRINT.resolve(createJvm("21.0.5"), List.of()));
+        assertEquals(List.of("-XX:+UseSerialGC", "-XX:MinHeapFreeRatio=10", "-XX:MaxHeapFreeRatio=20", "-XX:+UseCompactObjectHeaders"),
+                GcProfile.LOW_FOOTPRINT.resolve(createJvm("25.0.1"), List.of()));
+    }
+
+    @Test
+    void javaOptions() throws Exception {
+        final Jvm jvm = createJvm("21.0.5");
+        // Options already present are not added again
+        assertEquals(List.of(), GcProfile.EPHEMERAL_TEST.resolve(jvm, List.of("-XX:+UseSerialGC", "-XX:TieredStopAtLevel=4")));
+        // A different collector cannot be used
+        assertThrows(IllegalStateException.class, () -> GcProfile.THROUGHPUT.resolve(jvm, List.of("-XX:+UseG1GC")));
+
+        final StandaloneCommandBuilder builder = StandaloneCommandBuilder.of(Paths.get(System.getProperty("jboss.home")))
+                .setGcProfile(GcProfile.THROUGHPUT);
+        assertTrue(builder.buildArguments().contains("-XX:+UseParallelGC"), () -> "Missing -XX:+UseParallelGC: " + builder.buildArguments());
+        builder.addJavaOption("-XX:+UseShenandoahGC");
+        assertThrows(IllegalStateException.class, builder::buildArguments);
+        builder.setGcProfile(null);
+        assertFalse(builder.buildArguments().contains("-XX:+UseParallelGC"));
+    }
+
+    private Jvm createJvm(final String version) throws IOException {
+        return Jvm.of(JvmTest.createFakeJavaHome(dir, version));
+    }
+}
@@ -6,18 +6,32 @@
 package org.wildfly.core.launcher;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -27,29 +41,107 @@ import org.junit.jupiter.params.provider.MethodSource;
  */
 class JvmTest {
 
+    @TempDir
+    private Path dir;
+
     @ParameterizedTest
     @MethodSource("testReleases")
     void releaseFile(final String version, final boolean isModular, final boolean isSecurityManagerSupported) throws Exception {
-        final Path javaHome = createFakeJavaHome(version);
+        final Jvm jvm = Jvm.of(createFakeJavaHome(dir, version));
+        assertEquals(isModular, jvm.isModular(), () -> String.format("Expected version %s to %s a modular JVM", version, (isModular ? "be" : "not be")));
+        assertEquals(isSecurityManagerSupported, jvm.isSecurityManagerSupported(), () ->
+                String.format("Expected version %s to %s support the security manager", version, (isSecurityManagerSupported ? "" : "not")));
+    }
+
+    @Test
+    void cachedJvm() throws Exception {
+        final Path javaHome = createFakeJavaHome(dir, "17.0.1");
+        final Jvm jvm = Jvm.of(javaHome);
+        assertEquals(17, jvm.getFeatureVersion());
+        assertSame(jvm, Jvm.of(javaHome), "Expected the JVM to be resolved from the cache");
+        assertSame(jvm, Jvm.of(javaHome.toString()), "Expected the JVM to be resolved from the cache");
+
+        // Changing the release file should invalidate the cached entry, even if the size and timestamp are the same
+        final Path release = javaHome.resolve("release");
+        final FileTime lastModified = Files.getLastModifiedTime(release);
+        Files.write(release, Collections.singleton(String.format("JAVA_VERSION=\"%s\"%n", "24.0.1")), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(release, lastModified);
+        final Jvm changed = Jvm.of(javaHome);
+        assertNotSame(jvm, changed, "Expected the JVM to be resolved again after the release file changed");
+        assertFalse(changed.isSecurityManagerSupported(), "Expected version 24.0.1 to not support the security manager");
+        assertEquals(24, changed.getFeatureVersion());
+    }
+
+    @Test
+    void concurrentResolution() throws Exception {
+        final Path javaHome = createFakeJavaHome(dir, "17.0.1");
+        final List<CompletableFuture<Jvm>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> Jvm.of(javaHome)));
+        }
+        final Jvm jvm = futures.get(0).get(30L, TimeUnit.SECONDS);
+        for (CompletableFuture<Jvm> future : futures) {
+            assertSame(jvm, future.get(30L, TimeUnit.SECONDS), "Expected the Java home to be resolved once");
+        }
+    }
+
+    @Test
+    void inspectedPackages() {
+        // Use a different path to the current Java home to ensure the Java home is inspected
+        final Jvm jvm = Jvm.of(Path.of(System.getProperty("java.home"), "."));
+        for (String arg : JBossModulesCommandBuilder.OPTIONAL_DEFAULT_MODULAR_VM_ARGUMENTS) {
+            assertEquals(Jvm.current().isPackageAvailable(arg), jvm.isPackageAvailable(arg),
+                    () -> String.format("Expected the inspected availability of %s to match the current JVM", arg));
+        }
+    }
+
+    @Test
+    void persistentStore() throws Exception {
+        final Path javaHome = createFakeJavaHome(dir, "21.0.5");
+        final Path storeDir = dir.resolve("jvm-cache");
+        final String currentValue = System.getProperty(JvmCapabilityStore.CACHE_DIR_PROPERTY);
         try {
-            final Jvm jvm = Jvm.of(javaHome);
-            assertEquals(isModular, jvm.isModular(), () -> String.format("Expected version %s to %s a modular JVM", version, (isModular ? "be" : "not be")));
-            assertEquals(isSecurityManagerSupported, jvm.isSecurityManagerSupported(), () ->
-                    String.format("Expected version %s to %s support the security manager", version, (isSecurityManagerSupported ? "" : "not")));
+            System.setProperty(JvmCapabilityStore.CACHE_DIR_PROPERTY, storeDir.toString());
+            final JvmCapabilityStore store = JvmCapabilityStore.getInstance();
+            assertNotNull(store, "Expected the store to be enabled");
+            assertNull(store.read(javaHome), "Expected no entry for a new Java home");
+
+            store.write(javaHome, new Jvm.Capabilities(17, true, false, true, Map.of("--add-opens=java.base/test=ALL-UNNAMED", true)));
+            final Jvm.Capabilities capabilities = store.read(javaHome);
+            assertNotNull(capabilities, "Expected the capabilities to be read from the store");
+            assertEquals(17, capabilities.feature);
+            assertTrue(capabilities.modular);
+            assertFalse(capabilities.securityManager);
+            assertTrue(capabilities.enhancedSecurityManager);
+            assertEquals(Map.of("--add-opens=java.base/test=ALL-UNNAMED", true), capabilities.packages);
+
+            // Writing the same capabilities does not rewrite the file
+            final Path file = storeDir.resolve("jvm-capabilities-v2.properties");
+            Files.setLastModifiedTime(file, FileTime.fromMillis(0L));
+            store.write(javaHome, capabilities);
+            assertEquals(FileTime.fromMillis(0L), Files.getLastModifiedTime(file), "Expected the file not to be rewritten");
+
+            // Changing the release file changes the fingerprint of the Java home
+            Files.write(javaHome.resolve("release"), Collections.singleton("JAVA_VERSION=\"21.0.6\""), StandardCharsets.UTF_8);
+            assertNull(store.read(javaHome), "Expected the entry to be invalid after the release file changed");
+
+            // Rewriting the file removes the entries which are no longer valid
+            store.write(javaHome, new Jvm.Capabilities(21, true, false, true, Map.of()));
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            assertEquals(1L, properties.stringPropertyNames().stream().filter(name -> name.endsWith(".path")).count(),
+                    () -> "Expected the stale entry to be removed: " + properties);
+            assertFalse(properties.stringPropertyNames().stream().anyMatch(name -> name.contains(".package.")),
+                    () -> "Expected the packages of the stale entry to be removed: " + properties);
+            assertEquals(21, store.read(javaHome).feature);
         } finally {
-            Files.walkFileTree(javaHome, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-                    Files.delete(file);
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
-                    Files.delete(dir);
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+            if (currentValue == null) {
+                System.clearProperty(JvmCapabilityStore.CACHE_DIR_PROPERTY);
+            } else {
+                System.setProperty(JvmCapabilityStore.CACHE_DIR_PROPERTY, currentValue);
+            }
         }
     }
 
@@ -74,8 +166,29 @@ class JvmTest {
         );
     }
 
-    private static Path createFakeJavaHome(final String version) throws IOException {
-        final Path javaHome = Files.createTempDirectory("fake-java-home");
+    @Test
+    void processOutputWarning() throws Exception {
+        assertFalse(Jvm.containsWarning(new ByteArrayInputStream("openjdk version \"17.0.1\"\n".getBytes(StandardCharsets.UTF_8))));
+        assertTrue(Jvm.containsWarning(new ByteArrayInputStream(
+                "WARNING: Unknown module: jdk.unsupported specified to --add-opens\nopenjdk version \"17.0.1\"\n".getBytes(StandardCharsets.UTF_8))));
+        // Output past the scan limit is discarded
+        final String output = "x".repeat(128 * 1024) + "\nWARNING: too late\n";
+        final ByteArrayInputStream in = new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8));
+        assertFalse(Jvm.containsWarning(in));
+        assertEquals(0, in.available());
+    }
+
+    /**
+     * Creates a Java home, which only contains an empty {@code java} executable and a {@code release} file, in the
+     * directory.
+     *
+     * @param dir     the directory to create the Java home in
+     * @param version the version written to the {@code release} file
+     *
+     * @return the Java home
+     */
+    static Path createFakeJavaHome(final Path dir, final String version) throws IOException {
+        final Path javaHome = Files.createDirectories(dir.resolve(version));
         Files.createFile(Files.createDirectory(javaHome.resolve("bin"))
                 .resolve(Environment.isWindows() ? "java.exe" : "java"));
         final Path releaseFile = javaHome.resolve("release");
@@ -6,20 +6,39 @@
 package org.wildfly.core.launcher;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -55,6 +74,465 @@ class LauncherTest {
         checkProcess(Launcher.of(commandBuilder).addEnvironmentVariables(env));
     }
 
+    @Test
+    void argumentFile(@TempDir final Path dir) throws Exception {
+        final TestCommandBuilder commandBuilder = new TestCommandBuilder("-Dtest.property=value with spaces", "-version");
+        checkProcess(Launcher.of(commandBuilder).setArgumentFileDirectory(dir));
+        // Launching the same command should reuse the file
+        checkProcess(Launcher.of(commandBuilder).setArgumentFileDirectory(dir));
+        try (Stream<Path> files = Files.list(dir)) {
+            final List<Path> argFiles = files.collect(Collectors.toList());
+            assertEquals(1, argFiles.size(), () -> "Expected a single argument file: " + argFiles);
+            final String fileName = argFiles.get(0).getFileName().toString();
+            assertTrue(fileName.startsWith(ArgumentFile.FILE_PREFIX) && fileName.endsWith(ArgumentFile.FILE_SUFFIX),
+                    () -> "Unexpected argument file " + fileName);
+        }
+    }
+
+    @Test
+    void batchLaunch() throws Exception {
+        final List<TestCommandBuilder> builders = List.of(new TestCommandBuilder(), new TestCommandBuilder(),
+                new TestCommandBuilder(), new TestCommandBuilder(), new TestCommandBuilder());
+        final AtomicInteger starting = new AtomicInteger();
+        final AtomicInteger maxStarting = new AtomicInteger();
+        final BatchLauncher.Result result = BatchLauncher.of(builders)
+                .setMaxConcurrency(2)
+                .setLauncherConfigurator((launcher, index) -> launcher.setRedirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD))
+                .setReadinessCheck((instance, timeout, unit) -> {
+                    maxStarting.accumulateAndGet(starting.incrementAndGet(), Math::max);
+                    try {
+                        return instance.getProcess().waitFor(timeout, unit) && instance.getProcess().exitValue() == 0;
+                    } finally {
+                        starting.decrementAndGet();
+                    }
+                })
+                .launch();
+        try {
+            assertTrue(result.isAllReady(), () -> "Expected all instances to be ready: " + result.getFailedInstances());
+            assertEquals(builders.size(), result.getInstances().size());
+            assertTrue(maxStarting.get() <= 2, () -> "Expected at most 2 instances starting at once, found " + maxStarting.get());
+            for (int i = 0; i < builders.size(); i++) {
+                final LaunchedInstance instance = result.getInstances().get(i);
+                assertEquals(i, instance.getIndex());
+                assertNotNull(instance.getStartupTime(), "Expected a startup time for a ready instance");
+            }
+        } finally {
+            for (LaunchedInstance instance : result.getInstances()) {
+                ProcessHelper.destroyProcess(instance.getProcess());
+            }
+        }
+    }
+
+    @Test
+    void batchLaunchInterrupted() throws Exception {
+        final List<TestCommandBuilder> builders = List.of(new TestCommandBuilder(), new TestCommandBuilder(),
+                new TestCommandBuilder());
+        final CountDownLatch starting = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final Thread interrupter = new Thread(() -> {
+            try {
+                starting.await();
+                caller.interrupt();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        interrupter.start();
+        final BatchLauncher.Result result = BatchLauncher.of(builders)
+                .setMaxConcurrency(1)
+                .setLauncherConfigurator((launcher, index) -> launcher.setRedirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD))
+                .setReadinessCheck((instance, timeout, unit) -> {
+                    starting.countDown();
+                    TimeUnit.MINUTES.sleep(1L);
+                    return true;
+                })
+                .launch();
+        try {
+            assertTrue(Thread.interrupted(), "Expected the interrupt status to be set");
+            final LaunchedInstance first = result.getInstances().get(0);
+            assertNotNull(first.getProcess(), "Expected the process of the launched instance to be returned");
+            assertFalse(result.isAllReady());
+            for (LaunchedInstance instance : result.getInstances().subList(1, builders.size())) {
+                assertNull(instance.getProcess(), () -> "Expected the instance not to be launched: " + instance);
+                assertTrue(instance.getFailure() instanceof InterruptedException, () -> "Unexpected failure: " + instance.getFailure());
+            }
+        } finally {
+            interrupter.join();
+            for (LaunchedInstance instance : result.getInstances()) {
+                ProcessHelper.destroyProcess(instance.getProcess());
+            }
+        }
+    }
+
+    @Test
+    void batchPortOffsets() throws Exception {
+        final StandaloneCommandBuilder builder = StandaloneCommandBuilder.of(Path.of(System.getProperty("jboss.home")));
+        final List<String> serverArguments = builder.getServerArguments();
+        final BatchLauncher batchLauncher = BatchLauncher.of(List.of(builder))
+                .setPortOffsets(100, 100)
+                .setLauncherConfigurator((launcher, index) -> launcher.setRedirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD));
+        // Launching the batch again assigns the same port offset, the offsets do not accumulate on the builder
+        for (int i = 0; i < 2; i++) {
+            final BatchLauncher.Result result = batchLauncher.launch();
+            try {
+                final LaunchedInstance instance = result.getInstances().get(0);
+                assertEquals(100, instance.getPortOffset());
+                assertEquals(serverArguments, builder.getServerArguments());
+                assertEquals(ManagementPortReadinessCheck.DEFAULT_PORT + 100, ManagementPortReadinessCheck.resolveAddress(builder, instance.getServerArguments()).getPort());
+            } finally {
+                for (LaunchedInstance instance : result.getInstances()) {
+                    ProcessHelper.destroyProcess(instance.getProcess());
+                }
+            }
+        }
+    }
+
+    @Test
+    void batchPortOffsetsDomain() {
+        final DomainCommandBuilder builder = DomainCommandBuilder.of(Path.of(System.getProperty("jboss.home")));
+        final BatchLauncher batchLauncher = BatchLauncher.of(List.of(builder));
+        assertThrows(IllegalArgumentException.class, () -> batchLauncher.setPortOffsets(100, 100));
+    }
+
+    @Test
+    void bootLogReadiness(@TempDir final Path dir) throws Exception {
+        final Path bootLog = dir.resolve("server.log");
+        // The messages of a previous boot are not checked
+        Files.writeString(bootLog, "ERROR [org.jboss.as] WFLYSRV0056: Server boot has failed in an unrecoverable manner\n");
+        final BootLogReadinessCheck check = BootLogReadinessCheck.of(bootLog);
+        final Process process = launchProcessTree();
+        final Thread writer = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100L);
+                append(bootLog, "INFO  [org.jboss.as] WFLYSRV0049: WildFly starting\n");
+                TimeUnit.MILLISECONDS.sleep(100L);
+                // The message is split across reads of the file
+                append(bootLog, "INFO  [org.jboss.as] WFLYSRV00");
+                TimeUnit.MILLISECONDS.sleep(100L);
+                append(bootLog, "25: WildFly started in 1000ms\n");
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            writer.start();
+            assertTrue(check.awaitReady(process, 10L, TimeUnit.SECONDS), "Expected the server to be ready");
+        } finally {
+            writer.join();
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void bootLogStartedWithErrors(@TempDir final Path dir) throws Exception {
+        final Path bootLog = dir.resolve("server.log");
+        final BootLogReadinessCheck check = BootLogReadinessCheck.of(bootLog);
+        final BootLogReadinessCheck failOnErrors = BootLogReadinessCheck.of(bootLog).setFailOnErrors(true);
+        Files.writeString(bootLog, "ERROR [org.jboss.as] WFLYSRV0026: WildFly started (with errors) in 1000ms\n");
+        final Process process = launchProcessTree();
+        try {
+            assertTrue(check.awaitReady(process, 10L, TimeUnit.SECONDS), "Expected the server to be ready");
+            assertThrows(IllegalStateException.class, () -> failOnErrors.awaitReady(process, 10L, TimeUnit.SECONDS));
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void bootLogBootFailed(@TempDir final Path dir) throws Exception {
+        final Path bootLog = dir.resolve("server.log");
+        final BootLogReadinessCheck check = BootLogReadinessCheck.of(bootLog);
+        Files.writeString(bootLog, "ERROR [org.jboss.as] WFLYSRV0056: Server boot has failed in an unrecoverable manner\n");
+        final Process process = launchProcessTree();
+        try {
+            final long start = System.nanoTime();
+            assertThrows(IllegalStateException.class, () -> check.awaitReady(process, 30L, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10L), "Expected the check to fail before the timeout");
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void bootLogProcessExited(@TempDir final Path dir) throws Exception {
+        final Path bootLog = dir.resolve("server.log");
+        final BootLogReadinessCheck check = BootLogReadinessCheck.of(bootLog);
+        Files.writeString(bootLog, "INFO  [org.jboss.as] WFLYSRV0049: WildFly starting\n");
+        final Process process = Launcher.of(new TestCommandBuilder())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .setRedirectErrorStream(true)
+                .launch();
+        assertTrue(process.waitFor(5L, TimeUnit.SECONDS), "Process should have exited within 5 seconds");
+        final long start = System.nanoTime();
+        assertFalse(check.awaitReady(process, 30L, TimeUnit.SECONDS), "Expected the server to not be ready");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10L), "Expected the check to fail before the timeout");
+    }
+
+    @Test
+    void bootLogBeforeLaunch(@TempDir final Path dir) throws Exception {
+        final Path bootLog = dir.resolve("server.log");
+        final BootLogReadinessCheck check = BootLogReadinessCheck.of(bootLog);
+        Files.writeString(bootLog, "ERROR [org.jboss.as] WFLYSRV0056: Server boot has failed in an unrecoverable manner\n");
+        // The position of the log file is recorded before the instance is launched
+        final LaunchedInstance instance = new LaunchedInstance(0, 0, new TestCommandBuilder(), List.of());
+        check.beforeLaunch(instance);
+        append(bootLog, "INFO  [org.jboss.as] WFLYSRV0025: WildFly started in 1000ms\n");
+        final Process process = launchProcessTree();
+        try {
+            instance.launched(process, Duration.ZERO);
+            assertTrue(check.awaitReady(instance, 10L, TimeUnit.SECONDS), "Expected the server to be ready");
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void managementPortReadiness() throws Exception {
+        final ManagementPortReadinessCheck check;
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            check = ManagementPortReadinessCheck.of(InetAddress.getLoopbackAddress().getHostAddress(), serverSocket.getLocalPort())
+                    .setBackoff(1L, 10L, TimeUnit.MILLISECONDS);
+            assertTrue(check.awaitReady((Process) null, 5L, TimeUnit.SECONDS), "Expected the port to accept connections");
+            assertEquals(1L, check.getReadyLatencies().getCount());
+        }
+        // The port is closed, the check should time out
+        assertFalse(check.awaitReady((Process) null, 100L, TimeUnit.MILLISECONDS), "Expected the port to be closed");
+        assertEquals(1L, check.getReadyLatencies().getCount());
+        assertTrue(check.getConnectLatencies().getCount() > 1L, () -> "Expected multiple connection attempts: " + check.getConnectLatencies());
+    }
+
+    @Test
+    void shutdownProcessTree() throws Exception {
+        final TestCommandBuilder commandBuilder = new TestCommandBuilder("-cp", System.getProperty("java.class.path"),
+                ProcessTree.class.getName(), "1");
+        final Process process = Launcher.of(commandBuilder)
+                .setRedirectErrorStream(true)
+                .redirectOutput(stdout)
+                .launch();
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+            while (process.descendants().count() < 1L) {
+                assertTrue(process.isAlive(), () -> "The process exited: " + readStdout());
+                assertTrue(System.nanoTime() < deadline, "The child process was not started");
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            final ShutdownResult result = ProcessHelper.shutdown(process, 30L, TimeUnit.SECONDS);
+            assertTrue(result.isTerminated(), () -> "Expected all processes to have exited: " + result);
+            assertEquals(2, result.getProcesses().size(), () -> "Expected the process and its child: " + result);
+            assertEquals(process.pid(), result.getProcesses().get(0).getPid());
+            assertFalse(process.isAlive(), "The process should have exited");
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void monitorProcessTree() throws Exception {
+        final TestCommandBuilder commandBuilder = new TestCommandBuilder("-cp", System.getProperty("java.class.path"),
+                ProcessTree.class.getName(), "1");
+        final Process process = Launcher.of(commandBuilder)
+                .setRedirectErrorStream(true)
+                .redirectOutput(stdout)
+                .launch();
+        final Map<Long, ResourceSample> samples = new ConcurrentHashMap<>();
+        try (ProcessMonitor monitor = ProcessMonitor.create()
+                .setInterval(50L, TimeUnit.MILLISECONDS)
+                .addListener(sample -> samples.put(sample.getPid(), sample))) {
+            monitor.monitor(process);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+            // Wait until both JVMs are running, a freshly forked child may be sampled before its threads are started
+            final boolean procSupported = Files.isDirectory(Path.of("/proc"));
+            while (samples.size() < 2 || (procSupported && samples.values().stream().anyMatch(s -> s.getThreads() <= 1))) {
+                assertTrue(process.isAlive(), () -> "The process exited: " + readStdout());
+                assertTrue(System.nanoTime() < deadline, () -> "Expected the process and its child to be sampled: " + samples);
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            assertTrue(samples.containsKey(process.pid()), () -> "The process was not sampled: " + samples);
+            for (ResourceSample sample : samples.values()) {
+                assertEquals(process.pid(), sample.getRootPid());
+                assertNotNull(sample.getCpuTime(), () -> "Expected the CPU time to be sampled: " + sample);
+                if (procSupported) {
+                    assertTrue(sample.getResidentSetSize() > 0L, () -> "Expected the RSS to be sampled: " + sample);
+                    assertTrue(sample.getThreads() > 1, () -> "Expected the threads to be sampled: " + sample);
+                    assertTrue(sample.getOpenFiles() > 0, () -> "Expected the open files to be sampled: " + sample);
+                }
+            }
+            assertEquals(samples.keySet(), monitor.getSnapshot().stream()
+                    .map(ResourceSample::getPid)
+                    .collect(Collectors.toSet()));
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void dumpFlightRecording(@TempDir final Path dir) throws Exception {
+        final FlightRecording recording = FlightRecording.create()
+                .setMaxAge(5L, TimeUnit.MINUTES);
+        final List<String> arguments = new ArrayList<>(recording.resolve("test", Jvm.current(), dir, List.of()));
+        arguments.addAll(List.of("-cp", System.getProperty("java.class.path"), ProcessTree.class.getName(), "0"));
+        final Process process = Launcher.of(new TestCommandBuilder(arguments.toArray(new String[0])))
+                .setRedirectErrorStream(true)
+                .redirectOutput(stdout)
+                .launch();
+        try {
+            // The recording is started before the main method is invoked
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+            while (!Files.readString(stdout).contains("Started recording")) {
+                assertTrue(process.isAlive(), () -> "The process exited: " + readStdout());
+                assertTrue(System.nanoTime() < deadline, "The recording was not started");
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            final List<Path> files = recording.dump(process.toHandle(), Jvm.current().getPath(), dir);
+            if (Files.exists(Jvm.current().getPath().resolve("bin").resolve(Environment.isWindows() ? "jcmd.exe" : "jcmd"))) {
+                assertEquals(List.of(dir.resolve("wildfly-" + process.pid() + ".jfr")), files);
+            }
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void dumpFlightRecordingFailed(@TempDir final Path dir) throws Exception {
+        assumeFalse(Environment.isWindows(), "The fake jcmd is a shell script");
+        final Path javaHome = dir.resolve("java");
+        final Path jcmd = Files.createDirectories(javaHome.resolve("bin")).resolve("jcmd");
+        Files.writeString(jcmd, "#!/bin/sh\necho 'Unable to attach'\nexit 3\n");
+        Files.setPosixFilePermissions(jcmd, PosixFilePermissions.fromString("rwxr-xr-x"));
+        final Process process = launchProcessTree();
+        try {
+            final IOException e = assertThrows(IOException.class, () -> FlightRecording.create()
+                    .dump(process.toHandle(), javaHome, dir));
+            assertTrue(e.getMessage().contains("Unable to attach"), () -> "Expected the output of jcmd: " + e.getMessage());
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void sharedShutdownHook() throws Exception {
+        final Process first = launchProcessTree();
+        final Process second = launchProcessTree();
+        try {
+            final ShutdownHook firstHook = ProcessHelper.registerShutdownHook(first);
+            final ShutdownHook secondHook = ProcessHelper.registerShutdownHook(second);
+            assertSame(first, firstHook.getProcess());
+            // Removing the registration of one process keeps the other one registered
+            assertTrue(firstHook.remove(), "Expected the process to be registered");
+            assertFalse(firstHook.remove(), "Expected the process to be unregistered");
+            ProcessHelper.destroyProcess(second);
+            // The processes are removed asynchronously once they exit
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+            while (ShutdownHookRegistry.INSTANCE.size() > 0) {
+                assertTrue(System.nanoTime() < deadline, "The processes were not removed after they exited");
+                TimeUnit.MILLISECONDS.sleep(10L);
+            }
+            assertFalse(secondHook.remove(), "Expected the process to be unregistered once it exited");
+        } finally {
+            ProcessHelper.destroyProcess(first);
+            ProcessHelper.destroyProcess(second);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void addShutdownHook() throws Exception {
+        final Process process = Launcher.of(new TestCommandBuilder()).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .setRedirectErrorStream(true).launch();
+        try {
+            // The thread returned is the registered shutdown hook
+            final Thread hook = ProcessHelper.addShutdownHook(process);
+            assertTrue(Runtime.getRuntime().removeShutdownHook(hook), "Expected the thread to be registered");
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void consumeOutput() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CountDownLatch closed = new CountDownLatch(1);
+        final OutputSink delegate = OutputSink.of(out);
+        final Process process = Launcher.of(new TestCommandBuilder("-XshowSettings:properties", "-version"))
+                .setRedirectErrorStream(true)
+                .consumeOutput(new OutputSink() {
+                    @Override
+                    public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+                        delegate.write(buffer, offset, length);
+                    }
+
+                    @Override
+                    public void close() {
+                        closed.countDown();
+                    }
+                })
+                .launch();
+        try {
+            assertTrue(process.waitFor(5, TimeUnit.SECONDS), "Process should have exited within 5 seconds");
+            assertTrue(closed.await(5, TimeUnit.SECONDS), "The sink should have been closed");
+            final String output = out.toString(StandardCharsets.UTF_8);
+            assertTrue(output.contains("java.home"), () -> "Expected the properties in the output: " + output);
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    @Test
+    void consumeOutputSharedThreads() throws Exception {
+        final int count = 40;
+        final List<Process> processes = new ArrayList<>();
+        final List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final OutputSink delegate = OutputSink.of(out);
+                outputs.add(out);
+                processes.add(Launcher.of(new TestCommandBuilder("-XshowSettings:properties", "-version"))
+                        .setRedirectErrorStream(true)
+                        .consumeOutput(new OutputSink() {
+                            @Override
+                            public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+                                delegate.write(buffer, offset, length);
+                            }
+
+                            @Override
+                            public void close() {
+                                closed.countDown();
+                            }
+                        })
+                        .launch());
+            }
+            // The streams are polled from a small shared pool rather than a thread per stream
+            final long threads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("wildfly-launcher-output-"))
+                    .count();
+            assertTrue(threads <= 4, () -> "Expected at most 4 threads reading the output, found " + threads);
+            assertTrue(closed.await(60, TimeUnit.SECONDS), "The sinks should have been closed");
+            for (ByteArrayOutputStream out : outputs) {
+                final String output = out.toString(StandardCharsets.UTF_8);
+                assertTrue(output.contains("java.home"), () -> "Expected the properties in the output: " + output);
+            }
+        } finally {
+            for (Process process : processes) {
+                ProcessHelper.destroyProcess(process);
+            }
+        }
+    }
+
+    private static void append(final Path file, final String text) throws IOException {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+
+    private static Process launchProcessTree() throws IOException {
+        return Launcher.of(new TestCommandBuilder("-cp", System.getProperty("java.class.path"), ProcessTree.class.getName(), "0"))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .setRedirectErrorStream(true)
+                .launch();
+    }
+
     private void checkProcess(final Launcher launcher) throws IOException, InterruptedException {
         Process process = null;
         try {
@@ -67,18 +545,52 @@ class LauncherTest {
         }
     }
 
+    private String readStdout() {
+        try {
+            return Files.readString(stdout);
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+
     /**
      * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
      */
     private static class TestCommandBuilder implements CommandBuilder {
+        private final List<String> arguments;
+
+        private TestCommandBuilder(final String... arguments) {
+            this.arguments = arguments.length == 0 ? List.of("-version") : List.of(arguments);
+        }
+
         @Override
         public List<String> buildArguments() {
-            return List.of();
+            return arguments;
         }
 
         @Override
         public List<String> build() {
-            return List.of(Jvm.current().getCommand(), "-version");
+            final List<String> command = new ArrayList<>();
+            command.add(Jvm.current().getCommand());
+            command.addAll(arguments);
+            return command;
+        }
+    }
+
+    /**
+     * Launches the number of child processes passed as the first argument, each one as a child of the previous one,
+     * and then waits to be terminated.
+     */
+    public static class ProcessTree {
+        public static void main(final String[] args) throws Exception {
+            final int depth = Integer.parseInt(args[0]);
+            if (depth > 0) {
+                new ProcessBuilder(Jvm.current().getCommand(), "-cp", System.getProperty("java.class.path"),
+                        ProcessTree.class.getName(), Integer.toString(depth - 1))
+                        .inheritIO()
+                        .start();
+            }
+            Thread.sleep(TimeUnit.MINUTES.toMillis(5L));
         }
     }
 }
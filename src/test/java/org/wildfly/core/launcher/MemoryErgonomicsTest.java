@@ -0,0 +1,166 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class MemoryErgonomicsTest {
+    private static final long GB = 1024L * 1024L * 1024L;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void cgroupV2() throws Exception {
+        final Path root = dir.resolve("cgroup");
+        final Path group = Files.createDirectories(root.resolve("kubepods/pod1"));
+        Files.writeString(root.resolve("cgroup.controllers"), "cpu memory\n");
+        Files.writeString(root.resolve("kubepods").resolve("memory.max"), "4294967296\n");
+        Files.writeString(group.resolve("memory.max"), "max\n");
+        Files.writeString(group.resolve("cpu.max"), "150000 100000\n");
+        final Path cgroup = Files.writeString(dir.resolve("self-cgroup"), "0::/kubepods/pod1\n");
+        final Path meminfo = Files.writeString(dir.resolve("meminfo"), "MemTotal:       16777216 kB\nMemFree:         1024 kB\n");
+
+        final ContainerResources resources = ContainerResources.read(root, cgroup, meminfo, 8);
+        // The limit of the parent applies
+        assertEquals(4L * GB, resources.getMemory());
+        assertEquals(2, resources.getProcessors());
+    }
+
+    @Test
+    void cgroupV1() throws Exception {
+        final Path root = dir.resolve("cgroup");
+        Files.createDirectories(root.resolve("memory"));
+        Files.createDirectories(root.resolve("cpu"));
+        // No limit is reported as a value close to Long.MAX_VALUE
+        Files.writeString(root.resolve("memory").resolve("memory.limit_in_bytes"), "9223372036854771712\n");
+        Files.writeString(root.resolve("cpu").resolve("cpu.cfs_quota_us"), "-1\n");
+        Files.writeString(root.resolve("cpu").resolve("cpu.cfs_period_us"), "100000\n");
+        final Path cgroup = Files.writeString(dir.resolve("self-cgroup"), "4:memory:/not/visible\n1:cpu:/\n");
+        final Path meminfo = Files.writeString(dir.resolve("meminfo"), "MemTotal:       8388608 kB\n");
+
+        ContainerResources resources = ContainerResources.read(root, cgroup, meminfo, 4);
+        assertEquals(8L * GB, resources.getMemory());
+        assertEquals(4, resources.getProcessors());
+
+        Files.writeString(root.resolve("memory").resolve("memory.limit_in_bytes"), Long.toString(2L * GB));
+        Files.writeString(root.resolve("cpu").resolve("cpu.cfs_quota_us"), "50000\n");
+        resources = ContainerResources.read(root, cgroup, meminfo, 4);
+        assertEquals(2L * GB, resources.getMemory());
+        assertEquals(1, resources.getProcessors());
+    }
+
+    @Test
+    void profiles() {
+        final MemoryErgonomics ergonomics = MemoryErgonomics.of(ContainerResources.of(8L * GB, 8));
+        assertEquals(List.of("-Djava.awt.headless=true", "-Xmx4096m", "-Xms1024m", "-XX:MaxMetaspaceSize=512m",
+                        "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-Djava.awt.headless=true")));
+
+        // Co-located instances share the memory and processors
+        ergonomics.setInstances(4);
+        assertEquals(List.of("-Xmx1024m", "-Xms256m", "-XX:MaxMetaspaceSize=256m", "-XX:MaxDirectMemorySize=128m",
+                        "-XX:ActiveProcessorCount=2"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options()));
+        assertEquals(List.of("-Xmx32m", "-Xms16m", "-XX:MaxMetaspaceSize=64m", "-XX:ActiveProcessorCount=1"),
+                ergonomics.apply(MemoryErgonomics.Profile.PROCESS_CONTROLLER, options()));
+        assertEquals(List.of("-Xmx128m", "-Xms64m", "-XX:MaxMetaspaceSize=128m", "-XX:ActiveProcessorCount=2"),
+                ergonomics.apply(MemoryErgonomics.Profile.HOST_CONTROLLER, options()));
+
+        // Without knowing the memory the options are not changed
+        assertEquals(List.of("-Xms64m", "-Xmx512m"),
+                MemoryErgonomics.of(ContainerResources.of(-1L, 2)).apply(MemoryErgonomics.Profile.SERVER, options()));
+    }
+
+    @Test
+    void userOptionsWin() {
+        final MemoryErgonomics ergonomics = MemoryErgonomics.of(ContainerResources.of(8L * GB, 8));
+        assertEquals(List.of("-Xmx2g", "-XX:MaxDirectMemorySize=1g", "-Xms1024m", "-XX:MaxMetaspaceSize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-Xmx2g", "-XX:MaxDirectMemorySize=1g")));
+        // Heap sizes relative to the memory are not combined with a fixed heap size
+        assertEquals(List.of("-XX:MaxRAMPercentage=75", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-XX:MaxRAMPercentage=75")));
+
+        final StandaloneCommandBuilder builder = StandaloneCommandBuilder.of(Paths.get(System.getProperty("jboss.home")))
+                .setMemoryErgonomics(ergonomics)
+                .addJavaOption("-Xmx3g");
+        final List<String> arguments = builder.buildArguments();
+        assertTrue(arguments.contains("-Xmx3g"), () -> "Missing -Xmx3g: " + arguments);
+        assertFalse(arguments.contains("-Xmx512m"), () -> "The default heap size should have been replaced: " + arguments);
+        assertFalse(arguments.contains("-Xmx4096m"), () -> "The heap size of the user should win: " + arguments);
+        assertTrue(arguments.contains("-Xms1024m"), () -> "Missing the derived initial heap size: " + arguments);
+
+        // The builder keeps a copy, changing the number of instances does not make its arguments stale
+        ergonomics.setInstances(4);
+        assertEquals(arguments, builder.buildArguments());
+        builder.setMemoryErgonomics(ergonomics);
+        assertTrue(builder.buildArguments().contains("-Xms256m"), () -> "Missing the derived initial heap size: " + builder.buildArguments());
+    }
+
+    @Test
+    void derivedHeapWithinUserHeap() {
+        final MemoryErgonomics ergonomics = MemoryErgonomics.of(ContainerResources.of(8L * GB, 8));
+        // The initial heap size must not be larger than the maximum heap size of the user
+        assertEquals(List.of("-Xmx256m", "-Xms256m", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-Xmx256m")));
+        // The maximum heap size must not be smaller than the initial heap size of the user
+        assertEquals(List.of("-Xms8g", "-Xmx8192m", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-Xms8g")));
+        assertEquals(List.of("-Xmx300k", "-Xms300k", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-Xmx300k")));
+        // Sizes which cannot be parsed are left to the JVM
+        assertEquals(List.of("-Xmxlarge", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-Xmxlarge")));
+    }
+
+    @Test
+    void heapSizeFlags() {
+        final MemoryErgonomics ergonomics = MemoryErgonomics.of(ContainerResources.of(8L * GB, 8));
+        // The heap size flags are options of the user as well, a derived -Xmx or -Xms would override them
+        assertEquals(List.of("-XX:MaxHeapSize=768m", "-Xms768m", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-XX:MaxHeapSize=768m")));
+        assertEquals(List.of("-XX:InitialHeapSize=2g", "-Xmx4096m", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-XX:InitialHeapSize=2g")));
+        assertEquals(List.of("-XX:MaxHeapSize=1g", "-XX:InitialHeapSize=512m", "-XX:MaxMetaspaceSize=512m", "-XX:MaxDirectMemorySize=512m"),
+                ergonomics.apply(MemoryErgonomics.Profile.SERVER, options("-XX:MaxHeapSize=1g", "-XX:InitialHeapSize=512m")));
+    }
+
+    @Test
+    void explicitDefaultHeapSize() {
+        final StandaloneCommandBuilder builder = StandaloneCommandBuilder.of(Paths.get(System.getProperty("jboss.home")))
+                .setMemoryErgonomics(MemoryErgonomics.of(ContainerResources.of(8L * GB, 8)))
+                .addJavaOption("-Xmx512m");
+        // The option was added by the user, even though it is the same as the default
+        final List<String> arguments = builder.buildArguments();
+        assertTrue(arguments.contains("-Xmx512m"), () -> "Missing -Xmx512m: " + arguments);
+        assertFalse(arguments.contains("-Xmx4096m"), () -> "The heap size of the user should win: " + arguments);
+        assertFalse(arguments.contains("-Xms64m"), () -> "The default initial heap size should have been replaced: " + arguments);
+        assertTrue(arguments.contains("-Xms512m"), () -> "Missing the derived initial heap size: " + arguments);
+    }
+
+    /**
+     * Creates the JVM options with the default heap options of the builders followed by the options of the user.
+     */
+    private static Arguments options(final String... userOptions) {
+        final Arguments arguments = new Arguments();
+        arguments.addDefaults("-Xms64m", "-Xmx512m");
+        arguments.addAll(userOptions);
+        return arguments;
+    }
+}
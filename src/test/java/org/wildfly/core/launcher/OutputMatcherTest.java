@@ -0,0 +1,101 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class OutputMatcherTest {
+
+    @Test
+    void match() throws Exception {
+        final List<String> matches = new ArrayList<>();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final OutputMatcher matcher = OutputMatcher.create()
+                .setExecutor(Runnable::run)
+                .addListener("he", (pattern, line) -> matches.add(pattern + "|" + line))
+                .addListener("she", (pattern, line) -> matches.add(pattern + "|" + line))
+                .addListener("hers", (pattern, line) -> matches.add(pattern + "|" + line))
+                .addListener("OutOfMemoryError", (pattern, line) -> matches.add(pattern + "|" + line))
+                .tee(OutputSink.of(out));
+        final String output = "ushers\r\nnothing\njava.lang.OutOfMemoryError: he he";
+        final byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        // Write small chunks so patterns span chunks
+        for (int i = 0; i < bytes.length; i += 3) {
+            matcher.write(bytes, i, Math.min(3, bytes.length - i));
+        }
+        matcher.close();
+
+        assertEquals(List.of("she|ushers", "he|ushers", "hers|ushers",
+                "OutOfMemoryError|java.lang.OutOfMemoryError: he he", "he|java.lang.OutOfMemoryError: he he"), matches);
+        assertEquals(output, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void addListenerWhileMatching() throws Exception {
+        final List<String> matches = new ArrayList<>();
+        final OutputMatcher matcher = OutputMatcher.create()
+                .setExecutor(Runnable::run)
+                .addListener("WFLYCTL0013", (pattern, line) -> matches.add(pattern + "|" + line))
+                .addListener("ERROR", (pattern, line) -> matches.add(pattern + "|" + line));
+        write(matcher, "ERROR Operation failed OutOfMemory WFLYCTL00");
+        // The partial match and the match of the current line are kept, the new pattern only matches new output
+        matcher.addListener("OutOfMemory", (pattern, line) -> matches.add(pattern + "|" + line));
+        write(matcher, "13\nOutOfMemory\n");
+        matcher.close();
+
+        assertEquals(List.of("ERROR|ERROR Operation failed OutOfMemory WFLYCTL0013", "WFLYCTL0013|ERROR Operation failed OutOfMemory WFLYCTL0013",
+                "OutOfMemory|OutOfMemory"), matches);
+    }
+
+    @Test
+    void notifyInOrder() throws Exception {
+        final int count = 500;
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(count);
+        final OutputMatcher matcher = OutputMatcher.create()
+                .addListener("line", (pattern, line) -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    lines.add(line);
+                    active.decrementAndGet();
+                    done.countDown();
+                });
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String line = "line " + i;
+            expected.add(line);
+            final byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            matcher.write(bytes, 0, bytes.length);
+        }
+        matcher.close();
+
+        assertTrue(done.await(30L, TimeUnit.SECONDS), "The listeners were not notified");
+        assertEquals(expected, lines);
+        assertEquals(1, maxActive.get(), "Expected the listeners to be notified one at a time");
+    }
+
+    private static void write(final OutputMatcher matcher, final String value) throws Exception {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        matcher.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class OutputTailTest {
+
+    @Test
+    void lines() {
+        final OutputTail tail = OutputTail.of(1024, 3);
+        assertEquals(List.of(), tail.getLines(10));
+        write(tail, "one\r\ntwo\nthr");
+        assertEquals(List.of("one", "two", "thr"), tail.getLines(10));
+        write(tail, "ee\n");
+        assertEquals(List.of("one", "two", "three"), tail.getLines(10));
+        assertEquals(List.of("two", "three"), tail.getLines(2));
+        write(tail, "four\n");
+        // Only the last 3 lines are kept
+        assertEquals(List.of("two", "three", "four"), tail.getLines(10));
+        assertEquals(4L, tail.getTotalLines());
+    }
+
+    @Test
+    void overwrite() {
+        final OutputTail tail = OutputTail.of(32, 100);
+        for (int i = 0; i < 1000; i++) {
+            write(tail, "line " + i + "\n");
+        }
+        // Each line is 9 bytes, only the lines which fit completely in the buffer are returned
+        assertEquals(List.of("line 997", "line 998", "line 999"), tail.getLines(10));
+        assertEquals("line 997\nline 998\nline 999\n", tail.toString());
+        assertEquals(1000L, tail.getTotalLines());
+
+        // A chunk larger than the buffer
+        write(tail, "x".repeat(100) + "\nabc");
+        assertEquals(List.of("abc"), tail.getLines(10));
+        assertEquals(1001L, tail.getTotalLines());
+    }
+
+    private static void write(final OutputTail tail, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        tail.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright The WildFly Authors
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.wildfly.core.launcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class RotatingFileSinkTest {
+
+    @Test
+    void rollOnSize(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("console.log");
+        final RotatingFileSink sink = RotatingFileSink.of(file)
+                .setMaxSize(1000L);
+        final byte[] chunk = new byte[300];
+        Arrays.fill(chunk, (byte) 'a');
+        for (int i = 0; i < 10; i++) {
+            sink.write(chunk, 0, chunk.length);
+        }
+        sink.close();
+        // Three chunks fit in each file
+        assertEquals(300L, Files.size(file));
+        final List<Path> rolled = list(dir);
+        assertEquals(3, rolled.size(), () -> "Expected 3 rolled files: " + rolled);
+        for (Path r : rolled) {
+            assertEquals(900L, Files.size(r));
+        }
+    }
+
+    @Test
+    void rollOnTime(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("console.log");
+        final RotatingFileSink sink = RotatingFileSink.of(file)
+                .setRotationInterval(50L, TimeUnit.MILLISECONDS);
+        sink.write(bytes("first"), 0, 5);
+        // Not rolled over before the interval elapsed
+        sink.write(bytes("second"), 0, 6);
+        assertEquals(List.of(), list(dir));
+        TimeUnit.MILLISECONDS.sleep(100L);
+        sink.write(bytes("third"), 0, 5);
+        sink.close();
+
+        assertEquals("third", Files.readString(file));
+        final List<Path> rolled = list(dir);
+        assertEquals(1, rolled.size(), () -> "Expected 1 rolled file: " + rolled);
+        assertEquals("firstsecond", Files.readString(rolled.get(0)));
+    }
+
+    @Test
+    void compress(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("console.log");
+        final RotatingFileSink sink = RotatingFileSink.of(file)
+                .setMaxSize(10L)
+                .setCompress(true);
+        sink.write(bytes("0123456789"), 0, 10);
+        sink.write(bytes("next"), 0, 4);
+        sink.close();
+
+        // The rolled file is compressed on a background thread
+        final List<Path> rolled = await(dir, files -> files.size() == 1 && files.get(0).getFileName().toString().endsWith(".gz"));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(rolled.get(0)))) {
+            assertEquals("0123456789", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals("next", Files.readString(file));
+    }
+
+    @Test
+    void maxBackups(@TempDir final Path dir) throws Exception {
+        final Path file = dir.resolve("console.log");
+        // Rolled files of a previous run, the counter orders files rolled within the same millisecond
+        for (String suffix : List.of("20240101-120000-000.gz", "20240101-120000-000-1.gz", "20240101-120000-000-2",
+                "20240101-120000-000-10", "20240101-120001-000")) {
+            Files.createFile(dir.resolve("console.log." + suffix));
+        }
+        Files.createFile(dir.resolve("other.log.20240101-110000-000"));
+        Files.writeString(file, "previous");
+        final RotatingFileSink sink = RotatingFileSink.of(file)
+                .setMaxBackups(4);
+        // The existing file is rolled over on the first write
+        sink.write(bytes("current"), 0, 7);
+        sink.close();
+
+        final List<Path> rolled = await(dir, files -> files.size() == 5);
+        final Set<String> names = rolled.stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toSet());
+        assertTrue(names.contains("other.log.20240101-110000-000"), () -> "Expected other files to be kept: " + names);
+        assertTrue(names.containsAll(List.of("console.log.20240101-120000-000-2", "console.log.20240101-120000-000-10",
+                "console.log.20240101-120001-000")), () -> "Expected the newest rolled files to be kept: " + names);
+        assertTrue(rolled.stream().anyMatch(path -> {
+            try {
+                return path.getFileName().toString().startsWith("console.log.") && "previous".equals(Files.readString(path));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }), () -> "Expected the file rolled last to be kept: " + names);
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> await(final Path dir, final Predicate<List<Path>> condition) throws IOException, InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30L);
+        List<Path> files = list(dir);
+        while (!condition.test(files)) {
+            final List<Path> current = files;
+            assertTrue(System.nanoTime() < deadline, () -> "Unexpected rolled files: " + current);
+            TimeUnit.MILLISECONDS.sleep(10L);
+            files = list(dir);
+        }
+        return files;
+    }
+
+    private static List<Path> list(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> !f.getFileName().toString().equals("console.log"))
+                    .collect(Collectors.toList());
+        }
+    }
+}
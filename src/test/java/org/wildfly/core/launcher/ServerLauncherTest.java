@@ -5,9 +5,6 @@
 
 package org.wildfly.core.launcher;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -26,7 +23,6 @@ import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
 import org.junit.jupiter.api.extension.TestTemplateInvocationContext;
 import org.junit.jupiter.api.extension.TestTemplateInvocationContextProvider;
-import org.wildfly.plugin.tools.ConsoleConsumer;
 import org.wildfly.plugin.tools.ContainerDescription;
 import org.wildfly.plugin.tools.server.ServerManager;
 
@@ -42,14 +38,25 @@ class ServerLauncherTest {
     @TestTemplate
     @ExtendWith(ServerLaunchTestTemplateInvocationContextProvider.class)
     void launch(final CommandBuilder commandBuilder, final long timeout, final TestInfo testInfo) throws Exception {
-        final Launcher launcher = Launcher.of(commandBuilder);
+        // Keep only the most recent output, while still writing all the output to the console
+        final OutputTail out = OutputTail.create();
+        final OutputSink console = OutputSink.of(System.out);
+        final Launcher launcher = Launcher.of(commandBuilder)
+                .consumeOutput((buffer, offset, length) -> {
+                    out.write(buffer, offset, length);
+                    console.write(buffer, offset, length);
+                });
+        // The boot log can only be resolved for standalone and domain servers
+        final BootLogReadinessCheck readinessCheck = commandBuilder instanceof BootableJarCommandBuilder ? null : BootLogReadinessCheck.of(commandBuilder);
         Process process = null;
         try {
             process = launcher.launch();
             final Process capturedProcess = process;
-            final CapturingOutputStream out = new CapturingOutputStream();
-            ConsoleConsumer.start(process, out);
             Assertions.assertTrue(process.isAlive(), () -> String.format("The process has terminated: %d - %s", capturedProcess.exitValue(), out));
+            if (readinessCheck != null) {
+                Assertions.assertTrue(readinessCheck.awaitReady(process, timeout, TimeUnit.SECONDS),
+                        () -> String.format("The boot log did not report %s started within %d seconds.%n%s", testInfo.getDisplayName(), timeout, out));
+            }
             try (
                     ServerManager serverManager = ServerManager.builder()
                             .process(process)
@@ -57,7 +64,6 @@ class ServerLauncherTest {
                             .build()
                             .get(timeout, TimeUnit.SECONDS)
             ) {
-                ConsoleConsumer.start(process, out);
                 Assertions.assertTrue(serverManager.waitFor(timeout, TimeUnit.SECONDS), () -> String.format("Failed to start %s within %d seconds. Process: %s%n%s", testInfo.getDisplayName(), timeout, capturedProcess,
                         out));
                 Assertions.assertTrue(serverManager.isRunning(), () -> String.format("Server %s is not running. Process: %s%n%s", testInfo.getDisplayName(), capturedProcess,
@@ -137,47 +143,4 @@ class ServerLauncherTest {
             };
         }
     }
-
-    private static class CapturingOutputStream extends ByteArrayOutputStream {
-        @Override
-        public synchronized void write(final int b) {
-            try {
-                super.write(b);
-            } finally {
-                System.out.write(b);
-            }
-        }
-
-        @Override
-        public synchronized void write(final byte[] b, final int off, final int len) {
-            try {
-                super.write(b, off, len);
-            } finally {
-                System.out.write(b, off, len);
-            }
-        }
-
-        @Override
-        public synchronized void write(final byte[] b) throws IOException {
-            try {
-                super.write(b);
-            } finally {
-                System.out.write(b);
-            }
-        }
-
-        @Override
-        public void flush() throws IOException {
-            try {
-                super.flush();
-            } finally {
-                System.out.flush();
-            }
-        }
-
-        @Override
-        public synchronized String toString() {
-            return super.toString(StandardCharsets.UTF_8);
-        }
-    }
 }